@@ -0,0 +1,38 @@
+package com.budgetmaster.budgetmaster;
+
+import java.io.IOException;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Runs benchmarks with JMH command line options and the GC profiler always
+ * enabled to report allocation rates together with throughput.
+ */
+public final class BenchmarksMain {
+
+    public static void main(String... args) throws IOException,
+            RunnerException, CommandLineOptionException {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        if (cmdOptions.shouldHelp()) {
+            cmdOptions.showHelp();
+            return;
+        }
+        if (cmdOptions.shouldList()) {
+            new Runner(cmdOptions).list();
+            return;
+        }
+
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(cmdOptions);
+        if (cmdOptions.getProfilers().stream().noneMatch(
+                profiler -> profiler.getKlass().equals(GCProfiler.class.getName()))) {
+            options.addProfiler(GCProfiler.class);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,36 @@
+package com.budgetmaster.budgetmaster;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Serializes records into a writer discarding the output to exclude I/O.
+ */
+@State(Scope.Benchmark)
+public class CsvRecordsSerializerBenchmark {
+
+    @Setup
+    public void setup() {
+        records = new RecordsGenerator(SEED).records(size, 0, 0);
+    }
+
+    @Benchmark
+    public void saveToStream() throws IOException {
+        new CsvRecordsSerializer().saveToStream(records.stream(),
+                Writer.nullWriter());
+    }
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<Record> records;
+
+    private final static long SEED = 1;
+}
@@ -0,0 +1,34 @@
+package com.budgetmaster.budgetmaster;
+
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Every tenth record is followed by a record with the same global ID.
+ */
+@State(Scope.Benchmark)
+public class DupRecordsFilterBenchmark {
+
+    @Setup
+    public void setup() {
+        records = new RecordsGenerator(SEED).records(size, 0, DUP_RATIO);
+    }
+
+    @Benchmark
+    public long apply() {
+        return new DupRecordsFilter().apply(records.stream()).count();
+    }
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<Record> records;
+
+    private final static long SEED = 1;
+    private final static int DUP_RATIO = 10;
+}
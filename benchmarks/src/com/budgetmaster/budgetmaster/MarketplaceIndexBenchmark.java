@@ -0,0 +1,82 @@
+package com.budgetmaster.budgetmaster;
+
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Compares candidate search of MarketplaceTransactions over the (amount,
+ * date) index with the hash set intersection it replaced. Runs a single
+ * iteration of the tolerance grid, so the time is dominated by finding
+ * candidate transactions of every record.
+ */
+@State(Scope.Benchmark)
+public class MarketplaceIndexBenchmark {
+
+    public enum Implementation {
+        Legacy,
+        Indexed
+    }
+
+    @Setup
+    public void setup() {
+        RecordsGenerator generator = new RecordsGenerator(SEED);
+        transactions = generator.records(size, 0, 0);
+        records = generator.perturbed(transactions, recordCount,
+                MAX_DAYS_SHIFT, MAX_CENTS_SHIFT);
+    }
+
+    @Benchmark
+    public void mapRecords(Blackhole bh) {
+        switch (implementation) {
+            case Legacy:
+                new LegacyMarketplaceTransactions<Record>(transactions.stream(),
+                        Record::getAmount, Record::getCurrency,
+                        Record::getTransactionDate)
+                        .setMaxDaysRange(new LegacyMarketplaceTransactions.IntRange(
+                                MAX_DAYS_SHIFT, MAX_DAYS_SHIFT, 0))
+                        .setMaxAmountRange(new LegacyMarketplaceTransactions.IntRange(
+                                MAX_AMOUNT_DIFF, MAX_AMOUNT_DIFF, 0))
+                        .mapRecords(records.stream(),
+                                LegacyMarketplaceTransactions.Match::getKey)
+                        .forEach(bh::consume);
+                break;
+
+            default:
+                new MarketplaceTransactions<Record>(transactions.stream(),
+                        Record::getAmount, Record::getCurrency,
+                        Record::getTransactionDate)
+                        .setMaxDaysRange(new MarketplaceTransactions.IntRange(
+                                MAX_DAYS_SHIFT, MAX_DAYS_SHIFT, 0))
+                        .setMaxAmountRange(new MarketplaceTransactions.IntRange(
+                                MAX_AMOUNT_DIFF, MAX_AMOUNT_DIFF, 0))
+                        .mapRecords(records.stream(),
+                                MarketplaceTransactions.Match::getKey)
+                        .forEach(bh::consume);
+                break;
+        }
+    }
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"1000"})
+    public int recordCount;
+
+    @Param({"Legacy", "Indexed"})
+    public Implementation implementation;
+
+    private List<Record> transactions;
+    private List<Record> records;
+
+    private final static long SEED = 1;
+    private final static int MAX_DAYS_SHIFT = 3;
+    private final static int MAX_CENTS_SHIFT = 2;
+    // In 1/1000 units, i.e. 1%.
+    private final static int MAX_AMOUNT_DIFF = 10;
+}
@@ -0,0 +1,56 @@
+package com.budgetmaster.budgetmaster;
+
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Matches records against marketplace transactions. There are ten times
+ * more transactions than records. Every record is a copy of a random
+ * transaction with the amount and the date slightly shifted. Measures
+ * indexing of transactions together with the matching as it is done once
+ * per run of the marketplace pass.
+ */
+@State(Scope.Benchmark)
+public class MarketplaceTransactionsBenchmark {
+
+    @Setup
+    public void setup() {
+        RecordsGenerator generator = new RecordsGenerator(SEED);
+        transactions = generator.records(size, 0, 0);
+        records = generator.perturbed(transactions, Math.max(1, size / 10),
+                MAX_DAYS_SHIFT, MAX_CENTS_SHIFT);
+    }
+
+    @Benchmark
+    public void mapRecords(Blackhole bh) {
+        new MarketplaceTransactions<Record>(transactions.stream(),
+                Record::getAmount, Record::getCurrency,
+                Record::getTransactionDate)
+                .setMaxDaysRange(new MarketplaceTransactions.IntRange(1,
+                        MAX_DAYS_SHIFT, 1))
+                .setMaxAmountRange(new MarketplaceTransactions.IntRange(100,
+                        100, 0))
+                .setSearchStrategy(searchStrategy)
+                .mapRecords(records.stream(), MarketplaceTransactions.Match::getKey)
+                .forEach(bh::consume);
+    }
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"Exhaustive", "BranchAndBound"})
+    public MarketplaceTransactions.SearchStrategy searchStrategy;
+
+    private List<Record> transactions;
+    private List<Record> records;
+
+    private final static long SEED = 1;
+    private final static int MAX_DAYS_SHIFT = 3;
+    private final static int MAX_CENTS_SHIFT = 2;
+}
@@ -0,0 +1,75 @@
+package com.budgetmaster.budgetmaster;
+
+import java.math.BigDecimal;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Parses amount strings with MonetaryAmount.of() and with the string based
+ * parser it replaced (legacyOf).
+ */
+@State(Scope.Benchmark)
+public class MonetaryAmountBenchmark {
+
+    @Setup
+    public void setup() {
+        amounts = new RecordsGenerator(SEED).amounts(size);
+    }
+
+    @Benchmark
+    public void of(Blackhole bh) {
+        for (String amount : amounts) {
+            bh.consume(MonetaryAmount.of(amount));
+        }
+    }
+
+    @Benchmark
+    public void legacyOf(Blackhole bh) {
+        for (String amount : amounts) {
+            bh.consume(legacyParse(amount));
+        }
+    }
+
+    /**
+     * The parser MonetaryAmount.of() used to have. Returns the currency symbol
+     * and the amount.
+     */
+    private static Object[] legacyParse(String value) {
+        value = value.strip();
+        final boolean negative = value.charAt(0) == '-';
+        int idx = 0;
+        while (idx < value.length() && !Character.isDigit(value.charAt(idx))) {
+            idx++;
+        }
+
+        if (negative) {
+            return new Object[] {value.substring(1, idx), legacyParseAmount(
+                    value.substring(idx)).negate()};
+        } else {
+            return new Object[] {value.substring(0, idx), legacyParseAmount(
+                    value.substring(idx))};
+        }
+    }
+
+    private static BigDecimal legacyParseAmount(String value) {
+        int sepIdx = value.indexOf(',');
+        if (sepIdx > 0) {
+            value = value.substring(0, sepIdx) + value.substring(sepIdx + 1);
+        }
+
+        return new BigDecimal(value).stripTrailingZeros();
+    }
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<String> amounts;
+
+    private final static long SEED = 1;
+}
@@ -0,0 +1,42 @@
+package com.budgetmaster.budgetmaster;
+
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Every tenth record is followed by its refund.
+ */
+@State(Scope.Benchmark)
+public class OuroborosRecordsFilterBenchmark {
+
+    @Setup
+    public void setup() {
+        records = new RecordsGenerator(SEED).records(size, REFUND_RATIO, 0);
+    }
+
+    @Benchmark
+    public long apply() {
+        return new OuroborosRecordsFilter()
+                .negate(negate)
+                .maxPeriodDays(MAX_PERIOD_DAYS)
+                .apply(records.stream())
+                .count();
+    }
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean negate;
+
+    private List<Record> records;
+
+    private final static long SEED = 1;
+    private final static int REFUND_RATIO = 10;
+    private final static int MAX_PERIOD_DAYS = 30;
+}
@@ -0,0 +1,74 @@
+package com.budgetmaster.budgetmaster;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Applies a pass with an action modifying `fieldCount` fields of every
+ * record. Run with the GC profiler, it reports allocations per record
+ * mutation chain.
+ */
+@State(Scope.Benchmark)
+public class RecordActionsBenchmark {
+
+    @Setup
+    public void setup() throws IOException {
+        LoggingRecordMatcher.LOGGER.setLevel(Level.WARNING);
+        LoggingRecordMapper.LOGGER.setLevel(Level.WARNING);
+
+        records = new RecordsGenerator(SEED).records(size, 0, 0);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("<config><pass><action>");
+        sb.append("<matcher><description>.</description></matcher>");
+        for (int i = 0; i != fieldCount; ++i) {
+            sb.append(FIELDS[i % FIELDS.length]);
+        }
+        sb.append("</action></pass></config>");
+
+        Path configFile = Files.createTempFile("actions", ".xml");
+        try {
+            Files.writeString(configFile, sb.toString());
+            processor = new MainRecordsProcessorBuilder().createFromXml(
+                    configFile);
+        } finally {
+            Files.delete(configFile);
+        }
+    }
+
+    @Benchmark
+    public void apply(Blackhole blackhole) {
+        processor.apply(records.stream()).forEach(blackhole::consume);
+    }
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"1", "5"})
+    public int fieldCount;
+
+    private List<Record> records;
+    private UnaryOperator<Stream<Record>> processor;
+
+    private final static long SEED = 1;
+
+    private final static String[] FIELDS = new String[] {
+        "<tag>checked</tag>",
+        "<category>Shopping</category>",
+        "<tag>shop</tag>",
+        "<description>Renamed</description>",
+        "<negation/>"
+    };
+}
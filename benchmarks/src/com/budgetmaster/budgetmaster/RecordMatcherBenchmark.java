@@ -0,0 +1,124 @@
+package com.budgetmaster.budgetmaster;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Applies a pass with `ruleCount` actions to records. Every action tags
+ * records with descriptions matching a regular expression. Most of the
+ * regular expressions don't match descriptions of generated records. Zero
+ * `parallelism` applies the pass with all available processors.
+ */
+@State(Scope.Benchmark)
+public class RecordMatcherBenchmark {
+
+    @Setup
+    public void setup() throws IOException {
+        LoggingRecordMatcher.LOGGER.setLevel(Level.WARNING);
+        LoggingRecordMapper.LOGGER.setLevel(Level.WARNING);
+
+        records = new RecordsGenerator(SEED).records(size, 0, 0);
+
+        Path configFile = Files.createTempFile("rules", ".xml");
+        try {
+            Files.writeString(configFile, createConfig(new Random(SEED)));
+            processor = new MainRecordsProcessorBuilder()
+                    .setParallelism(parallelism)
+                    .createFromXml(configFile);
+        } finally {
+            Files.delete(configFile);
+        }
+    }
+
+    @Benchmark
+    public void apply(Blackhole blackhole) {
+        processor.apply(records.stream()).forEach(blackhole::consume);
+    }
+
+    private String createConfig(Random random) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<config>\n");
+        sb.append("<matcher id=\"shopping\"><or>");
+        sb.append("<description>\\b(AMAZON|AMZN)\\b</description>");
+        sb.append("<description>(?i)stop &amp; shop</description>");
+        sb.append("</or></matcher>\n");
+
+        sb.append("<pass>\n");
+        for (int i = 0; i != ruleCount; ++i) {
+            final String merchant = MERCHANTS[random.nextInt(MERCHANTS.length)];
+            sb.append("<action><matcher>");
+            switch (i % 5) {
+                case 0:
+                    sb.append(String.format("<description>^%s %d\\b</description>",
+                            merchant, i));
+                    break;
+
+                case 1:
+                    sb.append(String.format(
+                            "<description>(?i)%s|store #%d</description>",
+                            merchant.toLowerCase(), i));
+                    break;
+
+                case 2:
+                    sb.append(String.format(
+                            "<description>%s\\s+\\d{3}-%04d</description>",
+                            merchant, i));
+                    sb.append("<not><tag>ignore</tag></not>");
+                    break;
+
+                case 3:
+                    sb.append(String.format(
+                            "<or><description>%s ONLINE</description>"
+                            + "<description>WWW\\.%s%d\\.COM</description></or>",
+                            merchant, merchant, i));
+                    break;
+
+                default:
+                    sb.append("<matcher ref=\"shopping\"/>");
+                    sb.append(String.format(
+                            "<description>[A-Z]{2} %d$</description>", i));
+                    break;
+            }
+            sb.append(String.format("</matcher><tag>rule-%d</tag></action>\n",
+                    i));
+        }
+        sb.append("<action><matcher><description>OIL\\b</description></matcher>");
+        sb.append("<tag>gas</tag></action>\n");
+        sb.append("</pass>\n");
+        sb.append("</config>\n");
+        return sb.toString();
+    }
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"500"})
+    public int ruleCount;
+
+    @Param({"1", "0"})
+    public int parallelism;
+
+    private List<Record> records;
+    private UnaryOperator<Stream<Record>> processor;
+
+    private final static long SEED = 1;
+
+    private final static String[] MERCHANTS = new String[] {
+        "WALMART", "TARGET", "COSTCO", "KROGER", "WALGREENS", "CVS", "SAFEWAY",
+        "NETFLIX", "SPOTIFY", "UBER", "LYFT", "DOORDASH", "CHIPOTLE", "IKEA",
+        "HOME DEPOT", "LOWES", "BEST BUY", "APPLE", "GOOGLE", "MICROSOFT"
+    };
+}
@@ -0,0 +1,134 @@
+package com.budgetmaster.budgetmaster;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+
+/**
+ * Generates reproducible synthetic records for benchmarks.
+ */
+final class RecordsGenerator {
+    RecordsGenerator(long seed) {
+        random = new Random(seed);
+        statements = IntStream.range(0, STATEMENT_COUNT)
+                .mapToObj(i -> Statement.fromStatementFile(String.format(
+                        "statement-%d", i), Path.of(String.format(
+                        "statement-%d.csv", i)), Util.USD, null))
+                .toArray(Statement[]::new);
+    }
+
+    /**
+     * Returns the given number of records. Every `refundRatio`-th record is
+     * followed by a record from the same statement with negated amount a few
+     * days later. Every `dupRatio`-th record is followed by a record with the
+     * same global ID. Zero ratio disables the corresponding records.
+     */
+    List<Record> records(int count, int refundRatio, int dupRatio) {
+        List<Record> result = new ArrayList<>(count);
+        while (result.size() < count) {
+            final Record record = record(result.size());
+            result.add(record);
+
+            if (refundRatio != 0 && result.size() % refundRatio == 0
+                    && result.size() < count) {
+                result.add(RecordBuilder.from(record)
+                        .setId(String.format("%s-refund", record.getId()))
+                        .setTransactionDate(record.getTransactionDate()
+                                .plusDays(random.nextInt(30)))
+                        .negateAmount()
+                        .create());
+            }
+
+            if (dupRatio != 0 && result.size() % dupRatio == 0
+                    && result.size() < count) {
+                result.add(RecordBuilder.from(record)
+                        .setDescription(String.format("%s (updated)",
+                                record.getDescription()))
+                        .create());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns copies of random records from the given list with amounts and
+     * dates shifted within the given tolerances.
+     */
+    List<Record> perturbed(List<Record> records, int count, int maxDaysShift,
+            int maxCentsShift) {
+        List<Record> result = new ArrayList<>(count);
+        for (int i = 0; i != count; ++i) {
+            final Record record = records.get(random.nextInt(records.size()));
+            result.add(RecordBuilder.from(record)
+                    .setId(String.format("p%d", i))
+                    .setTransactionDate(record.getTransactionDate().plusDays(
+                            random.nextInt(maxDaysShift + 1)))
+                    .setAmount(record.getAmount().add(BigDecimal.valueOf(
+                            random.nextInt(maxCentsShift + 1), 2)))
+                    .create());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the given number of amount strings in the formats
+     * MonetaryAmount.of() accepts, e.g. "$1,234.56", "-$7.10", "42.00".
+     */
+    List<String> amounts(int count) {
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i != count; ++i) {
+            final BigDecimal amount = BigDecimal.valueOf(random.nextInt(
+                    MAX_CENTS) + 1, 2);
+            final String sign = random.nextInt(4) == 0 ? "-" : "";
+            final String symbol = random.nextBoolean() ? "$" : "";
+            String digits = amount.toPlainString();
+            if (amount.compareTo(THOUSAND) >= 0) {
+                final int idx = digits.indexOf('.') - 3;
+                digits = digits.substring(0, idx) + "," + digits.substring(idx);
+            }
+            result.add(sign + symbol + digits);
+        }
+        return result;
+    }
+
+    private Record record(int idx) {
+        return new RecordBuilder()
+                .setId(String.format("#%d", idx))
+                .setTransactionDate(FIRST_DATE.plusDays(random.nextInt(
+                        DATE_RANGE_DAYS)))
+                .setPostingDate(FIRST_DATE.plusDays(random.nextInt(
+                        DATE_RANGE_DAYS)))
+                .setAmount(BigDecimal.valueOf(random.nextInt(MAX_CENTS) + 1, 2))
+                .setCurrency(Util.USD)
+                .setDescription(String.format("%s %08d", DESCRIPTIONS[
+                        random.nextInt(DESCRIPTIONS.length)], random.nextInt(
+                        100_000_000)))
+                .setSource(statements[random.nextInt(statements.length)])
+                .create();
+    }
+
+    private final Random random;
+    private final Statement[] statements;
+
+    private final static int STATEMENT_COUNT = 16;
+    private final static int MAX_CENTS = 300_000;
+    private final static int DATE_RANGE_DAYS = 5 * 365;
+    private final static LocalDate FIRST_DATE = LocalDate.of(2015, 1, 1);
+    private final static BigDecimal THOUSAND = BigDecimal.valueOf(1000);
+
+    private final static String[] DESCRIPTIONS = new String[] {
+        "AMAZON MKTPLACE PMTS AMZN.COM/BILL WA",
+        "Amazon.com*MA2LL8HX0 Amzn.com/bill WA",
+        "PAYPAL *STEAM GAMES 402-935-7733 WA",
+        "SHELL OIL 57444720300 SUDBURY MA",
+        "STOP & SHOP 0423 FRAMINGHAM MA",
+        "DCU ACH DEBIT VERIZON WIRELESS",
+        "TRANSFER FROM SAVINGS",
+        "STARBUCKS STORE 09713 BOSTON MA"
+    };
+}
@@ -0,0 +1,45 @@
+package com.budgetmaster.budgetmaster;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Reads file produced by BinaryRecordsSerializer with RecordsReaderBinary.
+ * Counterpart of RecordsReaderCsvBenchmark.
+ */
+@State(Scope.Benchmark)
+public class RecordsReaderBinaryBenchmark {
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("records", ".brec");
+        new BinaryRecordsSerializer().saveToFile(new RecordsGenerator(SEED)
+                .records(size, 0, 0).stream(), file);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void read(Blackhole bh) throws IOException {
+        new RecordsReaderBinary().read(file).forEach(bh::consume);
+    }
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private Path file;
+
+    private final static long SEED = 1;
+}
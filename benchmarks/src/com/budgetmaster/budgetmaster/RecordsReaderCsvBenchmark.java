@@ -0,0 +1,48 @@
+package com.budgetmaster.budgetmaster;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Reads CSV file produced by CsvRecordsSerializer with RecordsReaderCsv.
+ * Covers CsvReader.readCsv() and conversion of CSV records into records.
+ */
+@State(Scope.Benchmark)
+public class RecordsReaderCsvBenchmark {
+
+    @Setup
+    public void setup() throws IOException {
+        csvFile = Files.createTempFile("records", ".csv");
+        new CsvRecordsSerializer().saveToFile(new RecordsGenerator(SEED)
+                .records(size, 0, 0).stream(), csvFile);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csvFile);
+    }
+
+    @Benchmark
+    public void read(Blackhole bh) throws IOException {
+        try (Stream<Record> records = new RecordsReaderCsv().read(csvFile)) {
+            records.forEach(bh::consume);
+        }
+    }
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private Path csvFile;
+
+    private final static long SEED = 1;
+}
@@ -0,0 +1,39 @@
+package com.budgetmaster.budgetmaster;
+
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * Matches descriptions of records with regular expressions like the ones
+ * from the default config.
+ */
+@State(Scope.Benchmark)
+public class StringMatcherBenchmark {
+
+    @Setup
+    public void setup() {
+        records = new RecordsGenerator(SEED).records(size, 0, 0);
+        matcher = new StringMatcher(regexp, Record::getDescription);
+    }
+
+    @Benchmark
+    public long test() {
+        return records.stream().filter(matcher).count();
+    }
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"^AMAZON MKTPLACE PMTS", "(?i)amazon|amzn", "PAYPAL \\*\\S+"})
+    public String regexp;
+
+    private List<Record> records;
+    private StringMatcher matcher;
+
+    private final static long SEED = 1;
+}
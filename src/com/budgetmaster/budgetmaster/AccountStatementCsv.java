@@ -4,7 +4,6 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.file.Path;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.Currency;
 import java.util.Map;
@@ -12,19 +11,35 @@ import java.util.function.BiConsumer;
 import java.util.stream.Stream;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVRecord;
+import org.w3c.dom.Element;
 
 
-public abstract class AccountStatementCsv implements RecordsSupplier {
+public abstract class AccountStatementCsv implements RecordsSupplier,
+        Pluggable {
+    @Override
+    public void initFromXml(Element root) {
+        String csvJobsText = Util.readLastElement(root, "csv-jobs");
+        if (csvJobsText != null) {
+            csvJobs = Integer.parseInt(csvJobsText);
+        }
+    }
+
+    /**
+     * Reads records of the given file. With more than one CSV job
+     * customReadRecord() is called from multiple threads.
+     */
     @Override
     public Stream<Record> read(Path csvFilePath) throws IOException {
         final Map<RecordBuilder.Setter, Enum<?>> fieldMapper = fieldMapper();
+        final DateDecoder dateDecoder = recordDateDecoder();
 
         return new CsvReader<Record>()
         .setFormat(initFormat())
+        .setParallelism(csvJobs)
         .setThrowingConv((csvRecord, reportError) -> {
             RecordBuilder rb = new RecordBuilder();
             rb.setId(String.format("#%d",
-                    csvRecord.getParser().getCurrentLineNumber() + 1));
+                    CsvReader.getLineNumber(csvRecord) + 1));
 
             for (var fieldEntry : fieldMapper.entrySet()) {
                 final String value = csvRecord.get(fieldEntry.getValue().name());
@@ -32,8 +47,7 @@ public abstract class AccountStatementCsv implements RecordsSupplier {
                     case TransactionDate:
                     case PostingDate:
                         try {
-                            final LocalDate date = LocalDate.parse(value,
-                                    recordDateTimeFormatter());
+                            final LocalDate date = dateDecoder.decode(value);
                             setterHelper(fieldEntry.getKey().method, rb, date);
                         } catch (DateTimeParseException ex) {
                             reportError.accept(String.format(
@@ -103,7 +117,7 @@ public abstract class AccountStatementCsv implements RecordsSupplier {
 
     protected abstract Map<RecordBuilder.Setter, Enum<?>> fieldMapper();
 
-    protected abstract DateTimeFormatter recordDateTimeFormatter();
+    protected abstract DateDecoder recordDateDecoder();
 
     protected abstract CSVFormat initFormat();
 
@@ -111,4 +125,6 @@ public abstract class AccountStatementCsv implements RecordsSupplier {
             RecordBuilder rb, T value) {
         ((BiConsumer<RecordBuilder, T>) method).accept(rb, value);
     }
+
+    private int csvJobs = 1;
 }
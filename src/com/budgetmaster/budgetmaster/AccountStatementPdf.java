@@ -8,47 +8,74 @@ import java.time.Year;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.w3c.dom.Element;
 
 
-public abstract class AccountStatementPdf implements RecordsSupplier {
+public abstract class AccountStatementPdf implements RecordsSupplier,
+        Pluggable {
+    @Override
+    public void initFromXml(Element root) {
+        String pageJobsText = Util.readLastElement(root, "page-jobs");
+        if (pageJobsText != null) {
+            pageJobs = Integer.parseInt(pageJobsText);
+        }
+
+        String maxMainMemoryText = Util.readLastElement(root, "max-main-memory");
+        if (maxMainMemoryText != null) {
+            maxMainMemoryBytes = Util.parseByteCount(maxMainMemoryText);
+        }
+    }
+
     @Override
     public Stream<Record> read(Path pdfFile) throws IOException {
         PdfTextExtractor textExtractor = new PdfTextExtractor();
+        textExtractor.setPageJobs(pageJobs);
+        textExtractor.setMaxMainMemoryBytes(maxMainMemoryBytes);
         adjustPdfTextExtractor(textExtractor);
-        String pdfText = textExtractor.extractText(pdfFile);
 
-        TextFrame textFrame = new TextFrame(pdfText);
+        final PdfTextCache cache = textCache;
+        final String pdfText;
+        if (cache != null) {
+            pdfText = cache.getText(pdfFile, textExtractor);
+        } else {
+            pdfText = textExtractor.extractText(pdfFile);
+        }
+
+        TextFrame textFrame = new TextFrame(pdfText, textAnchors());
         setPeriod(textFrame);
 
         return parsePdfText(textFrame).stream();
     }
 
-    protected List<Record> parseRecords(Stream<String> lines) {
+    protected List<Record> parseRecords(Stream<? extends CharSequence> lines) {
+        final LineTokenizer tokens = new LineTokenizer();
         return lines
-                .map((str) -> str.replaceAll("[\\n\\r\\s]+", " "))
-                .map(this::parseRecord)
+                .map((line) -> parseRecord(tokens.reset(line)))
                 .collect(Collectors.toList());
     }
 
-    private Record parseRecord(String str) {
+    /**
+     * Creates record from tokens of a record line. The first token is the
+     * transaction date.
+     */
+    protected Record parseRecord(LineTokenizer tokens) {
         RecordBuilder rb = new RecordBuilder().strip();
 
-        String components[] = Util.splitAtWhitespace(str, 2);
+        rb.setTransactionDate(getRecordDate(tokens.token(0)));
 
-        rb.setTransactionDate(getRecordDate(components[0]));
-
-        parseRecord(components[1], rb);
+        parseRecord(tokens, rb);
 
         return rb.create();
     }
 
-    protected LocalDate getRecordDate(String str) {
+    protected LocalDate getRecordDate(CharSequence str) {
         try {
-            MonthDay md = MonthDay.parse(str, recordDateTimeFormatter());
+            MonthDay md = parseRecordMonthDay(str);
             LocalDate date = Year.from(beginPeriod).atMonthDay(md);
             if (date.isBefore(beginPeriod)) {
                 date = Year.from(endPeriod).atMonthDay(md);
@@ -64,6 +91,14 @@ public abstract class AccountStatementPdf implements RecordsSupplier {
         }
     }
 
+    /**
+     * Parses month day of a record date with recordDateTimeFormatter().
+     * Subclasses may recognize the format without the formatter.
+     */
+    protected MonthDay parseRecordMonthDay(CharSequence str) {
+        return MonthDay.parse(str, recordDateTimeFormatter());
+    }
+
     private void setPeriod(TextFrame text) {
         String periodStr = periodString(text);
 
@@ -104,9 +139,28 @@ public abstract class AccountStatementPdf implements RecordsSupplier {
     protected void adjustPdfTextExtractor(PdfTextExtractor extractor) {
     }
 
+    /**
+     * Returns strings the parser looks up in the text of PDF files. Their
+     * occurrences are indexed in one pass over the text.
+     */
+    protected Collection<String> textAnchors() {
+        return List.of();
+    }
+
+    /**
+     * Sets cache of text extracted from PDF files shared by all parsers.
+     */
+    static void setTextCache(PdfTextCache v) {
+        textCache = v;
+    }
+
     protected abstract List<Record> parsePdfText(TextFrame text);
 
-    protected abstract void parseRecord(String str, RecordBuilder rb);
+    /**
+     * Sets fields of the record from tokens of the record line but the
+     * transaction date.
+     */
+    protected abstract void parseRecord(LineTokenizer tokens, RecordBuilder rb);
 
     protected abstract String periodString(TextFrame text);
 
@@ -118,6 +172,10 @@ public abstract class AccountStatementPdf implements RecordsSupplier {
 
     private LocalDate beginPeriod;
     private LocalDate endPeriod;
+    private int pageJobs = 1;
+    private long maxMainMemoryBytes = -1;
+
+    private static volatile PdfTextCache textCache;
 
     private final static DateTimeFormatter MONTH_DAY_DATE_FORMAT = DateTimeFormatter.ofPattern(
             "MMM dd", Locale.US);
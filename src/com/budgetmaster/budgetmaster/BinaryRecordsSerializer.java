@@ -0,0 +1,176 @@
+package com.budgetmaster.budgetmaster;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+
+/**
+ * Saves records in binary format read by RecordsReaderBinary.
+ *
+ * File layout:
+ * <pre>
+ * header:     int MAGIC, int FORMAT_VERSION
+ * records:    record*
+ * dictionary: int count, string*
+ * footer:     long dictionary offset, int record count, int MAGIC
+ * </pre>
+ *
+ * All numbers are big-endian. Record fields in order:
+ * <pre>
+ * int       transaction date (epoch day or NULL_DATE)
+ * int       posting date (epoch day or NULL_DATE)
+ * string    id
+ * string    description
+ * byte      amount kind (AMOUNT_NULL, AMOUNT_LONG or AMOUNT_BIG)
+ *   int     amount scale
+ *   long    unscaled amount (AMOUNT_LONG)
+ *   bytes   unscaled amount two's-complement (AMOUNT_BIG)
+ * int       currency code (dictionary index)
+ * int       category (dictionary index)
+ * int       statement id (dictionary index)
+ * int       statement system id (dictionary index)
+ * int       tag count or -1 if no tags
+ * int*      tags (dictionary indices)
+ * </pre>
+ *
+ * Strings and bytes are int length followed by UTF-8 encoded characters or
+ * the given number of bytes. Null string is -1 length. Null dictionary
+ * index is -1.
+ */
+final class BinaryRecordsSerializer {
+
+    void saveToFile(Stream<Record> records, Path out) throws IOException {
+        try (var stream = Files.newOutputStream(out)) {
+            save(records, stream);
+        }
+    }
+
+    void saveToStream(Stream<Record> records, OutputStream out) throws
+            IOException {
+        save(records, out);
+    }
+
+    private void save(Stream<Record> records, OutputStream stream) throws
+            IOException {
+        final Dictionary dict = new Dictionary();
+        final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(stream));
+
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+
+        int count = 0;
+        for (Record record : (Iterable<Record>) records::iterator) {
+            writeRecord(out, record, dict);
+            count++;
+        }
+
+        final long dictOffset = out.size();
+        out.writeInt(dict.values.size());
+        for (String v : dict.values) {
+            writeString(out, v);
+        }
+
+        out.writeLong(dictOffset);
+        out.writeInt(count);
+        out.writeInt(MAGIC);
+        out.flush();
+    }
+
+    private static void writeRecord(DataOutputStream out, Record record,
+            Dictionary dict) throws IOException {
+        writeDate(out, record.getTransactionDate());
+        writeDate(out, record.getPostingDate());
+        writeString(out, record.getId());
+        writeString(out, record.getDescription());
+
+        final BigDecimal amount = record.getAmount();
+        if (amount == null) {
+            out.writeByte(AMOUNT_NULL);
+        } else if (amount.unscaledValue().bitLength() < Long.SIZE) {
+            out.writeByte(AMOUNT_LONG);
+            out.writeInt(amount.scale());
+            out.writeLong(amount.unscaledValue().longValue());
+        } else {
+            out.writeByte(AMOUNT_BIG);
+            out.writeInt(amount.scale());
+            writeBytes(out, amount.unscaledValue().toByteArray());
+        }
+
+        out.writeInt(dict.indexOf(record.getCurrencyCode()));
+        out.writeInt(dict.indexOf(record.getCategory()));
+
+        final Statement source = record.getSource();
+        if (source != null) {
+            out.writeInt(dict.indexOf(source.getId()));
+            out.writeInt(dict.indexOf(source.getSystemId()));
+        } else {
+            out.writeInt(-1);
+            out.writeInt(-1);
+        }
+
+        final String[] tags = record.getTags();
+        if (tags == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(tags.length);
+            for (String tag : tags) {
+                out.writeInt(dict.indexOf(tag));
+            }
+        }
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate v) throws
+            IOException {
+        out.writeInt(v == null ? NULL_DATE : Math.toIntExact(v.toEpochDay()));
+    }
+
+    private static void writeString(DataOutputStream out, String v) throws
+            IOException {
+        if (v == null) {
+            out.writeInt(-1);
+        } else {
+            writeBytes(out, v.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] v) throws
+            IOException {
+        out.writeInt(v.length);
+        out.write(v);
+    }
+
+    private final static class Dictionary {
+        int indexOf(String v) {
+            if (v == null) {
+                return -1;
+            }
+            return indices.computeIfAbsent(v, x -> {
+                values.add(x);
+                return values.size() - 1;
+            });
+        }
+
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+    }
+
+    final static int MAGIC = 0x424d5242;
+    final static int FORMAT_VERSION = 1;
+    final static int NULL_DATE = Integer.MIN_VALUE;
+    final static byte AMOUNT_NULL = 0;
+    final static byte AMOUNT_LONG = 1;
+    final static byte AMOUNT_BIG = 2;
+}
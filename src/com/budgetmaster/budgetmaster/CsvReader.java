@@ -1,17 +1,32 @@
 package com.budgetmaster.budgetmaster;
 
 import com.budgetmaster.budgetmaster.Functional.ThrowingBiFunction;
+import java.io.CharArrayReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import org.apache.commons.csv.CSVFormat;
@@ -24,40 +39,24 @@ public final class CsvReader<T> {
         setFailFast(true);
     }
 
+    /**
+     * Returns records of the given file. Records are read and converted as
+     * the stream is consumed. The stream must be closed to close the file.
+     * Header names are passed to the header names consumer before the
+     * method returns. With parallelism greater than one the file may be
+     * read in chunks before the method returns.
+     */
     public Stream<T> readCsv(Path file) throws IOException {
-        final Collection<T> result = new ArrayList<>();
-
-        BiConsumer<String, Exception> reportError = (msg, ex) -> {
-            try {
-                throw new CsvReaderException(String.format("Error %s record #%d",
-                        msg, result.size() + 1), ex);
-            } catch (RuntimeException ex2) {
-                if (failFast) {
-                    throw ex2;
-                }
-                ex.printStackTrace();
-            }
-        };
-
-        try (Reader in = Files.newBufferedReader(file)) {
-            CSVParser parser = csvFormat.parse(in);
-            if (headerNamesConsumer != null) {
-                headerNamesConsumer.accept(parser.getHeaderNames());
-            }
-            for (CSVRecord record : parser) {
-                try {
-                    result.add(conv.apply(record, reportError));
-                } catch (DateTimeParseException ex) {
-                    reportError.accept("parsing date value", ex);
-                } catch (CsvReaderException ex) {
-                    throw ex;
-                } catch (Exception ex) {
-                    reportError.accept("processing", ex);
-                }
+        final int jobs = parallelism != 0 ? parallelism
+                : Runtime.getRuntime().availableProcessors();
+        if (jobs > 1 && isChunkable()) {
+            final List<T> result = readChunks(file, jobs);
+            if (result != null) {
+                return result.stream();
             }
         }
 
-        return result.stream();
+        return stream(file, true);
     }
 
     public CsvReader<T> setFormat(CSVFormat v) {
@@ -87,19 +86,388 @@ public final class CsvReader<T> {
         return this;
     }
 
+    /**
+     * Sets the number of threads parsing a file. 0 is the number of
+     * processors. The default is 1, the file is parsed in the calling thread.
+     *
+     * With more than one thread, the file is memory-mapped and split into
+     * chunks at record boundaries. Chunks are parsed and converted in
+     * parallel, so the converter must be thread-safe. Records are returned
+     * in the file order. Errors are reported as if the file was read
+     * sequentially. Use getLineNumber() instead of
+     * CSVParser.getCurrentLineNumber() in the converter to get line numbers
+     * counted from the start of the file. CSVRecord.getRecordNumber() is
+     * counted from the start of the chunk. Files with formats using escape
+     * characters or comments and files smaller than two chunks are read
+     * sequentially.
+     */
+    public CsvReader<T> setParallelism(int v) {
+        if (v < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid parallelism: %d", v));
+        }
+        parallelism = v;
+        return this;
+    }
+
+    /**
+     * Sets the minimum size of a chunk in bytes.
+     */
+    CsvReader<T> setMinChunkSize(int v) {
+        if (v < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid chunk size: %d", v));
+        }
+        minChunkSize = v;
+        return this;
+    }
+
     public static String[] read(CSVRecord csvRecord) {
         return StreamSupport.stream(csvRecord.spliterator(), false).toArray(
                 String[]::new);
     }
 
+    /**
+     * Returns the current line number of the parser of the given record
+     * counted from the start of the file.
+     */
+    public static long getLineNumber(CSVRecord csvRecord) {
+        final CSVParser parser = csvRecord.getParser();
+        return parser.getCurrentLineNumber() + CHUNK_LINE_OFFSETS.getOrDefault(
+                parser, 0L);
+    }
+
+    private Stream<T> stream(Path file, boolean withHeaderNames) throws
+            IOException {
+        final Reader in = Files.newBufferedReader(file);
+        try {
+            CSVParser parser = csvFormat.parse(in);
+            if (withHeaderNames && headerNamesConsumer != null) {
+                headerNamesConsumer.accept(parser.getHeaderNames());
+            }
+            return StreamSupport.stream(new RecordSpliterator(parser, null),
+                    false).onClose(() -> {
+                        try {
+                            in.close();
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    });
+        } catch (IOException | RuntimeException ex) {
+            in.close();
+            throw ex;
+        }
+    }
+
+    private List<T> readSequentially(Path file) throws IOException {
+        try (Stream<T> records = stream(file, false)) {
+            return records.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Reads the file in chunks. Returns null if the file is not worth
+     * splitting.
+     */
+    private List<T> readChunks(Path file, int jobs) throws IOException {
+        final ByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(file)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        final List<Split> splits = split(bytes, Math.max(minChunkSize,
+                bytes.limit() / (jobs * CHUNKS_PER_JOB)));
+        if (splits.size() < 2) {
+            return null;
+        }
+
+        // The first chunk is parsed with the original format. Parsing of the
+        // header is done by the constructor of the parser.
+        final CSVParser firstParser = new CSVParser(decode(bytes,
+                splits.get(0)), csvFormat);
+        final boolean parseHeader = csvFormat.getHeader() != null
+                && csvFormat.getHeader().length == 0;
+        if (parseHeader && firstParser.getHeaderNames().isEmpty()) {
+            // The first chunk has only blank lines, the header is in one of
+            // the following chunks.
+            return null;
+        }
+        if (headerNamesConsumer != null) {
+            headerNamesConsumer.accept(firstParser.getHeaderNames());
+        }
+        CSVFormat format = csvFormat.withSkipHeaderRecord(false);
+        if (parseHeader) {
+            format = format.withHeader(firstParser.getHeaderNames().toArray(
+                    String[]::new));
+        }
+        final CSVFormat chunkFormat = format;
+
+        final ForkJoinPool pool = parallelism == 0 ? ForkJoinPool.commonPool()
+                : new ForkJoinPool(jobs);
+        final List<Future<Chunk>> futures = new ArrayList<>(splits.size());
+        try {
+            futures.add(pool.submit(() -> new Chunk().readAll(firstParser,
+                    0)));
+            for (Split split : splits.subList(1, splits.size())) {
+                futures.add(pool.submit(() -> new Chunk().readAll(
+                        new CSVParser(decode(bytes, split), chunkFormat),
+                        split.lineOffset)));
+            }
+
+            final List<Chunk> chunks = new ArrayList<>(futures.size());
+            long recordCount = 0;
+            for (Future<Chunk> future : futures) {
+                try {
+                    chunks.add(future.get());
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof CsvReaderException) {
+                        final CsvReaderException cause
+                                = (CsvReaderException) ex.getCause();
+                        throw new CsvReaderException(cause.what, recordCount
+                                + cause.recordIdx, cause.getCause());
+                    }
+                    // Failure to parse the file. Read it again to report the
+                    // error with the line number relative to the start of
+                    // the file.
+                    return readSequentially(file);
+                }
+                recordCount += chunks.get(chunks.size() - 1).recordCount;
+            }
+
+            final List<T> result = new ArrayList<>((int) recordCount);
+            for (Chunk chunk : chunks) {
+                chunk.errors.forEach(Exception::printStackTrace);
+                result.addAll(chunk.records);
+            }
+            return result;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(String.format(
+                    "Interrupted reading [%s] file", file));
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+            if (pool != ForkJoinPool.commonPool()) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private boolean isChunkable() {
+        return csvFormat.getEscapeCharacter() == null
+                && !csvFormat.isCommentMarkerSet()
+                && csvFormat.getDelimiter() < 0x80
+                && (csvFormat.getQuoteCharacter() == null
+                || csvFormat.getQuoteCharacter() < 0x80);
+    }
+
+    /**
+     * Splits the given bytes into chunks of at least the given size ending
+     * at record boundaries. Follows quoting rules of commons-csv lexer:
+     * quote character starts encapsulated token only at the start of a
+     * token, quote character inside of encapsulated token is escaped with
+     * another quote character. Counts line terminators like commons-csv
+     * does: "\r\n" is one terminator.
+     */
+    private List<Split> split(ByteBuffer bytes, int chunkSize) {
+        final byte delimiter = (byte) csvFormat.getDelimiter();
+        final int quote = csvFormat.getQuoteCharacter() == null ? -1
+                : csvFormat.getQuoteCharacter();
+        final boolean ignoreSurroundingSpaces
+                = csvFormat.getIgnoreSurroundingSpaces();
+
+        final List<Split> result = new ArrayList<>();
+        final int size = bytes.limit();
+        int state = TOKEN_START;
+        int begin = 0;
+        long lineCount = 0;
+        long beginLineCount = 0;
+        for (int i = 0; i != size; ++i) {
+            final byte b = bytes.get(i);
+            final boolean eol = b == '\n' || b == '\r';
+            if (eol && (b == '\r' || i == 0 || bytes.get(i - 1) != '\r')) {
+                lineCount++;
+            }
+
+            switch (state) {
+                case ENCAPSULATED:
+                    if (b == quote) {
+                        state = ENCAPSULATED_QUOTE;
+                    }
+                    continue;
+
+                case ENCAPSULATED_QUOTE:
+                    if (b == quote) {
+                        state = ENCAPSULATED;
+                        continue;
+                    }
+                    break;
+
+                case TOKEN_START:
+                    if (b == quote) {
+                        state = ENCAPSULATED;
+                        continue;
+                    }
+                    if (ignoreSurroundingSpaces && !eol && b != delimiter
+                            && Character.isWhitespace(b)) {
+                        continue;
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+
+            if (b == delimiter) {
+                state = TOKEN_START;
+            } else if (eol) {
+                state = TOKEN_START;
+                final boolean crlf = b == '\r' && i + 1 != size && bytes.get(
+                        i + 1) == '\n';
+                if (!crlf && i + 1 - begin >= chunkSize) {
+                    result.add(new Split(begin, i + 1, beginLineCount));
+                    begin = i + 1;
+                    beginLineCount = lineCount;
+                }
+            } else {
+                state = TOKEN;
+            }
+        }
+
+        if (begin != size) {
+            result.add(new Split(begin, size, beginLineCount));
+        }
+        return result;
+    }
+
+    private static Reader decode(ByteBuffer bytes, Split split) throws
+            IOException {
+        final CharBuffer chars = StandardCharsets.UTF_8.newDecoder().decode(
+                bytes.slice(split.begin, split.end - split.begin));
+        return new CharArrayReader(chars.array(), chars.arrayOffset()
+                + chars.position(), chars.remaining());
+    }
+
+    /**
+     * Converts records of a parser as they are consumed. Records failed to
+     * convert are skipped if not failing fast.
+     */
+    private final class RecordSpliterator extends
+            Spliterators.AbstractSpliterator<T> {
+        RecordSpliterator(CSVParser parser, List<Exception> deferredErrors) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.records = parser.iterator();
+            this.deferredErrors = deferredErrors;
+            this.reportError = this::reportError;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (records.hasNext()) {
+                final CSVRecord record = records.next();
+                recordCount++;
+                final T value;
+                try {
+                    value = conv.apply(record, reportError);
+                } catch (DateTimeParseException ex) {
+                    reportError("parsing date value", ex);
+                    continue;
+                } catch (CsvReaderException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    reportError("processing", ex);
+                    continue;
+                }
+                action.accept(value);
+                return true;
+            }
+            return false;
+        }
+
+        private void reportError(String what, Exception ex) {
+            if (failFast) {
+                throw new CsvReaderException(what, recordCount - 1, ex);
+            }
+            if (deferredErrors != null) {
+                deferredErrors.add(ex);
+            } else {
+                ex.printStackTrace();
+            }
+        }
+
+        private final Iterator<CSVRecord> records;
+        private final List<Exception> deferredErrors;
+        private final BiConsumer<String, Exception> reportError;
+        private long recordCount;
+    }
+
+    /**
+     * Converted records of a chunk of a file.
+     */
+    private final class Chunk {
+        Chunk readAll(CSVParser parser, long lineOffset) {
+            if (lineOffset != 0) {
+                CHUNK_LINE_OFFSETS.put(parser, lineOffset);
+            }
+            try {
+                final RecordSpliterator spliterator = new RecordSpliterator(
+                        parser, errors);
+                spliterator.forEachRemaining(records::add);
+                recordCount = spliterator.recordCount;
+            } finally {
+                CHUNK_LINE_OFFSETS.remove(parser);
+            }
+            return this;
+        }
+
+        final List<T> records = new ArrayList<>();
+        final List<Exception> errors = new ArrayList<>();
+        long recordCount;
+    }
+
+    private final static class Split {
+        Split(int begin, int end, long lineOffset) {
+            this.begin = begin;
+            this.end = end;
+            this.lineOffset = lineOffset;
+        }
+
+        final int begin;
+        final int end;
+        final long lineOffset;
+    }
+
     private CSVFormat csvFormat;
     private BiFunction<CSVRecord, BiConsumer<String, Exception>, T> conv;
     private Consumer<List<String>> headerNamesConsumer;
     private boolean failFast;
+    private int parallelism = 1;
+    private int minChunkSize = MIN_CHUNK_SIZE;
 
     private static class CsvReaderException extends RuntimeException {
-        public CsvReaderException(String msg, Throwable t) {
-            super(msg, t);
+        public CsvReaderException(String what, long recordIdx, Throwable t) {
+            super(String.format("Error %s record #%d", what, recordIdx + 1), t);
+            this.what = what;
+            this.recordIdx = recordIdx;
         }
+
+        final String what;
+        final long recordIdx;
     }
+
+    // Line offsets of parsers of chunks following the first one.
+    private final static Map<CSVParser, Long> CHUNK_LINE_OFFSETS
+            = new ConcurrentHashMap<>();
+
+    private final static int CHUNKS_PER_JOB = 4;
+
+    private final static int MIN_CHUNK_SIZE = 1 << 20;
+
+    private final static int TOKEN_START = 0;
+    private final static int TOKEN = 1;
+    private final static int ENCAPSULATED = 2;
+    private final static int ENCAPSULATED_QUOTE = 3;
 }
@@ -17,8 +17,7 @@ import org.apache.commons.csv.CSVPrinter;
 
 final class CsvRecordsSerializer {
     CsvRecordsSerializer() {
-        // Date format allowing proper sorting of dates as strings.
-        setDateFormat("yyyy/MM/dd");
+        setDateFormat(DATE_FORMAT);
         setRecordFormat(Field.values());
     }
 
@@ -149,4 +148,7 @@ final class CsvRecordsSerializer {
 
     private DateTimeFormatter dateFormat;
     private Map<Field, Integer> recordFormatMap;
+
+    // Date format allowing proper sorting of dates as strings.
+    final static String DATE_FORMAT = "yyyy/MM/dd";
 }
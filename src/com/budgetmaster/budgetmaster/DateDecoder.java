@@ -0,0 +1,287 @@
+package com.budgetmaster.budgetmaster;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.MonthDay;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+
+/**
+ * Decodes dates of statement records.
+ *
+ * Patterns made of "yyyy", "yy", "MM" and "dd" fields and single character
+ * literals, e.g. "yyyy/MM/dd", "MM/dd/yy" or "MM/dd", are decoded from the
+ * digits directly. Everything else, including text the fast path doesn't
+ * accept, is parsed with the formatter, so results and errors are those of
+ * the formatter.
+ *
+ * Decoded dates are memoized by the text in a small table. Statements have a
+ * few dozen distinct dates, and records with the same date are often
+ * adjacent. The table is shared by all threads without locking: entries
+ * are immutable and a lost update only costs a miss.
+ */
+public final class DateDecoder {
+
+    public static DateDecoder ofPattern(String pattern) {
+        return new DateDecoder(DateTimeFormatter.ofPattern(pattern, Locale.US),
+                compileLayout(pattern));
+    }
+
+    /**
+     * Creates decoder parsing text with the given formatter. Only memoizes
+     * the results.
+     */
+    public DateDecoder(DateTimeFormatter formatter) {
+        this(formatter, null);
+    }
+
+    private DateDecoder(DateTimeFormatter formatter, List<Field> layout) {
+        Objects.requireNonNull(formatter);
+        this.formatter = formatter;
+        this.layout = layout;
+        int length = 0;
+        if (layout != null) {
+            for (Field field : layout) {
+                length += field.width();
+            }
+        }
+        this.layoutLength = length;
+        this.dates = new Entry[MEMO_SIZE];
+        this.monthDays = new Entry[MEMO_SIZE];
+    }
+
+    public DateTimeFormatter getFormatter() {
+        return formatter;
+    }
+
+    /**
+     * @throws DateTimeParseException if the text is not a date
+     */
+    public LocalDate decode(CharSequence text) {
+        final int hash = hashCode(text);
+        final int slot = hash & (MEMO_SIZE - 1);
+        final Entry entry = dates[slot];
+        if (entry != null && entry.matches(text, hash)) {
+            return (LocalDate) entry.value;
+        }
+
+        LocalDate result = decodeDigits(text);
+        if (result == null) {
+            result = LocalDate.parse(text, formatter);
+        }
+        dates[slot] = new Entry(text.toString(), hash, result);
+        return result;
+    }
+
+    /**
+     * @throws DateTimeParseException if the text is not a month day
+     */
+    public MonthDay decodeMonthDay(CharSequence text) {
+        final int hash = hashCode(text);
+        final int slot = hash & (MEMO_SIZE - 1);
+        final Entry entry = monthDays[slot];
+        if (entry != null && entry.matches(text, hash)) {
+            return (MonthDay) entry.value;
+        }
+
+        MonthDay result = decodeMonthDayDigits(text);
+        if (result == null) {
+            result = MonthDay.parse(text, formatter);
+        }
+        monthDays[slot] = new Entry(text.toString(), hash, result);
+        return result;
+    }
+
+    /**
+     * Returns date decoded from the digits or null if the layout has no year
+     * or the text doesn't fit the layout. Day of month past the end of the
+     * month is adjusted to the last day of the month like
+     * ResolverStyle.SMART does.
+     */
+    private LocalDate decodeDigits(CharSequence text) {
+        final int[] fields = decodeFields(text);
+        if (fields == null || fields[YEAR] < 0) {
+            return null;
+        }
+        final Month month = Month.of(fields[MONTH]);
+        return LocalDate.of(fields[YEAR], month, Math.min(fields[DAY],
+                month.length(Year.isLeap(fields[YEAR]))));
+    }
+
+    /**
+     * Returns month day decoded from the digits or null if the layout has a
+     * year or the text doesn't fit the layout or the month has no such day.
+     */
+    private MonthDay decodeMonthDayDigits(CharSequence text) {
+        final int[] fields = decodeFields(text);
+        if (fields == null || fields[YEAR] >= 0) {
+            return null;
+        }
+        final Month month = Month.of(fields[MONTH]);
+        if (fields[DAY] > month.maxLength()) {
+            return null;
+        }
+        return MonthDay.of(month, fields[DAY]);
+    }
+
+    private int[] decodeFields(CharSequence text) {
+        if (layout == null || text.length() != layoutLength) {
+            return null;
+        }
+
+        final int[] fields = {-1, -1, -1};
+        int pos = 0;
+        for (Field field : layout) {
+            if (field.literal != 0) {
+                if (text.charAt(pos) != field.literal) {
+                    return null;
+                }
+            } else {
+                int value = 0;
+                for (int i = pos; i != pos + field.digits; ++i) {
+                    final char c = text.charAt(i);
+                    if (c < '0' || c > '9') {
+                        return null;
+                    }
+                    value = value * 10 + (c - '0');
+                }
+                if (field.type == YEAR && field.digits == 2) {
+                    value += REDUCED_YEAR_BASE;
+                }
+                fields[field.type] = value;
+            }
+            pos += field.width();
+        }
+
+        if (fields[YEAR] == 0 || fields[MONTH] < 1 || fields[MONTH] > 12
+                || fields[DAY] < 1 || fields[DAY] > 31) {
+            // Year 0 is not a valid year of era.
+            return null;
+        }
+        return fields;
+    }
+
+    /**
+     * Returns fields of the pattern or null if the pattern has letters other
+     * than "yyyy", "yy", "MM" and "dd" or lacks month or day.
+     */
+    private static List<Field> compileLayout(String pattern) {
+        final List<Field> result = new ArrayList<>();
+        final boolean[] seen = new boolean[3];
+        int pos = 0;
+        while (pos != pattern.length()) {
+            final char c = pattern.charAt(pos);
+            int end = pos;
+            while (end != pattern.length() && pattern.charAt(end) == c) {
+                end++;
+            }
+            final int count = end - pos;
+
+            final int type;
+            if (c == 'y' && (count == 4 || count == 2)) {
+                type = YEAR;
+            } else if (c == 'M' && count == 2) {
+                type = MONTH;
+            } else if (c == 'd' && count == 2) {
+                type = DAY;
+            } else if (!Character.isLetter(c) && RESERVED_CHARS.indexOf(c) < 0
+                    && count == 1) {
+                result.add(new Field(c));
+                pos = end;
+                continue;
+            } else {
+                return null;
+            }
+
+            if (seen[type]) {
+                return null;
+            }
+            seen[type] = true;
+            result.add(new Field(type, count));
+            pos = end;
+        }
+
+        if (!seen[MONTH] || !seen[DAY]) {
+            return null;
+        }
+        return result;
+    }
+
+    private static int hashCode(CharSequence text) {
+        int result = 0;
+        for (int i = 0, n = text.length(); i != n; ++i) {
+            result = 31 * result + text.charAt(i);
+        }
+        return result ^ (result >>> 16);
+    }
+
+    private final static class Field {
+        Field(int type, int digits) {
+            this.type = type;
+            this.digits = digits;
+            this.literal = 0;
+        }
+
+        Field(char literal) {
+            this.type = -1;
+            this.digits = 0;
+            this.literal = literal;
+        }
+
+        int width() {
+            return literal != 0 ? 1 : digits;
+        }
+
+        final int type;
+        final int digits;
+        final char literal;
+    }
+
+    private final static class Entry {
+        Entry(String text, int hash, Object value) {
+            this.text = text;
+            this.hash = hash;
+            this.value = value;
+        }
+
+        boolean matches(CharSequence v, int vHash) {
+            if (hash != vHash || text.length() != v.length()) {
+                return false;
+            }
+            for (int i = 0, n = text.length(); i != n; ++i) {
+                if (text.charAt(i) != v.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        final String text;
+        final int hash;
+        final Object value;
+    }
+
+    private final DateTimeFormatter formatter;
+    private final List<Field> layout;
+    private final int layoutLength;
+    private final Entry[] dates;
+    private final Entry[] monthDays;
+
+    private final static int YEAR = 0;
+    private final static int MONTH = 1;
+    private final static int DAY = 2;
+
+    // "yy" is parsed as a year of 2000-2099 range by DateTimeFormatter.
+    private final static int REDUCED_YEAR_BASE = 2000;
+
+    private final static int MEMO_SIZE = 64;
+
+    // Pattern characters DateTimeFormatter doesn't treat as literals.
+    private final static String RESERVED_CHARS = "'[]{}#";
+}
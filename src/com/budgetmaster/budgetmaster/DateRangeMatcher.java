@@ -16,6 +16,8 @@ class DateRangeMatcher implements Predicate<Record> {
         this.end = end;
         this.dateAccessor = dateAccessor;
         this.inclusive = inclusive;
+        this.beginDay = begin.toEpochDay();
+        this.endDay = end.toEpochDay();
 
         if (begin.isAfter(end)) {
             throw new IllegalArgumentException(String.format(
@@ -32,8 +34,20 @@ class DateRangeMatcher implements Predicate<Record> {
         return after && before;
     }
 
+    /**
+     * Tests date with the given epoch day.
+     */
+    boolean test(long epochDay) {
+        boolean after = epochDay > beginDay || (inclusive && epochDay == beginDay);
+        boolean before = epochDay < endDay || (inclusive && epochDay == endDay);
+
+        return after && before;
+    }
+
     private final boolean inclusive;
     private final LocalDate begin;
     private final LocalDate end;
+    private final long beginDay;
+    private final long endDay;
     private final Function<Record, LocalDate> dateAccessor;
 }
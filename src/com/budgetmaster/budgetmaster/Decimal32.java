@@ -0,0 +1,161 @@
+package com.budgetmaster.budgetmaster;
+
+/**
+ * Fixed-point arithmetic producing the same values as BigDecimal operations
+ * with MathContext.DECIMAL32 rounding.
+ *
+ * Fixed-point values are longs with implied scale of SCALE decimal digits.
+ * Operations return INEXACT if the rounded result can not be represented
+ * with this scale. Callers are expected to fall back to BigDecimal math in
+ * this case.
+ */
+final class Decimal32 {
+
+    /**
+     * Returns the given unscaled value with the given scale rounded to
+     * PRECISION significant digits as a fixed-point value.
+     */
+    static long round(long unscaled, int scale) {
+        if (unscaled == INEXACT) {
+            return INEXACT;
+        }
+
+        final int drop = digits(unscaled) - PRECISION;
+        if (drop > 0) {
+            return toFixed(roundDigits(unscaled, drop), scale - drop);
+        }
+        return toFixed(unscaled, scale);
+    }
+
+    /**
+     * Returns the given integer rounded to PRECISION significant digits.
+     */
+    static long roundInteger(long v) {
+        final int drop = digits(v) - PRECISION;
+        if (drop > 0) {
+            return roundDigits(v, drop) * POW10[drop];
+        }
+        return v;
+    }
+
+    /**
+     * Returns the quotient of the given integers rounded to PRECISION
+     * significant digits as a fixed-point value.
+     */
+    static long divide(long dividend, long divisor) {
+        if (divisor == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+
+        final long n = Math.abs(dividend);
+        final long d = Math.abs(divisor);
+        if (d > MAX_DIVISOR) {
+            return INEXACT;
+        }
+
+        long q = n / d;
+        long r = n % d;
+        if (digits(q) > PRECISION) {
+            return INEXACT;
+        }
+
+        int scale = 0;
+        while (r != 0 && digits(q) < PRECISION) {
+            r *= 10;
+            q = q * 10 + r / d;
+            r %= d;
+            scale++;
+        }
+
+        if (r != 0 && (r * 2 > d || (r * 2 == d && (q & 1) != 0))) {
+            q++;
+        }
+
+        return toFixed((dividend < 0) != (divisor < 0) ? -q : q, scale);
+    }
+
+    /**
+     * Returns the difference of the given fixed-point values rounded to
+     * PRECISION significant digits.
+     */
+    static long subtract(long a, long b) {
+        if (a == INEXACT || b == INEXACT) {
+            return INEXACT;
+        }
+        return round(Math.subtractExact(a, b), SCALE);
+    }
+
+    /**
+     * Returns the product of the given fixed-point value and the given
+     * decimal value with unscaled value `factor` and scale `factorScale`
+     * rounded to PRECISION significant digits.
+     */
+    static long multiply(long v, long factor, int factorScale) {
+        if (v == INEXACT) {
+            return INEXACT;
+        }
+        if (factor != 0 && Math.abs(v) > Long.MAX_VALUE / Math.abs(factor)) {
+            return INEXACT;
+        }
+        return round(v * factor, SCALE + factorScale);
+    }
+
+    /**
+     * Returns the integer part of the given fixed-point value.
+     */
+    static int intValue(long v) {
+        return (int) (v / ONE);
+    }
+
+    private static long toFixed(long unscaled, int scale) {
+        final int shift = SCALE - scale;
+        if (unscaled == 0) {
+            return 0;
+        }
+        if (shift >= 0) {
+            if (shift >= POW10.length
+                    || Math.abs(unscaled) > Long.MAX_VALUE / POW10[shift]) {
+                return INEXACT;
+            }
+            return unscaled * POW10[shift];
+        }
+        if (-shift >= POW10.length || unscaled % POW10[-shift] != 0) {
+            return INEXACT;
+        }
+        return unscaled / POW10[-shift];
+    }
+
+    private static long roundDigits(long v, int drop) {
+        final long p = POW10[drop];
+        long q = v / p;
+        final long r = Math.abs(v % p);
+        if (r * 2 > p || (r * 2 == p && (q & 1) != 0)) {
+            q += (v < 0 ? -1 : 1);
+        }
+        return q;
+    }
+
+    private static int digits(long v) {
+        final long a = Math.abs(v);
+        int n = 0;
+        while (n != POW10.length && a >= POW10[n]) {
+            n++;
+        }
+        return n;
+    }
+
+    final static int PRECISION = 7;
+    final static int SCALE = 15;
+    final static long ONE = 1_000_000_000_000_000L;
+    final static long INEXACT = Long.MIN_VALUE;
+
+    private final static long MAX_DIVISOR = Long.MAX_VALUE / 20;
+
+    private final static long[] POW10 = new long[19];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i != POW10.length; ++i) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+}
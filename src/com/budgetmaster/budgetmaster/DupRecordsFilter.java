@@ -1,16 +1,98 @@
-package com.budgetmaster.budgetmaster;
-
-import java.util.function.Function;
-import java.util.function.UnaryOperator;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-
-final class DupRecordsFilter implements UnaryOperator<Stream<Record>> {
-
-    @Override
-    public Stream<Record> apply(Stream<Record> records) {
-        return records.collect(Collectors.toMap(Record::getGlobalId,
-                Function.identity(), (existing, replacement) -> replacement)).values().stream();
-    }
-}
+package com.budgetmaster.budgetmaster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+
+/**
+ * Keeps the last of records with the same global ID. Records are output in
+ * the iteration order of a HashMap keyed by global IDs.
+ */
+final class DupRecordsFilter implements UnaryOperator<Stream<Record>> {
+
+    @Override
+    public Stream<Record> apply(Stream<Record> records) {
+        return RecordBatch.filter(records, this::filterRows);
+    }
+
+    /**
+     * Global IDs are compared as pairs of statement system ID codes and
+     * record IDs without formatting them. Global IDs of the kept rows are
+     * formatted once to order the rows.
+     */
+    int[] filterRows(RecordBatch batch, int[] rows) {
+        final RecordBatch.StringColumn systemIds
+                = batch.getStatementSystemIds();
+        final List<Map<String, Integer>> slotsBySystemId = new ArrayList<>(
+                Collections.nCopies(systemIds.cardinality() + 1, null));
+        final int[] result = new int[rows.length];
+        final int[] lastPositions = new int[rows.length];
+        int count = 0;
+        boolean lastRowIsDup = false;
+        for (int i = 0; i != rows.length; ++i) {
+            final int row = rows[i];
+            int systemId = systemIds.code(row);
+            if (systemId == RecordBatch.NULL_CODE) {
+                // Records without statement go to the last slot.
+                systemId = slotsBySystemId.size() - 1;
+            }
+
+            Map<String, Integer> statementSlots = slotsBySystemId.get(systemId);
+            if (statementSlots == null) {
+                statementSlots = new HashMap<>();
+                slotsBySystemId.set(systemId, statementSlots);
+            }
+
+            final Integer slot = statementSlots.putIfAbsent(batch.getId(row),
+                    count);
+            lastRowIsDup = slot != null;
+            if (slot == null) {
+                lastPositions[count] = i;
+                result[count++] = row;
+            } else {
+                lastPositions[slot] = i;
+                result[slot] = row;
+            }
+        }
+
+        return toHashMapOrder(batch, result, lastPositions, count,
+                lastRowIsDup);
+    }
+
+    /**
+     * Orders the given slots of kept rows like the values of
+     * Collectors.toMap() of global IDs of all rows are ordered. Slots are in
+     * the order of the first rows of their global IDs. The map is rebuilt by
+     * merging global IDs of the slots in this order. Merges of global IDs
+     * already in the map don't change the map, except that a merge resizes
+     * the table if a previous merge filled it up. The last merge of a
+     * duplicate row is repeated for that reason.
+     */
+    private static int[] toHashMapOrder(RecordBatch batch, int[] slotRows,
+            int[] lastPositions, int slotCount, boolean lastRowIsDup) {
+        final Map<String, Integer> slots = new HashMap<>();
+        String globalId = null;
+        for (int slot = 0; slot != slotCount; ++slot) {
+            globalId = batch.get(slotRows[slot]).getGlobalId();
+            // Formatted global IDs of different statements may be equal.
+            slots.merge(globalId, slot, (existing, replacement)
+                    -> lastPositions[existing] > lastPositions[replacement]
+                    ? existing : replacement);
+        }
+        if (lastRowIsDup) {
+            slots.merge(globalId, 0, (existing, replacement) -> existing);
+        }
+
+        final int[] result = new int[slots.size()];
+        int count = 0;
+        for (int slot : slots.values()) {
+            result[count++] = slotRows[slot];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,381 @@
+package com.budgetmaster.budgetmaster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * State of incremental runs persisted in a directory.
+ *
+ * For every statement file the state keeps the number of records harvested
+ * from the file, records the leading stateless passes output for these
+ * records and records every of these passes discarded. They are saved in a
+ * binary records file per statement file. The manifest file lists statement
+ * files with their sizes, modification times, content digests and the
+ * number of records in every section of their records files.
+ *
+ * The state also keeps records output by the last run and records discarded
+ * by the passes following the leading stateless passes.
+ *
+ * The state is bound to the digest of the configuration. Loading the state
+ * with a different digest yields an empty state.
+ */
+final class IncrementalState {
+
+    final static class StatementRecords {
+        StatementRecords(int harvestedCount, List<Record> records,
+                List<List<Record>> discardedRecords) {
+            this.harvestedCount = harvestedCount;
+            this.records = records;
+            this.discardedRecords = discardedRecords;
+        }
+
+        int getHarvestedCount() {
+            return harvestedCount;
+        }
+
+        List<Record> getRecords() {
+            return records;
+        }
+
+        /**
+         * Returns records discarded by every pass.
+         */
+        List<List<Record>> getDiscardedRecords() {
+            return discardedRecords;
+        }
+
+        private final int harvestedCount;
+        private final List<Record> records;
+        private final List<List<Record>> discardedRecords;
+    }
+
+    static IncrementalState load(Path dir, String configDigest) throws
+            IOException {
+        IncrementalState state = new IncrementalState(Files.createDirectories(
+                dir), configDigest);
+        try {
+            state.readManifest();
+        } catch (NoSuchFileException ex) {
+            // No state.
+        } catch (IOException ex) {
+            LOGGER.warning(String.format(
+                    "Failed to read [%s] incremental state manifest file: %s",
+                    state.manifestFile, ex));
+            state.entries.clear();
+            state.output = null;
+        }
+        return state;
+    }
+
+    /**
+     * Returns saved records of the given statement file or null if the file
+     * was not saved or changed since it was saved.
+     */
+    StatementRecords load(Path file) throws IOException {
+        final String key = file.toString();
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        final BasicFileAttributes attrs = Files.readAttributes(file,
+                BasicFileAttributes.class);
+        if (attrs.size() != entry.size || attrs.lastModifiedTime().toMillis()
+                != entry.lastModified) {
+            final String digest = StatementCache.contentDigest(file);
+            contentDigests.put(key, digest);
+            if (!digest.equals(entry.contentDigest)) {
+                return null;
+            }
+            entry.size = attrs.size();
+            entry.lastModified = attrs.lastModifiedTime().toMillis();
+        }
+
+        final List<Record> records;
+        try {
+            records = readRecords(dir.resolve(entry.recordsFileName));
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.warning(String.format(
+                    "Failed to read [%s] incremental state file of [%s] input file: %s",
+                    entry.recordsFileName, file, ex));
+            return null;
+        }
+
+        if (records.size() != entry.sectionSizes.stream().mapToInt(
+                Integer::intValue).sum()) {
+            return null;
+        }
+
+        loadedEntries.add(key);
+        final List<List<Record>> sections = split(records, entry.sectionSizes);
+        return new StatementRecords(entry.harvestedCount, sections.get(0),
+                sections.subList(1, sections.size()));
+    }
+
+    void save(Path file, StatementRecords v) throws IOException {
+        final String key = file.toString();
+        final BasicFileAttributes attrs = Files.readAttributes(file,
+                BasicFileAttributes.class);
+
+        String digest = contentDigests.get(key);
+        if (digest == null) {
+            digest = StatementCache.contentDigest(file);
+        }
+
+        final Entry entry = new Entry();
+        entry.size = attrs.size();
+        entry.lastModified = attrs.lastModifiedTime().toMillis();
+        entry.contentDigest = digest;
+        entry.harvestedCount = v.getHarvestedCount();
+        entry.recordsFileName = String.format("%s.brec",
+                StatementCache.toHexString(StatementCache.newMessageDigest()
+                        .digest(key.getBytes(StandardCharsets.UTF_8))));
+        entry.sectionSizes = new ArrayList<>();
+        entry.sectionSizes.add(v.getRecords().size());
+        v.getDiscardedRecords().forEach(l -> entry.sectionSizes.add(l.size()));
+
+        writeRecords(dir.resolve(entry.recordsFileName), Stream.concat(
+                Stream.of(v.getRecords()), v.getDiscardedRecords().stream())
+                .flatMap(List::stream));
+
+        entries.put(key, entry);
+        modified = true;
+    }
+
+    /**
+     * Returns records output by the last run and records discarded by
+     * passes following the leading stateless passes if no statement file
+     * changed since the last run. Returns null otherwise.
+     */
+    StatementRecords loadOutput(Collection<Path> files) {
+        if (output == null || modified || !loadedEntries.equals(files.stream()
+                .map(Path::toString).collect(Collectors.toSet()))
+                || loadedEntries.size() != entries.size()) {
+            return null;
+        }
+
+        try {
+            final List<Record> records = readRecords(dir.resolve(
+                    OUTPUT_FILE_NAME));
+            if (records.size() != output.stream().mapToInt(Integer::intValue)
+                    .sum()) {
+                return null;
+            }
+            final List<List<Record>> sections = split(records, output);
+            return new StatementRecords(0, sections.get(0), sections.subList(1,
+                    sections.size()));
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.warning(String.format(
+                    "Failed to read [%s] incremental state output file: %s",
+                    OUTPUT_FILE_NAME, ex));
+            return null;
+        }
+    }
+
+    void saveOutput(List<Record> records, List<Record> discardedRecords)
+            throws IOException {
+        writeRecords(dir.resolve(OUTPUT_FILE_NAME), Stream.concat(
+                records.stream(), discardedRecords.stream()));
+        output = List.of(records.size(), discardedRecords.size());
+    }
+
+    /**
+     * Saves the manifest. Forgets statement files not from the given
+     * collection and deletes their records files.
+     */
+    void commit(Collection<Path> files) throws IOException {
+        final Set<String> keep = files.stream().map(Path::toString).collect(
+                Collectors.toSet());
+        for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet()
+                .iterator(); it.hasNext();) {
+            final Map.Entry<String, Entry> e = it.next();
+            if (!keep.contains(e.getKey())) {
+                Files.deleteIfExists(dir.resolve(e.getValue().recordsFileName));
+                it.remove();
+            }
+        }
+
+        writeAtomically(manifestFile, path -> {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(path)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(configDigest);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    e.getValue().write(out);
+                }
+                out.writeBoolean(output != null);
+                if (output != null) {
+                    writeSizes(out, output);
+                }
+            }
+        });
+    }
+
+    private IncrementalState(Path dir, String configDigest) {
+        this.dir = dir;
+        this.configDigest = configDigest;
+        this.manifestFile = dir.resolve(MANIFEST_FILE_NAME);
+        this.entries = new LinkedHashMap<>();
+        this.contentDigests = new HashMap<>();
+        this.loadedEntries = new HashSet<>();
+    }
+
+    private void readManifest() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(manifestFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported format");
+            }
+
+            if (!in.readUTF().equals(configDigest)) {
+                LOGGER.info(String.format(
+                        "Configuration changed. Ignore [%s] incremental state",
+                        dir));
+                return;
+            }
+
+            final int count = in.readInt();
+            for (int i = 0; i != count; ++i) {
+                entries.put(in.readUTF(), Entry.read(in));
+            }
+            if (in.readBoolean()) {
+                output = readSizes(in);
+            }
+        }
+    }
+
+    private static List<List<Record>> split(List<Record> records,
+            List<Integer> sizes) {
+        final List<List<Record>> result = new ArrayList<>();
+        int from = 0;
+        for (int size : sizes) {
+            result.add(records.subList(from, from + size));
+            from += size;
+        }
+        return result;
+    }
+
+    private List<Record> readRecords(Path file) throws IOException {
+        try (Stream<Record> records = new RecordsReaderBinary().read(file)) {
+            return records.collect(Collectors.toList());
+        }
+    }
+
+    private void writeRecords(Path file, Stream<Record> records) throws
+            IOException {
+        writeAtomically(file, path -> new BinaryRecordsSerializer().saveToFile(
+                records, path));
+    }
+
+    private void writeAtomically(Path file,
+            Functional.ThrowingConsumer<Path> writer) throws IOException {
+        final Path tmpFile = Files.createTempFile(dir, null, null);
+        try {
+            try {
+                writer.accept(tmpFile);
+            } catch (IOException | RuntimeException ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new RuntimeException(ex);
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    private static void writeSizes(DataOutputStream out, List<Integer> v)
+            throws IOException {
+        out.writeInt(v.size());
+        for (int size : v) {
+            out.writeInt(size);
+        }
+    }
+
+    private static List<Integer> readSizes(DataInputStream in) throws
+            IOException {
+        final int count = in.readInt();
+        final List<Integer> result = new ArrayList<>(count);
+        for (int i = 0; i != count; ++i) {
+            result.add(in.readInt());
+        }
+        return result;
+    }
+
+    private final static class Entry {
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(size);
+            out.writeLong(lastModified);
+            out.writeUTF(contentDigest);
+            out.writeUTF(recordsFileName);
+            out.writeInt(harvestedCount);
+            writeSizes(out, sectionSizes);
+        }
+
+        static Entry read(DataInputStream in) throws IOException {
+            Entry entry = new Entry();
+            entry.size = in.readLong();
+            entry.lastModified = in.readLong();
+            entry.contentDigest = in.readUTF();
+            entry.recordsFileName = in.readUTF();
+            entry.harvestedCount = in.readInt();
+            entry.sectionSizes = readSizes(in);
+            return entry;
+        }
+
+        long size;
+        long lastModified;
+        String contentDigest;
+        String recordsFileName;
+        int harvestedCount;
+        // Sizes of the output records section and of discarded records
+        // sections of the records file.
+        List<Integer> sectionSizes;
+    }
+
+    private final Path dir;
+    private final String configDigest;
+    private final Path manifestFile;
+    private final Map<String, Entry> entries;
+    private final Map<String, String> contentDigests;
+    private final Set<String> loadedEntries;
+    // Sizes of sections of the output records file.
+    private List<Integer> output;
+    private boolean modified;
+
+    private final static String MANIFEST_FILE_NAME = "manifest";
+    private final static String OUTPUT_FILE_NAME = "output.brec";
+
+    private final static int MAGIC = 0x424d4953;
+    private final static int FORMAT_VERSION = 1;
+
+    private static final Logger LOGGER = Logger.getLogger(
+            MethodHandles.lookup().lookupClass().getName());
+}
@@ -0,0 +1,192 @@
+package com.budgetmaster.budgetmaster;
+
+import java.math.BigDecimal;
+import java.nio.CharBuffer;
+import java.time.Month;
+import java.time.MonthDay;
+import java.util.Arrays;
+import java.util.Objects;
+
+
+/**
+ * Splits lines of statement text into tokens separated by white space.
+ *
+ * Tokens are kept as offsets into the tokenized character sequences and are
+ * returned as views, the text is not copied. White space is what "\\s"
+ * regular expression matches. Instance is reusable: reset() discards tokens
+ * of the previous line without releasing the storage.
+ */
+public final class LineTokenizer {
+    public LineTokenizer() {
+        sources = new CharSequence[INITIAL_CAPACITY];
+        begins = new int[INITIAL_CAPACITY];
+        ends = new int[INITIAL_CAPACITY];
+    }
+
+    public LineTokenizer reset(CharSequence line) {
+        Arrays.fill(sources, 0, size, null);
+        size = 0;
+        return insert(0, line);
+    }
+
+    /**
+     * Inserts tokens of the given text before the token with the given index.
+     */
+    public LineTokenizer insert(int idx, CharSequence text) {
+        Objects.requireNonNull(text);
+        Objects.checkIndex(idx, size + 1);
+
+        final int tailSize = size - idx;
+        CharSequence[] tailSources = null;
+        int[] tailBegins = null;
+        int[] tailEnds = null;
+        if (tailSize != 0) {
+            tailSources = Arrays.copyOfRange(sources, idx, size);
+            tailBegins = Arrays.copyOfRange(begins, idx, size);
+            tailEnds = Arrays.copyOfRange(ends, idx, size);
+        }
+        size = idx;
+
+        final int length = text.length();
+        int pos = 0;
+        while (true) {
+            while (pos != length && isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            if (pos == length) {
+                break;
+            }
+            final int begin = pos;
+            while (pos != length && !isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            add(text, begin, pos);
+        }
+
+        for (int i = 0; i != tailSize; ++i) {
+            add(tailSources[i], tailBegins[i], tailEnds[i]);
+        }
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns view of the token with the given index. Doesn't copy the text.
+     */
+    public CharSequence token(int idx) {
+        Objects.checkIndex(idx, size);
+        return CharBuffer.wrap(sources[idx], begins[idx], ends[idx]);
+    }
+
+    /**
+     * Returns tokens in [from, to) range joined with single spaces.
+     */
+    public String join(int from, int to) {
+        Objects.checkFromToIndex(from, to, size);
+        final StringBuilder sb = new StringBuilder();
+        for (int i = from; i != to; ++i) {
+            if (i != from) {
+                sb.append(' ');
+            }
+            sb.append(sources[i], begins[i], ends[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns amount of the token with the given index parsed with
+     * MonetaryAmount. Doesn't copy the text.
+     */
+    public BigDecimal parseAmount(int idx) {
+        Objects.checkIndex(idx, size);
+        return MonetaryAmount.of(sources[idx], begins[idx], ends[idx])
+                .getAmount();
+    }
+
+    /**
+     * Parses "MMMdd" month day with English month abbreviation in any case,
+     * e.g. "DEC31". Returns null if the text is not a valid month day in this
+     * format.
+     */
+    public static MonthDay parseAbbreviatedMonthDay(CharSequence str) {
+        if (str.length() != 5) {
+            return null;
+        }
+        for (Month month : MONTHS) {
+            final String abbr = MONTH_ABBREVIATIONS[month.ordinal()];
+            if (Character.toUpperCase(str.charAt(0)) == abbr.charAt(0)
+                    && Character.toUpperCase(str.charAt(1)) == abbr.charAt(1)
+                    && Character.toUpperCase(str.charAt(2)) == abbr.charAt(2)) {
+                return monthDay(month, parseTwoDigits(str, 3));
+            }
+        }
+        return null;
+    }
+
+    private static MonthDay monthDay(Month month, int day) {
+        if (day < 1 || day > month.maxLength()) {
+            return null;
+        }
+        return MonthDay.of(month, day);
+    }
+
+    private static int parseTwoDigits(CharSequence str, int idx) {
+        final char high = str.charAt(idx);
+        final char low = str.charAt(idx + 1);
+        if (!isDigit(high) || !isDigit(low)) {
+            return -1;
+        }
+        return (high - '0') * 10 + (low - '0');
+    }
+
+    private void add(CharSequence src, int begin, int end) {
+        if (size == sources.length) {
+            final int capacity = size * 2;
+            sources = Arrays.copyOf(sources, capacity);
+            begins = Arrays.copyOf(begins, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        sources[size] = src;
+        begins[size] = begin;
+        ends[size] = end;
+        size++;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWhitespace(char c) {
+        switch (c) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\u000B':
+            case '\f':
+            case '\r':
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private CharSequence[] sources;
+    private int[] begins;
+    private int[] ends;
+    private int size;
+
+    private final static int INITIAL_CAPACITY = 16;
+
+    private final static Month[] MONTHS = Month.values();
+
+    private final static String[] MONTH_ABBREVIATIONS = {"JAN", "FEB", "MAR",
+        "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"};
+}
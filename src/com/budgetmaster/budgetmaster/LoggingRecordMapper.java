@@ -3,6 +3,7 @@ package com.budgetmaster.budgetmaster;
 import java.lang.invoke.MethodHandles;
 import java.util.Objects;
 import java.util.function.UnaryOperator;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 
@@ -21,10 +22,16 @@ public final class LoggingRecordMapper implements UnaryOperator<Record> {
 
     @Override
     public Record apply(Record r) {
-        LOGGER.info(String.format("%s [%s]", msg, r));
+        logMapping(msg, r);
         return what.apply(r);
     }
 
+    static void logMapping(String msg, Record r) {
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info(String.format("%s [%s]", msg, r));
+        }
+    }
+
     private final UnaryOperator<Record> what;
     private final String msg;
 
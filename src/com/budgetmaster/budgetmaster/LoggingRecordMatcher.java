@@ -3,6 +3,7 @@ package com.budgetmaster.budgetmaster;
 import java.lang.invoke.MethodHandles;
 import java.util.Objects;
 import java.util.function.Predicate;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 
@@ -23,11 +24,17 @@ public final class LoggingRecordMatcher implements Predicate<Record> {
     public boolean test(Record t) {
         boolean matched = what.test(t);
         if (matched) {
-            LOGGER.info(String.format("%s matched [%s]", msg, t));
+            logMatch(msg, t);
         }
         return matched;
     }
 
+    static void logMatch(String msg, Record record) {
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info(String.format("%s matched [%s]", msg, record));
+        }
+    }
+
     private final Predicate<Record> what;
     private final String msg;
 
@@ -2,20 +2,26 @@ package com.budgetmaster.budgetmaster;
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
@@ -34,14 +40,18 @@ import picocli.CommandLine.Parameters;
 final class Main implements Callable<Integer> {
     public static void main(String... args) throws Exception {
         LogManager.getLogManager().readConfiguration();
-        int exitCode = new CommandLine(new Main()).execute(args);
+        int exitCode = new CommandLine(new Main())
+                .setCaseInsensitiveEnumValuesAllowed(true)
+                .execute(args);
         System.exit(exitCode);
     }
 
     @Override
     public Integer call() throws Exception {
-        try {
-            return workload();
+        startHeapUsageSampler();
+        try (MainRecordsProcessorBuilder mrpb
+                = new MainRecordsProcessorBuilder()) {
+            return workload(mrpb);
         } catch (Functional.ExceptionBox ex) {
             throw (Exception)ex.getCause();
         }
@@ -64,12 +74,11 @@ final class Main implements Callable<Integer> {
         return result.toArray(Path[]::new);
     }
 
-    private int workload() throws Exception {
+    private int workload(MainRecordsProcessorBuilder mrpb) throws Exception {
         LOGGER.finer(String.format("Read [%s] config file", configXmlFile));
         Document configXml = Util.readXml(configXmlFile);
 
         StatementReaderBuilder rsfb = new StatementReaderBuilder();
-        MainRecordsProcessorBuilder mrpb = new MainRecordsProcessorBuilder();
 
         if (variables != null) {
             mrpb.setVaribales(Stream.of(variables).map(str -> {
@@ -89,7 +98,52 @@ final class Main implements Callable<Integer> {
             mrpb.collectDiscardedRecords(true);
         }
 
+        if (incrementalStateDir != null && !dryRun) {
+            if (checkOverlappedStatements) {
+                throw new IllegalArgumentException(
+                        "Checking for overlapped statements is not supported in incremental mode");
+            }
+            // Discarded records are saved in the incremental state.
+            mrpb.collectDiscardedRecords(true);
+            incrementalState = IncrementalState.load(incrementalStateDir,
+                    configDigest());
+        }
+
+        if (statementCacheDir != null) {
+            statementCache = new StatementCache(statementCacheDir);
+            rsfb.setStatementCache(statementCache);
+        }
+
+        if (pdfTextCacheDir != null) {
+            pdfTextCache = new PdfTextCache(pdfTextCacheDir,
+                    Util.parseByteCount(pdfTextCacheSize));
+            AccountStatementPdf.setTextCache(pdfTextCache);
+        } else if (pdfTextCacheInfo || pdfTextCachePurge || pdfTextCacheWarm) {
+            throw new IllegalArgumentException(
+                    "PDF text cache directory is not specified");
+        }
+
+        if (pdfTextCachePurge) {
+            System.out.println(String.format(
+                    "Removed %d files from [%s] PDF text cache",
+                    pdfTextCache.purge(), pdfTextCache.getDirectory()));
+        }
+
+        if (pdfTextCacheInfo) {
+            System.out.println(String.format(
+                    "PDF text cache [%s] files: %d; size: %d bytes; limit: %d bytes",
+                    pdfTextCache.getDirectory(), pdfTextCache.getEntryCount(),
+                    pdfTextCache.getByteCount(),
+                    pdfTextCache.getMaxByteCount()));
+        }
+
+        if ((pdfTextCachePurge || pdfTextCacheInfo) && statementPaths == null) {
+            return 0;
+        }
+
         mrpb.setMappersOrder(actionIds);
+        mrpb.setStreaming(streaming);
+        mrpb.setParallelism(passJobCount);
 
         Path[] filteredStatementPaths = explodePaths(statementPaths);
 
@@ -97,111 +151,166 @@ final class Main implements Callable<Integer> {
         UnaryOperator<Stream<Record>> recordsMapper = mrpb.createFromXml(
                 configXml.getDocumentElement());
 
-        long totalRecords = -1;
         long keptRecords = -1;
-        long processed = -1;
-        long failed = -1;
-        long ignored = -1;
 
-        switch (maxStatementHarvestJobCount) {
-            case 0:
-                statementHarvestJobExecutor = Executors.newWorkStealingPool();
+        final int harvestJobCount;
+        if (maxStatementHarvestJobCount == 0) {
+            harvestJobCount = Runtime.getRuntime().availableProcessors();
+        } else {
+            harvestJobCount = maxStatementHarvestJobCount;
+        }
+
+        if (harvestExecutor == null) {
+            if (maxStatementHarvestJobCount == 0) {
+                harvestExecutor = HarvestExecutor.WorkStealing;
+            } else {
+                harvestExecutor = HarvestExecutor.Fixed;
+            }
+        }
+
+        switch (harvestExecutor) {
+            case WorkStealing:
+                statementHarvestJobExecutor = Executors.newWorkStealingPool(
+                        harvestJobCount);
                 break;
 
-            case 1:
-                statementHarvestJobExecutor = Executors.newSingleThreadExecutor();
+            case Virtual:
+                statementHarvestJobExecutor = newVirtualThreadExecutor();
                 break;
 
             default:
-                statementHarvestJobExecutor = Executors.newFixedThreadPool(
-                        maxStatementHarvestJobCount);
+                if (harvestJobCount == 1) {
+                    statementHarvestJobExecutor = Executors.newSingleThreadExecutor();
+                } else {
+                    statementHarvestJobExecutor = Executors.newFixedThreadPool(
+                            harvestJobCount);
+                }
                 break;
         }
 
+        if (maxPdfJobCount == 0) {
+            PdfTextExtractor.setMaxConcurrentExtractions(
+                    Runtime.getRuntime().availableProcessors());
+        } else {
+            PdfTextExtractor.setMaxConcurrentExtractions(maxPdfJobCount);
+        }
+
+        if (pdfMemoryBudget != null) {
+            PdfTextExtractor.setMemoryBudget(Util.parseByteCount(
+                    pdfMemoryBudget));
+        } else {
+            PdfTextExtractor.setMemoryBudget(Runtime.getRuntime().maxMemory()
+                    / 2);
+        }
+
+        Map<Path, IncrementalState.StatementRecords> savedStatements = new HashMap<>();
+        List<Path> harvestPaths = new ArrayList<>();
+        for (Path path : filteredStatementPaths) {
+            IncrementalState.StatementRecords saved = null;
+            if (incrementalState != null) {
+                saved = incrementalState.load(path);
+            }
+            if (saved != null) {
+                LOGGER.finer(String.format(
+                        "Use records of [%s] input file from incremental state",
+                        path));
+                savedStatements.put(path, saved);
+            } else {
+                harvestPaths.add(path);
+            }
+        }
+
+        final int reusedStatementCount = savedStatements.size();
+
+        // Harvesting jobs run ahead of the records processor by at most
+        // HARVEST_QUEUE_FACTOR statements per job thread.
+        final StatementHarvestPipeline harvester = new StatementHarvestPipeline(
+                harvestPaths, StatementHarvestJob::new,
+                statementHarvestJobExecutor,
+                harvestJobCount * HARVEST_QUEUE_FACTOR, failFast);
+
         try {
-            List<Future<List<Record>>> statements = statementHarvestJobExecutor.invokeAll(
-                    Stream.of(filteredStatementPaths)
-                            .map(StatementHarvestJob::new)
-                            .collect(Collectors.toList()));
-            
-            statements.stream()
-                    .filter(Predicate.not(Future::isCancelled))
-                    .forEachOrdered(f -> {
-                        try {
-                            f.get();
-                        } catch (InterruptedException | ExecutionException ex) {
-                            ex.printStackTrace();
-                        }
-                    });
-            
-            failed = statements.stream()
-                    .filter(Predicate.not(Future::isCancelled))
-                    .filter(f -> {
-                        try {
-                            f.get();
-                            return false;
-                        } catch (InterruptedException | ExecutionException ex) {
-                            return true;
-                        }
-                    })
-                    .count();
-
-            ignored = statements.stream()
-                    .filter(Predicate.not(Future::isCancelled))
-                    .filter(f -> {
-                        try {
-                            return f.get() == null;
-                        } catch (InterruptedException | ExecutionException ex) {
-                            return false;
-                        }
-                    })
-                    .count();
-
-            List<List<Record>> harvestedStatements = statements.stream()
-                    .filter(Predicate.not(Future::isCancelled))
-                    .map(f -> {
-                        try {
-                            return f.get();
-                        } catch (InterruptedException | ExecutionException ex) {
-                            return null;
-                        }
-                    })
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-            processed = harvestedStatements.size();
-
-            List<Record> records = harvestedStatements.stream().flatMap(
-                    x -> x.stream()).collect(Collectors.toList());
-
-            totalRecords = keptRecords = records.size();
-
-            if (statements.stream().anyMatch(Future::isCancelled) || failed > 0) {
-                if (failFast) {
+            if (pdfTextCacheWarm) {
+                // Harvesting statements saves text of PDF files in the cache.
+                harvester.forEachRemaining(x -> {});
+                return harvester.isAborted() ? 1 : 0;
+            }
+
+            if (incrementalState != null) {
+                harvestIncrementally(mrpb, harvester, savedStatements);
+                if (harvester.isAborted()) {
                     return 1;
                 }
+                keptRecords = processIncrementally(mrpb, filteredStatementPaths,
+                        savedStatements);
+                return 0;
             }
 
-            if (findOverlappedStatements(records.stream())) {
-                if (failFast) {
+            if (streaming && !checkOverlappedStatements) {
+                AtomicLong keptCount = new AtomicLong();
+                try {
+                    Stream<Record> records = recordsMapper.apply(
+                            harvester.stream().flatMap(
+                                    x -> x.getValue().stream())).peek(
+                                    x -> keptCount.incrementAndGet());
+
+                    if (saveToCsvFile != null) {
+                        // Don't leave a truncated output file if harvesting
+                        // aborts.
+                        saveRecordsAtomically(saveToCsvFile, records,
+                                () -> !harvester.isAborted());
+                    } else {
+                        records.forEach(x -> {});
+                    }
+                } finally {
+                    keptRecords = keptCount.get();
+                }
+
+                if (harvester.isAborted()) {
                     return 1;
                 }
-            }
+            } else {
+                List<Record> records = harvester.stream().flatMap(
+                        x -> x.getValue().stream()).collect(Collectors.toList());
 
-            records = recordsMapper.apply(records.stream()).collect(
-                    Collectors.toList());
+                if (harvester.isAborted()) {
+                    return 1;
+                }
 
-            keptRecords = records.size();
+                if (findOverlappedStatements(records.stream())) {
+                    if (failFast) {
+                        return 1;
+                    }
+                }
 
-            if (saveToCsvFile != null) {
-                Util.saveToCsvFile(saveToCsvFile, records.stream());
+                records = recordsMapper.apply(records.stream()).collect(
+                        Collectors.toList());
+
+                keptRecords = records.size();
+
+                if (saveToCsvFile != null) {
+                    saveRecords(saveToCsvFile, records.stream());
+                }
             }
 
             if (discardToCsvFile != null) {
-                Util.saveToCsvFile(discardToCsvFile, mrpb.getDiscardedRecords());
+                saveRecords(discardToCsvFile, mrpb.getDiscardedRecords());
             }
 
             return 0;
         } finally {
+            final long processed = harvester.getProcessedCount()
+                    + reusedStatementCount;
+            final long failed = harvester.getFailedCount();
+            final long ignored = harvester.getIgnoredCount();
+            final long totalRecords = harvester.getRecordCount()
+                    + savedStatements.values().stream().mapToLong(
+                            IncrementalState.StatementRecords::getHarvestedCount)
+                            .sum();
+            if (keptRecords < 0) {
+                keptRecords = totalRecords;
+            }
+
             final long notProcessed = filteredStatementPaths.length - (processed
                     + failed + ignored);
             System.out.println(String.format(
@@ -211,9 +320,255 @@ final class Main implements Callable<Integer> {
             System.out.println(String.format(
                     "Total records harvested: %d; kept: %d; discarded: %d",
                     totalRecords, keptRecords, totalRecords - keptRecords));
+            if (statementCache != null) {
+                System.out.println(String.format(
+                        "Statement cache hits: %d; misses: %d",
+                        statementCache.getHitCount(),
+                        statementCache.getMissCount()));
+            }
+            if (pdfTextCache != null) {
+                System.out.println(String.format(
+                        "PDF text cache hits: %d; misses: %d; PDF bytes not extracted: %d",
+                        pdfTextCache.getHitCount(), pdfTextCache.getMissCount(),
+                        pdfTextCache.getSavedByteCount()));
+            }
+            if (incrementalState != null) {
+                System.out.println(String.format(
+                        "Input files reused from incremental state: %d; harvested: %d",
+                        reusedStatementCount, harvestPaths.size()));
+            }
+            printHeapUsage();
+        }
+    }
+
+    /**
+     * Applies leading stateless passes to records of every harvested
+     * statement separately and saves the results in the incremental state.
+     * These passes map every record independently of other records.
+     */
+    private void harvestIncrementally(MainRecordsProcessorBuilder mrpb,
+            StatementHarvestPipeline harvester,
+            Map<Path, IncrementalState.StatementRecords> savedStatements)
+            throws IOException {
+        final List<UnaryOperator<Stream<Record>>> passes = mrpb.getPasses();
+        final int statementPassCount = mrpb.getStatementPassCount();
+
+        while (harvester.hasNext()) {
+            final var statement = harvester.next();
+            List<Record> records = statement.getValue();
+            final int harvestedCount = records.size();
+            final List<List<Record>> discardedRecords = new ArrayList<>();
+            for (var pass : passes.subList(0, statementPassCount)) {
+                records = pass.apply(records.stream()).collect(
+                        Collectors.toList());
+                discardedRecords.add(mrpb.drainDiscardedRecords());
+            }
+
+            var statementRecords = new IncrementalState.StatementRecords(
+                    harvestedCount, records, discardedRecords);
+            incrementalState.save(statement.getKey(), statementRecords);
+            savedStatements.put(statement.getKey(), statementRecords);
+        }
+    }
+
+    /**
+     * Applies passes to records in incremental mode.
+     *
+     * Results of leading stateless passes are taken from the incremental
+     * state for every statement (see harvestIncrementally()).
+     *
+     * Other passes (remove-duplicates, ouroboros, passes implemented by
+     * classes) work with records of all statements. They are applied to the
+     * concatenation of the per-statement results in the order of input files.
+     * If no input file changed since the previous run and there are no
+     * passes implemented by classes, output of the previous run is reused.
+     * Passes implemented by classes may depend on external files, so they
+     * are always applied.
+     *
+     * These passes are not merged incrementally: after any input file
+     * changed they are re-applied to records of all statements. Passes may
+     * be chained in any order with passes mapping records between them, so
+     * outputs of a pass for unchanged statements can't be reused without
+     * keeping the input of every pass. And the output file is written in
+     * full anyway. Harvesting is the expensive part and it is done for new
+     * and changed input files only; reapplying the passes takes reading
+     * binary records files and sorting.
+     *
+     * Returns the number of output records.
+     */
+    private long processIncrementally(MainRecordsProcessorBuilder mrpb,
+            Path[] paths,
+            Map<Path, IncrementalState.StatementRecords> savedStatements)
+            throws IOException {
+        final List<UnaryOperator<Stream<Record>>> passes = mrpb.getPasses();
+        final int statementPassCount = mrpb.getStatementPassCount();
+
+        // Merge per-statement results in the order of input files. Records
+        // discarded by the same pass are grouped together.
+        final List<Path> processedPaths = Stream.of(paths).filter(
+                savedStatements::containsKey).collect(Collectors.toList());
+        List<Record> records = new ArrayList<>();
+        final List<Record> discardedRecords = new ArrayList<>();
+        for (Path path : processedPaths) {
+            records.addAll(savedStatements.get(path).getRecords());
+        }
+        for (int i = 0; i != statementPassCount; ++i) {
+            for (Path path : processedPaths) {
+                discardedRecords.addAll(savedStatements.get(path)
+                        .getDiscardedRecords().get(i));
+            }
+        }
+
+        IncrementalState.StatementRecords output = null;
+        if (!mrpb.hasPluggablePasses()) {
+            output = incrementalState.loadOutput(processedPaths);
+        }
+
+        if (output != null) {
+            LOGGER.finer("Use output records from incremental state");
+            records = output.getRecords();
+            discardedRecords.addAll(output.getDiscardedRecords().get(0));
+        } else {
+            Stream<Record> tail = records.stream();
+            for (var pass : passes.subList(statementPassCount, passes.size())) {
+                tail = pass.apply(tail);
+            }
+            records = tail.collect(Collectors.toList());
+            final List<Record> tailDiscardedRecords = mrpb.drainDiscardedRecords();
+            incrementalState.saveOutput(records, tailDiscardedRecords);
+            discardedRecords.addAll(tailDiscardedRecords);
+        }
+
+        incrementalState.commit(processedPaths);
+
+        if (saveToCsvFile != null) {
+            saveRecords(saveToCsvFile, records.stream());
+        }
+        if (discardToCsvFile != null) {
+            saveRecords(discardToCsvFile, discardedRecords.stream());
+        }
+
+        return records.size();
+    }
+
+    /**
+     * Returns digest of everything incremental state depends on besides input
+     * files: the config file, variables, action IDs and the application
+     * build.
+     */
+    private String configDigest() throws IOException {
+        MessageDigest md = StatementCache.newMessageDigest();
+        md.update(Files.readAllBytes(configXmlFile));
+        Stream.of(Objects.requireNonNullElse(variables, new String[0]))
+                .sorted()
+                .forEachOrdered(v -> md.update(("\0var:" + v).getBytes(
+                        StandardCharsets.UTF_8)));
+        Stream.of(Objects.requireNonNullElse(actionIds, new String[0]))
+                .forEachOrdered(v -> md.update(("\0action:" + v).getBytes(
+                        StandardCharsets.UTF_8)));
+
+        md.update(("\0build:" + StatementCache.buildDigest()).getBytes(
+                StandardCharsets.UTF_8));
+
+        return StatementCache.toHexString(md.digest());
+    }
+
+    /**
+     * Returns executor starting a new virtual thread for every task. The
+     * executor is looked up reflectively, so the application builds and runs
+     * with Java versions without virtual threads.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalArgumentException(String.format(
+                    "Virtual threads are not supported by Java %s. Java 21 or newer is required",
+                    Runtime.version()));
+        } catch (ReflectiveOperationException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Saves records in a temporary file in the directory of the given file.
+     * Moves the temporary file to the given file if the given condition holds
+     * after all records are saved. Deletes the temporary file otherwise.
+     * Records saved to the standard output are saved as is.
+     */
+    private void saveRecordsAtomically(Path path, Stream<Record> records,
+            BooleanSupplier commit) throws IOException {
+        if ("--".equals(path.toString())) {
+            saveRecords(path, records);
+            return;
+        }
+
+        final Path absPath = path.toAbsolutePath();
+        final Path tmpFile = Files.createTempFile(absPath.getParent(),
+                absPath.getFileName().toString(), null);
+        try {
+            saveRecords(tmpFile, records);
+            if (commit.getAsBoolean()) {
+                Files.move(tmpFile, absPath,
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            Files.deleteIfExists(tmpFile);
         }
     }
 
+    private void saveRecords(Path path, Stream<Record> records) throws
+            IOException {
+        switch (saveFormat) {
+            case Binary:
+                Util.saveToBinaryFile(path, records);
+                break;
+
+            default:
+                Util.saveToCsvFile(path, records);
+                break;
+        }
+    }
+
+    /**
+     * Samples heap usage periodically until the application exits. Peaks of
+     * memory pools are reached at different times, so their sum overstates
+     * the peak heap usage. The sampled peak can miss short spikes between
+     * samples instead.
+     */
+    private static void startHeapUsageSampler() {
+        var sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "heap-usage-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(Main::sampleHeapUsage, 0,
+                HEAP_SAMPLE_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static MemoryUsage sampleHeapUsage() {
+        var heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        PEAK_HEAP_USED.accumulateAndGet(heap.getUsed(), Math::max);
+        return heap;
+    }
+
+    private static void printHeapUsage() {
+        var heap = sampleHeapUsage();
+        System.out.println(String.format(
+                "Heap used: %d MB; sampled peak: %d MB; committed: %d MB; max: %d MB",
+                toMegabytes(heap.getUsed()), toMegabytes(PEAK_HEAP_USED.get()),
+                toMegabytes(heap.getCommitted()), toMegabytes(heap.getMax())));
+    }
+
+    private static long toMegabytes(long v) {
+        if (v < 0) {
+            return v;
+        }
+        return v / (1024 * 1024);
+    }
+
     private boolean findOverlappedStatements(Stream<Record> records) {
         if (!checkOverlappedStatements) {
             return false;
@@ -249,7 +604,9 @@ final class Main implements Callable<Integer> {
                 if (dryRun) {
                     return Collections.emptyList();
                 }
-                return statement.get().collect(Collectors.toList());
+                try (Stream<Record> records = statement.get()) {
+                    return records.collect(Collectors.toList());
+                }
             } catch (Exception ex) {
                 String errMsg = String.format("Error harvesting [%s] input file",
                         src);
@@ -278,6 +635,18 @@ final class Main implements Callable<Integer> {
             description = "maximum number of bank statement harvesting jobs")
     private int maxStatementHarvestJobCount;
 
+    @Option(names = {"--executor"},
+            description = "executor of bank statement harvesting jobs: ${COMPLETION-CANDIDATES}; the default is workstealing if the number of jobs is 0 and fixed otherwise")
+    private HarvestExecutor harvestExecutor;
+
+    @Option(names = {"--pdf-jobs"},
+            description = "maximum number of PDF files parsed concurrently; 0 is the number of processors")
+    private int maxPdfJobCount;
+
+    @Option(names = {"--pdf-memory-budget"},
+            description = "maximum number of bytes of memory used by PDF files loaded concurrently, optionally with K, M or G suffix; the default is half of the maximum heap size")
+    private String pdfMemoryBudget;
+
     @Option(names = {"-s", "--save-collector"},
             description = "path to CSV file where to save filtered records")
     private Path saveToCsvFile;
@@ -286,6 +655,10 @@ final class Main implements Callable<Integer> {
             description = "path to CSV file where to save discarded records")
     private Path discardToCsvFile;
 
+    @Option(names = {"--save-format"},
+            description = "format of files with saved records: ${COMPLETION-CANDIDATES}")
+    private SaveFormat saveFormat = SaveFormat.Csv;
+
     @Option(names = {"-d", "--dry-run"}, description = "dry run")
     private boolean dryRun;
 
@@ -300,6 +673,42 @@ final class Main implements Callable<Integer> {
             description = "set variable")
     private String[] variables;
 
+    @Option(names = {"--streaming"},
+            description = "pipe records through stateless passes without collecting them")
+    private boolean streaming;
+
+    @Option(names = {"--pass-jobs"},
+            description = "number of threads applying stateless passes to records; 0 is the number of processors")
+    private int passJobCount = 1;
+
+    @Option(names = {"--statement-cache"},
+            description = "path to directory where to cache records harvested from statement files")
+    private Path statementCacheDir;
+
+    @Option(names = {"--incremental"},
+            description = "path to directory where to keep state of incremental runs; only new and changed statement files are harvested; remove-duplicates, ouroboros and class passes are re-applied to records of all statement files")
+    private Path incrementalStateDir;
+
+    @Option(names = {"--pdf-text-cache"},
+            description = "path to directory where to cache text extracted from PDF files")
+    private Path pdfTextCacheDir;
+
+    @Option(names = {"--pdf-text-cache-size"},
+            description = "maximum size of PDF text cache files, optionally with K, M or G suffix; least recently used files are removed first")
+    private String pdfTextCacheSize = "256M";
+
+    @Option(names = {"--pdf-text-cache-warm"},
+            description = "extract text of PDF files into PDF text cache without processing records")
+    private boolean pdfTextCacheWarm;
+
+    @Option(names = {"--pdf-text-cache-info"},
+            description = "print PDF text cache statistics")
+    private boolean pdfTextCacheInfo;
+
+    @Option(names = {"--pdf-text-cache-purge"},
+            description = "remove all files from PDF text cache")
+    private boolean pdfTextCachePurge;
+
     @Option(names = {"-a", "--fail-fast"},
             description = "abort after the first encountered error")
     private boolean failFast;
@@ -308,9 +717,29 @@ final class Main implements Callable<Integer> {
             description = "one ore more statemnet files/directories to process")
     private Path[] statementPaths;
 
+    private enum SaveFormat {
+        Csv,
+        Binary
+    };
+
+    private enum HarvestExecutor {
+        Fixed,
+        WorkStealing,
+        Virtual
+    };
+
     private Function<Path, Statement> statementCfg;
+    private StatementCache statementCache;
+    private PdfTextCache pdfTextCache;
+    private IncrementalState incrementalState;
     private ExecutorService statementHarvestJobExecutor;
 
+    private final static int HARVEST_QUEUE_FACTOR = 2;
+
+    private final static long HEAP_SAMPLE_PERIOD_MILLIS = 50;
+
+    private final static AtomicLong PEAK_HEAP_USED = new AtomicLong();
+
     private static final Logger LOGGER = Logger.getLogger(
             MethodHandles.lookup().lookupClass().getName());
 }
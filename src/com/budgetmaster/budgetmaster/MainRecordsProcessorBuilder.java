@@ -17,26 +17,37 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
 
-final class MainRecordsProcessorBuilder {
+final class MainRecordsProcessorBuilder implements AutoCloseable {
     UnaryOperator<Stream<Record>> createFromXml(Element root) {
         initNamedRecordMatchers(root);
 
         List<UnaryOperator<Stream<Record>>> mappers = new ArrayList<>();
+        statementPassCount = 0;
+        pluggablePasses = false;
 
         getRecordsMapperElements(root).forEach(el -> {
             final String elName = el.getLocalName();
+            final boolean stateless = elName.equals(PassType.Pass.xmlName())
+                    && !el.hasAttribute("class");
+            if (stateless && statementPassCount == mappers.size()) {
+                statementPassCount++;
+            }
+
             if (elName.equals(PassType.Pass.xmlName())) {
                 final UnaryOperator<Stream<Record>> mapper;
                 if (el.hasAttribute("class")) {
+                    pluggablePasses = true;
                     String className = el.getAttribute("class");
                     var rmb = ThrowingSupplier.toSupplier(
                             () -> (PluggableSupplier<RecordsMapper>) Class.forName(
@@ -61,13 +72,19 @@ final class MainRecordsProcessorBuilder {
                     };
                 } else {
                     UnaryOperator<Record> recordMapper = createRecordMappers(el);
-                    mapper = (records) -> records
-                            .filter(Objects::nonNull)
-                            .map(recordMapper);
+                    if (parallelism != 1) {
+                        mapper = new ParallelRecordsMapper(recordMapper,
+                                getPool(), this::addDiscardedRecords);
+                    } else {
+                        mapper = (records) -> records
+                                .filter(Objects::nonNull)
+                                .map(recordMapper)
+                                .filter(Objects::nonNull);
+                    }
                 }
-                mappers.add(mapper);
+                mappers.add(buffered(mapper, el.hasAttribute("class")));
             } else if (elName.equals(PassType.Ouroboros.xmlName())) {
-                Predicate<Record> recordMatcher = createRecordMatchers(el);
+                RecordBatch.RowFilter recordMatcher = createRecordRowFilter(el);
                 OuroborosRecordsFilter filter = new OuroborosRecordsFilter();
                 filter.negate(queryNodes("negate", el).getLength() != 0);
                 filter.refund(queryNodes("refund", el).getLength() != 0);
@@ -78,19 +95,47 @@ final class MainRecordsProcessorBuilder {
                     filter.maxPeriodDays(periodDays);
                 }
 
-                mappers.add(records -> filter.apply(records.filter(
-                        Objects::nonNull).filter(recordMatcher)));
+                mappers.add(buffered(records -> RecordBatch.filter(records.filter(
+                        Objects::nonNull), recordMatcher.andThen(
+                                filter::filterRows)), true));
             } else if (elName.equals(PassType.RemoveDuplicates.xmlName())) {
-                Predicate<Record> recordMatcher = createRecordMatchers(el);
+                RecordBatch.RowFilter recordMatcher = createRecordRowFilter(el);
                 DupRecordsFilter filter = new DupRecordsFilter();
 
-                mappers.add(records -> filter.apply(records.filter(
-                        Objects::nonNull).filter(recordMatcher)));
+                mappers.add(buffered(records -> RecordBatch.filter(records.filter(
+                        Objects::nonNull), recordMatcher.andThen(
+                                filter::filterRows)), true));
             }
         });
 
-        return fold(mappers.stream().map(CollectingRecordsMapper::new).collect(
-                Collectors.toList()), true);
+        passes = mappers;
+        return fold(mappers, true);
+    }
+
+    /**
+     * Returns passes created by the last createFromXml() call in the order of
+     * application.
+     */
+    List<UnaryOperator<Stream<Record>>> getPasses() {
+        return Collections.unmodifiableList(passes);
+    }
+
+    /**
+     * Returns the number of leading stateless passes returned by getPasses().
+     * These passes map every record independently of other records, so they
+     * can be applied to records of every statement separately.
+     */
+    int getStatementPassCount() {
+        return statementPassCount;
+    }
+
+    /**
+     * Returns true if passes created by the last createFromXml() call include
+     * passes implemented by classes from the config. These passes may read
+     * other files and write collector files.
+     */
+    boolean hasPluggablePasses() {
+        return pluggablePasses;
     }
 
     UnaryOperator<Stream<Record>> createFromXml(Path xmlFile) throws IOException {
@@ -107,9 +152,28 @@ final class MainRecordsProcessorBuilder {
         return this;
     }
 
+    MainRecordsProcessorBuilder setStreaming(boolean v) {
+        streaming = v;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads applying stateless passes to records. Zero
+     * is the number of available processors. One means stateless passes are
+     * applied in the calling thread.
+     */
+    MainRecordsProcessorBuilder setParallelism(int v) {
+        if (v < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid parallelism: %d", v));
+        }
+        parallelism = v;
+        return this;
+    }
+
     MainRecordsProcessorBuilder collectDiscardedRecords(boolean v) {
         if (v) {
-            discardedRecords = Collections.synchronizedList(new ArrayList<>());
+            discardedRecords = new ArrayList<>();
         } else {
             discardedRecords = null;
         }
@@ -121,6 +185,51 @@ final class MainRecordsProcessorBuilder {
         return discardedRecords.stream();
     }
 
+    /**
+     * Returns records discarded since the previous call and forgets them.
+     */
+    List<Record> drainDiscardedRecords() {
+        Objects.requireNonNull(discardedRecords);
+        List<Record> result = discardedRecords;
+        discardedRecords = new ArrayList<>();
+        return result;
+    }
+
+    /**
+     * Shuts down the thread pool created for stateless passes. Records
+     * processors created by this builder can't be used after this call.
+     */
+    @Override
+    public void close() {
+        if (pool != null && pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+        pool = null;
+    }
+
+    private ForkJoinPool getPool() {
+        if (pool == null) {
+            final int threadCount;
+            if (parallelism == 0) {
+                threadCount = Runtime.getRuntime().availableProcessors();
+            } else {
+                threadCount = parallelism;
+            }
+            if (threadCount == ForkJoinPool.getCommonPoolParallelism()) {
+                pool = ForkJoinPool.commonPool();
+            } else {
+                pool = new ForkJoinPool(threadCount);
+            }
+        }
+        return pool;
+    }
+
+    private void addDiscardedRecords(List<Record> records) {
+        if (discardedRecords != null) {
+            discardedRecords.addAll(records);
+        }
+    }
+
     private List<Element> getRecordsMapperElements(Element root) {
         NodeList nodes = queryNodes(Stream.of(PassType.values())
                 .map(PassType::xmlName)
@@ -157,13 +266,47 @@ final class MainRecordsProcessorBuilder {
         return result;
     }
 
+    private UnaryOperator<Stream<Record>> buffered(
+            UnaryOperator<Stream<Record>> mapper, boolean stateful) {
+        if (streaming && !stateful) {
+            // Stateless pass. Pipe records through without collecting.
+            return mapper;
+        }
+        return new CollectingRecordsMapper(mapper);
+    }
+
     private void initNamedRecordMatchers(Element root) {
         globalMatchers = new HashMap<>();
 
         NodeList nodes = queryNodes("/*/matcher[@id]", root);
         for (int i = 0; i < nodes.getLength(); i++) {
             Element el = (Element) nodes.item(i);
-            globalMatchers.put(el.getAttribute("id"), createRecordMatcher(el));
+            globalMatchers.put(el.getAttribute("id"), el);
+        }
+
+        // Named matchers are compiled into programs of matchers referencing
+        // them. Compile all of them upfront to report errors early.
+        RecordMatcherProgram.Builder program = new RecordMatcherProgram.Builder();
+        globalMatchers.keySet().forEach(id -> createNamedRecordMatcher(program,
+                id));
+    }
+
+    private int createNamedRecordMatcher(RecordMatcherProgram.Builder program,
+            String id) {
+        Element el = globalMatchers.get(id);
+        if (el == null) {
+            throw new IllegalArgumentException(String.format(
+                    "Unknown matcher [%s]", id));
+        }
+
+        if (!expandingMatchers.add(id)) {
+            throw new IllegalArgumentException(String.format(
+                    "Circular reference to [%s] matcher", id));
+        }
+        try {
+            return createRecordMatcher(program, el);
+        } finally {
+            expandingMatchers.remove(id);
         }
     }
 
@@ -199,10 +342,10 @@ final class MainRecordsProcessorBuilder {
         };
     }
 
-    private static <T> Predicate<T> foldPredicates(List<Predicate<T>> predicates,
-            boolean allMatch) {
+    private static int foldPredicates(RecordMatcherProgram.Builder program,
+            List<Integer> predicates, boolean allMatch) {
         if (predicates.isEmpty()) {
-            return s -> true;
+            return program.alwaysTrue();
         }
 
         if (predicates.size() == 1) {
@@ -210,67 +353,81 @@ final class MainRecordsProcessorBuilder {
         }
 
         if (allMatch) {
-            return v -> {
-                return predicates.stream().allMatch(pred -> pred.test(v));
-            };
+            return program.and(predicates);
         }
 
-        return v -> {
-            return predicates.stream().anyMatch(pred -> pred.test(v));
-        };
+        return program.or(predicates);
     }
 
     private Predicate<Record> createRecordMatchers(Element root) {
-        List<Predicate<Record>> matchers = new ArrayList<>();
+        RecordMatcherProgram.Builder program = new RecordMatcherProgram.Builder();
+        final int matcher = createRecordMatchers(program, root);
+        return program.create().toPredicate(matcher);
+    }
+
+    private RecordBatch.RowFilter createRecordRowFilter(Element root) {
+        RecordMatcherProgram.Builder program = new RecordMatcherProgram.Builder();
+        final int matcher = createRecordMatchers(program, root);
+        return program.create().toRowFilter(matcher);
+    }
+
+    private int createRecordMatchers(RecordMatcherProgram.Builder program,
+            Element root) {
+        List<Integer> matchers = new ArrayList<>();
 
         NodeList matcherNodes = queryNodes("matcher", root);
         for (int i = 0; i < matcherNodes.getLength(); i++) {
             Element matcherEl = (Element)matcherNodes.item(i);
 
-            final Predicate<Record> matcher;
+            final int matcher;
             if (matcherEl.hasAttribute("ref")) {
-                matcher = globalMatchers.get(matcherEl.getAttribute("ref"));
+                matcher = createNamedRecordMatcher(program, matcherEl.getAttribute(
+                        "ref"));
             } else {
-                matcher = createRecordMatcher(matcherEl);
+                matcher = createRecordMatcher(program, matcherEl);
             }
             matchers.add(matcher);
         }
 
-        return foldPredicates(matchers, false);
+        return foldPredicates(program, matchers, false);
     }
 
     private UnaryOperator<Record> createRecordMappers(Element root) {
-        List<UnaryOperator<Record>> actions = new ArrayList<>();
+        // Matchers of all actions of the pass are compiled into a single
+        // program to screen regular expressions of all actions at once.
+        RecordMatcherProgram.Builder programBuilder = new RecordMatcherProgram.Builder();
+        List<Integer> matchers = new ArrayList<>();
+        List<UnaryOperator<Record>> mappers = new ArrayList<>();
 
         NodeList nodes = queryNodes("action", root);
         for (int i = 0; i < nodes.getLength(); i++) {
             Element el = (Element)nodes.item(i);
 
-            final Predicate<Record> matcher = createRecordMatchers(el);
-            final UnaryOperator<Record> mapper = createRecordMapper(el);
-
-            actions.add((record) -> {
-                if (matcher.test(record)) {
-                   return mapper.apply(record);
-                }
-                return record;
-            });
+            matchers.add(createRecordMatchers(programBuilder, el));
+            mappers.add(createRecordMapper(el));
         }
 
-        return fold(actions, false);
-    }
-
-    private static UnaryOperator<Record> loggable(UnaryOperator<Record> what,
-            String msg) {
-        return LoggingRecordMapper.of(what, msg);
-    }
-
-    private static Predicate<Record> loggable(Predicate<Record> what, String msg) {
-        return LoggingRecordMatcher.of(what, msg);
+        final RecordMatcherProgram program = programBuilder.create();
+        final int[] matcherNodes = matchers.stream().mapToInt(
+                Integer::intValue).toArray();
+        final List<UnaryOperator<Record>> actions = List.copyOf(mappers);
+
+        return (record) -> {
+            RecordMatcherProgram.Evaluation evaluation = program.evaluate(record);
+            for (int i = 0; i != matcherNodes.length; ++i) {
+                if (evaluation.test(matcherNodes[i])) {
+                    Record mappedRecord = actions.get(i).apply(record);
+                    if (mappedRecord != record) {
+                        return mappedRecord;
+                    }
+                }
+            }
+            return record;
+        };
     }
 
     private UnaryOperator<Record> createRecordMapper(Element actionEl) {
-        List<UnaryOperator<Record>> actions = new ArrayList<>();
+        ActionRecordMapper mapper = new ActionRecordMapper();
 
         NodeList nodes = queryNodes("tag|category|description|negation|discard",
                 actionEl);
@@ -278,38 +435,33 @@ final class MainRecordsProcessorBuilder {
             Element el = (Element) nodes.item(i);
             switch (el.getNodeName()) {
                 case "discard":
-                    actions.add(LoggingRecordMapper.of((record) -> {
-                        if (discardedRecords != null) {
-                            discardedRecords.add(record);
-                        }
-                        return null;
-                    }, "Discard"));
+                    mapper.add(null, "Discard");
                     break;
 
                 case "negation":
-                    actions.add(loggable(RecordFieldMapper.amountNegator(),
-                            "Negate amount of"));
+                    mapper.add(RecordFieldMapper.amountNegator(),
+                            "Negate amount of");
                     break;
 
                 case "category":
                     String value = el.getFirstChild().getNodeValue();
-                    actions.add(loggable(new RecordFieldMapper(value,
+                    mapper.add(new RecordFieldMapper(value,
                             RecordBuilder::setCategory), String.format(
-                            "Set category to [%s] of", value)));
+                            "Set category to [%s] of", value));
                     break;
 
                 case "description":
                     value = el.getFirstChild().getNodeValue();
-                    actions.add(loggable(new RecordFieldMapper(value,
+                    mapper.add(new RecordFieldMapper(value,
                             RecordBuilder::setDescription), String.format(
-                            "Set description to [%s] of", value)));
+                            "Set description to [%s] of", value));
                     break;
 
                 case "tag":
                     value = el.getFirstChild().getNodeValue();
-                    actions.add(loggable(new RecordFieldMapper(value,
+                    mapper.add(new RecordFieldMapper(value,
                             RecordBuilder::addTag), String.format(
-                            "Add [%s] tag to", value)));
+                            "Add [%s] tag to", value));
                     break;
 
                 default:
@@ -319,18 +471,19 @@ final class MainRecordsProcessorBuilder {
 
         if (nodes.getLength() == 0) {
             // Just keep the record
-            actions.add(IDENTITY_ACTION);
+            mapper.add(IDENTITY_ACTION, "Identity");
         }
 
-        return fold(actions, true);
+        return mapper;
     }
 
-    private Predicate<Record> createRecordMatcher(Element root) {
-        return createRecordMatcher(root, true);
+    private int createRecordMatcher(RecordMatcherProgram.Builder program,
+            Element root) {
+        return createRecordMatcher(program, root, true);
     }
 
-    private Predicate<Record> createRecordSpecificMatcher(Element el,
-            boolean allMatch) {
+    private int createRecordSpecificMatcher(RecordMatcherProgram.Builder program,
+            Element el, boolean allMatch) {
         final String matcherType = el.getLocalName();
 
         if (FIELD_MATCHER_NAMES.contains(matcherType)) {
@@ -338,25 +491,26 @@ final class MainRecordsProcessorBuilder {
                     matcherType);
             String regexp = el.getFirstChild().getNodeValue();
 
-            return loggable(new StringMatcher(regexp, fieldAccessor),
-                    String.format("Regexp [%s] applied to %s", regexp,
-                            matcherType));
+            return program.regexp(matcherType, fieldAccessor,
+                    FIELD_COLUMNS.get(matcherType), regexp, String.format(
+                            "Regexp [%s] applied to %s", regexp, matcherType));
         }
 
         switch (matcherType) {
             case "not":
-                return createRecordMatcher(el, allMatch).negate();
+                return program.not(createRecordMatcher(program, el, allMatch));
 
             case "or":
-                return createRecordMatcher(el, false);
+                return createRecordMatcher(program, el, false);
 
             case "matcher":
-                return globalMatchers.get(el.getAttribute("ref"));
+                return createNamedRecordMatcher(program, el.getAttribute("ref"));
 
             case "tag": {
                 String tag = el.getFirstChild().getNodeValue();
-                return loggable((Predicate<Record>) (record) -> record.hasTag(
-                        tag), String.format("Tag [%s]", tag));
+                return program.predicate((record) -> record.hasTag(tag),
+                        (batch, row) -> batch.hasTag(row, TagDictionary.indexOf(
+                                tag)), String.format("Tag [%s]", tag));
             }
 
             case "period-inclusive":
@@ -378,8 +532,10 @@ final class MainRecordsProcessorBuilder {
                     closeBraket = ")";
                 }
 
-                return loggable(new DateRangeMatcher(beginDate, endDate,
-                        Record::getTransactionDate, inclusive), String.format(
+                DateRangeMatcher matcher = new DateRangeMatcher(beginDate,
+                        endDate, Record::getTransactionDate, inclusive);
+                return program.predicate(matcher, (batch, row) -> matcher.test(
+                        batch.getTransactionDay(row)), String.format(
                         "Date range %s%s-%s%s", openBraket, begin, end,
                         closeBraket));
             }
@@ -388,16 +544,72 @@ final class MainRecordsProcessorBuilder {
         throw new IllegalArgumentException();
     }
 
-    private Predicate<Record> createRecordMatcher(Element root, boolean allMatch) {
-        List<Predicate<Record>> predicates = new ArrayList<>();
+    private int createRecordMatcher(RecordMatcherProgram.Builder program,
+            Element root, boolean allMatch) {
+        List<Integer> predicates = new ArrayList<>();
 
         NodeList nodes = queryNodes(SPECIFIC_MATCHER_XPATH, root);
         for (int i = 0; i < nodes.getLength(); i++) {
             Element el = (Element)nodes.item(i);
-            predicates.add(createRecordSpecificMatcher(el, allMatch));
+            predicates.add(createRecordSpecificMatcher(program, el, allMatch));
         }
 
-        return foldPredicates(predicates, allMatch);
+        return foldPredicates(program, predicates, allMatch);
+    }
+
+    /**
+     * Applies field mappers of an action to a record. All field mappers modify
+     * the same record builder. A single record is created from the builder
+     * after the last field mapper. Intermediate records are created only to
+     * log them.
+     */
+    private final class ActionRecordMapper implements UnaryOperator<Record> {
+
+        /**
+         * Adds field mapper. Null mapper discards records.
+         */
+        void add(RecordFieldMapper mapper, String msg) {
+            mappers.add(mapper);
+            msgs.add(msg);
+        }
+
+        @Override
+        public Record apply(Record record) {
+            RecordBuilder rb = null;
+            for (int i = 0; i != mappers.size(); ++i) {
+                if (LoggingRecordMapper.LOGGER.isLoggable(Level.INFO)) {
+                    LoggingRecordMapper.logMapping(msgs.get(i), rb == null
+                            ? record : rb.create());
+                }
+
+                final RecordFieldMapper mapper = mappers.get(i);
+                if (mapper == null) {
+                    discard(rb == null ? record : rb.create());
+                    return null;
+                }
+
+                if (rb == null) {
+                    rb = RecordBuilder.from(record);
+                }
+                mapper.apply(rb, record);
+            }
+            return rb == null ? record : rb.create();
+        }
+
+        private void discard(Record record) {
+            if (discardedRecords != null) {
+                // Records discarded by parallel passes are buffered per
+                // thread.
+                List<Record> buffer = ParallelRecordsMapper.getDiscardedRecordsBuffer();
+                if (buffer == null) {
+                    buffer = discardedRecords;
+                }
+                buffer.add(record);
+            }
+        }
+
+        private final List<RecordFieldMapper> mappers = new ArrayList<>();
+        private final List<String> msgs = new ArrayList<>();
     }
 
     private final static class CollectingRecordsMapper implements UnaryOperator<Stream<Record>> {
@@ -422,10 +634,17 @@ final class MainRecordsProcessorBuilder {
         private final UnaryOperator<Stream<Record>> mapper;
     }
 
-    private Map<String, Predicate<Record>> globalMatchers;
+    private Map<String, Element> globalMatchers;
+    private final Set<String> expandingMatchers = new HashSet<>();
     private List<Record> discardedRecords;
     private String[] mapperIds;
     private Map<String, String> variables;
+    private boolean streaming;
+    private int parallelism = 1;
+    private List<UnaryOperator<Stream<Record>>> passes;
+    private int statementPassCount;
+    private boolean pluggablePasses;
+    private ForkJoinPool pool;
 
     private final static Map<String, Function<Record, String>> FIELD_ACCESSORS = Map.of(
             "description", Record::getDescription,
@@ -434,6 +653,13 @@ final class MainRecordsProcessorBuilder {
             "statement-id", (record) -> record.getSource().getId()
     );
 
+    private final static Map<String, Function<RecordBatch, RecordBatch.StringColumn>> FIELD_COLUMNS = Map.of(
+            "description", RecordBatch::getDescriptions,
+            "currency", RecordBatch::getCurrencyCodes,
+            "category", RecordBatch::getCategories,
+            "statement-id", RecordBatch::getStatementIds
+    );
+
     private final static Set<String> FIELD_MATCHER_NAMES = FIELD_ACCESSORS.keySet();
 
     private final static String SPECIFIC_MATCHER_XPATH = Stream.concat(Stream.of("or",
@@ -443,8 +669,8 @@ final class MainRecordsProcessorBuilder {
     private final static DateTimeFormatter PERIOD_DATE_FORMAT = DateTimeFormatter.ofPattern(
             "dd/MM/yy", Locale.US);
 
-    private final static UnaryOperator<Record> IDENTITY_ACTION = LoggingRecordMapper.of(
-            (record) -> RecordBuilder.from(record).create(), "Identity");
+    private final static RecordFieldMapper IDENTITY_ACTION = new RecordFieldMapper(
+            (String) null, (rb, v) -> {});
 
     enum PassType {
         Pass,
@@ -1,625 +1,1093 @@
-package com.budgetmaster.budgetmaster;
-
-import java.math.BigDecimal;
-import java.math.MathContext;
-import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Currency;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
-import java.util.function.Consumer;
-import java.util.function.Function;
-import java.util.function.Predicate;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-
-public final class MarketplaceTransactions<T> {
-    public final static int MAX_MATCH_SCORE = 1000;
-    public final static int MAX_BALANCE = 1000;
-    public final static int MAX_AMOUNT_DIFF = 1000;
-
-    public final static class IntRange implements Iterable<Integer> {
-        IntRange(int startInclusive, int endInclusive, int step) {
-            this.startInclusive = startInclusive;
-            this.endInclusive = endInclusive;
-            this.step = step;
-        }
-
-        @Override
-        public Iterator<Integer> iterator() {
-            return new Iterator<>() {
-                @Override
-                public boolean hasNext() {
-                    return !started || value != endInclusive;
-                }
-
-                @Override
-                public Integer next() {
-                    started = true;
-                    try {
-                        return value;
-                    } finally {
-                        value += step;
-                        if (value > endInclusive) {
-                            value = endInclusive;
-                        }
-                    }
-                }
-
-                private int value = startInclusive;
-                private boolean started;
-            };
-        }
-
-        private final int startInclusive, endInclusive, step;
-    }
-
-    public final class Match {
-        Match(int score, Record key, T value) {
-            if (score <= 0) {
-                throw new IllegalArgumentException(String.format(
-                        "Invalid match score=%d for key=%s and value=%s", score,
-                        key, value));
-            }
-
-            this.key = key;
-            this.value = value;
-            this.score = score;
-        }
-
-        public Record getKey() {
-            return key;
-        }
-
-        public T getValue() {
-            return value;
-        }
-
-        public int getMatchScore() {
-            return score;
-        }
-
-        public BigDecimal getAmountDiff() {
-            return getAmount(key).subtract(getAmount(value));
-        }
-
-        public long getDayDiff() {
-            return ChronoUnit.DAYS.between(getDate(key), getDate(value));
-        }
-
-        public Set<String> getTags() {
-            Set<String> tags = null;
-            if (amountDiffTag != null) {
-                final BigDecimal amountDiff = getAmountDiff();
-                if (amountDiff.compareTo(BigDecimal.ZERO) != 0) {
-                    if (tags == null) {
-                        tags = new HashSet<>();
-                    }
-                    tags.add(amountDiffTag);
-                    tags.add(String.format("%s_%s", amountDiffTag,
-                            amountDiff.toPlainString()));
-                }
-            }
-
-            if (daysDiffTag != null) {
-                final long daysDiff = getDayDiff();
-                if (daysDiff != 0) {
-                    if (tags == null) {
-                        tags = new HashSet<>();
-                    }
-                    tags.add(daysDiffTag);
-                    tags.add(String.format("%s_%d", daysDiffTag, daysDiff));
-                }
-            }
-
-            return tags;
-        }
-
-        @Override
-        public String toString() {
-            final BigDecimal amountDiff = getAmountDiff();
-            final long daysDiff = getDayDiff();
-
-            StringBuilder sb = new StringBuilder();
-            if (amountDiff.compareTo(BigDecimal.ZERO) != 0) {
-                sb.append(String.format(" amount-diff=%s;", amountDiff));
-            }
-            if (daysDiff != 0) {
-                sb.append(String.format(" days-diff=%s;", daysDiff));
-            }
-            return String.format("score=%d;%s key=[%s]; value=[%s]", score, sb, key,
-                    value);
-        }
-
-        private final Record key;
-        private final T value;
-        private final int score;
-    };
-
-    public MarketplaceTransactions(Stream<? extends T> transactions,
-            Function<T, BigDecimal> getAmount, Function<T, Currency> getCurrency,
-            Function<T, LocalDate> getDate) {
-        this.getAmount = getAmount;
-        this.getDate = getDate;
-        this.transactionsMap = new HashMap<>();
-        this.orderedTransactions = transactions.collect(Collectors.toCollection(
-                LinkedHashSet::new));
-
-        orderedTransactions.forEach(t -> {
-            Currency currency = getCurrency.apply(t);
-            Transactions value = transactionsMap.get(currency);
-            if (value == null) {
-                value = new Transactions();
-                transactionsMap.put(currency, value);
-            }
-            value.amountSorted.add(t);
-            value.dateSorted.add(t);
-        });
-
-        transactionsMap.values().forEach(v -> {
-            v.amountSorted.sort((x, y) -> getAmount.apply(x).compareTo(
-                    getAmount.apply(y)));
-            v.dateSorted.sort((x, y) -> getDate.apply(x).compareTo(
-                    getDate.apply(y)));
-        });
-
-        setMaxDaysRange(null);
-        setMaxAmountRange(null);
-        setBalanceRange(null);
-    }
-
-    public MarketplaceTransactions<T> setMaxDaysRange(IntRange v) {
-        if (v == null) {
-            maxDaysRange = new IntRange(0, 0, 0);
-        } else {
-            maxDaysRange = v;
-        }
-        return this;
-    }
-
-    public MarketplaceTransactions<T> setMaxAmountRange(IntRange v) {
-        if (v == null) {
-            maxAmountRange = new IntRange(0, 0, 0);
-        } else {
-            maxAmountRange = v;
-        }
-        return this;
-    }
-
-    public MarketplaceTransactions<T> setBalanceRange(IntRange v) {
-        if (v == null) {
-            balanceRange = new IntRange(MAX_BALANCE / 2, MAX_BALANCE / 2, 0);
-        } else {
-            balanceRange = v;
-        }
-        return this;
-    }
-
-    public MarketplaceTransactions<T> setAmountDiffTag(String v) {
-        amountDiffTag = v;
-        return this;
-    }
-
-    public MarketplaceTransactions<T> setDaysDiffTag(String v) {
-        daysDiffTag = v;
-        return this;
-    }
-
-    public MarketplaceTransactions<T> setRecordFilter(Predicate<Record> v) {
-        recordFilter = v;
-        return this;
-    }
-
-    public Stream<Record> mapRecords(Stream<Record> records,
-            Function<Match, Record> merger) {
-
-        final long transactionCount = orderedTransactions.size();
-
-        List<Record> srcRecords = records.collect(Collectors.toList());
-        Map<Record, MatchInternal> matches = null;
-        long matchesCount = 0;
-        Iteration bestIteration = null;
-        for (int maxDays : maxDaysRange) {
-            for (int maxAmount : maxAmountRange) {
-                for (int balance : balanceRange) {
-                    iteration = new Iteration(maxDays, maxAmount, balance);
-                    Map<Record, MatchInternal> newMatches = iteration.mapRecords(
-                            srcRecords.stream());
-                    long newMatchesCount = newMatches.values().stream().filter(
-                            Objects::nonNull).count();
-
-                    LOGGER.finer(String.format("%s; unmatched=%d", iteration,
-                            srcRecords.size() - newMatchesCount));
-
-                    if (newMatchesCount > matchesCount) {
-                        matchesCount = newMatchesCount;
-                        matches = newMatches;
-                        bestIteration = iteration;
-                    }
-                }
-            }
-        }
-
-        if (matches != null) {
-            int minScore = matches.values().stream()
-                    .filter(Objects::nonNull)
-                    .map(MatchInternal::getMatchScore)
-                    .min(Integer::compare).orElse(0);
-            LOGGER.finer(String.format("transactions=%d; matched=%d; unclaimed=%d; min_score=%d; %s",
-                transactionCount, transactionCount - orderedTransactions.size(),
-                orderedTransactions.size(), minScore, bestIteration));
-
-            // Apply matches.
-            return matches.entrySet().stream().map(e -> {
-                if (e.getValue() != null) {
-                    return merger.apply(e.getValue().createMatch(e.getKey()));
-                }
-                return e.getKey();
-            });
-        }
-
-        return srcRecords.stream();
-    }
-
-    public Record mapRecord(Match match, Function<T, String> newDescription,
-            Function<T, Set<String>> newTags, Logger logger) {
-        RecordBuilder rb = RecordBuilder.from(match.getKey());
-        rb.setDescription(newDescription.apply(match.getValue()));
-
-        StringBuilder logMsg = null;
-        if (logger.isLoggable(Level.INFO)) {
-            logMsg = new StringBuilder();
-            logMsg.append(String.format("Set [%s] description",
-                    rb.getDescription()));
-        }
-
-        Set<String> tags = Stream.of(newTags.apply(match.getValue()), match.getTags())
-                .filter(Objects::nonNull)
-                .flatMap(x -> x.stream())
-                .collect(Collectors.toSet());
-
-        if (tags != null) {
-            Set<String> oldTags = null;
-            if (logger.isLoggable(Level.INFO)) {
-                if (rb.getTags() != null) {
-                    oldTags = Set.of(rb.getTags());
-                } else {
-                    oldTags = Set.of();
-                }
-            }
-
-            tags.forEach(rb::addTag);
-
-            if (logger.isLoggable(Level.INFO)) {
-                Set<String> addedTags = new HashSet<>(Set.of(rb.getTags()));
-                addedTags.removeAll(oldTags);
-
-                if (!addedTags.isEmpty()) {
-                    logMsg.append(String.format("; add %s tags", addedTags));
-                }
-            }
-        }
-
-        logger.info(String.format("%s in [%s]", logMsg, match));
-
-        return rb.create();
-    }
-
-    public Stream<? extends T> getUnclaimedTransactions() {
-        return orderedTransactions.stream();
-    }
-
-    private MatchInternal findTransaction(Record record) {
-        Transactions transactions = transactionsMap.get(record.getCurrency());
-        if (transactions != null) {
-            return transactions.bestMatch(record);
-        }
-
-        return null;
-    }
-
-    private int calculateMatchScore(T a, Record b) {
-        return iteration.calculateMatchScore(a, b);
-    }
-
-    private LocalDate getDate(Object o) {
-        if (o instanceof Record) {
-            return ((Record)o).getTransactionDate();
-        }
-        if (o instanceof LocalDate) {
-            return (LocalDate)o;
-        }
-        return getDate.apply((T)o);
-    }
-
-    private BigDecimal getAmount(Object o) {
-        if (o instanceof Record) {
-            return ((Record)o).getAmount();
-        }
-        if (o instanceof BigDecimal) {
-            return (BigDecimal)o;
-        }
-        return getAmount.apply((T)o);
-    }
-
-    @SuppressWarnings("empty-statement")
-    private static <T> int[] getRange(int idx, List<T> transactions,
-            Comparator<Object> sorter) {
-        final T key = transactions.get(idx);
-        int left = idx;
-        for (; left > 0 && sorter.compare(key, transactions.get(left - 1)) == 0;
-                --left);
-
-        int right = idx + 1;
-        for (; right != transactions.size() && sorter.compare(key,
-                transactions.get(right)) == 0; ++right);
-
-        return new int[]{left, right};
-    }
-
-    private static <T> int[] findRange(Object leftKey, Object rightKey,
-            Comparator<Object> sorter, List<T> transactions) {
-        int leftIdx = Collections.binarySearch(transactions, leftKey, sorter);
-        if (leftIdx < 0) {
-            leftIdx = Math.abs(leftIdx) - 1;
-        }
-
-        int rightIdx = Collections.binarySearch(transactions, rightKey, sorter);
-        if (rightIdx < 0) {
-            rightIdx = Math.abs(rightIdx) - 2;
-        }
-
-        int result[] = new int[2];
-        if (leftIdx < rightIdx) {
-            result[0] = getRange(leftIdx, transactions, sorter)[0];
-            result[1] = getRange(rightIdx, transactions, sorter)[1];
-        } else if (leftIdx == rightIdx) {
-            result = getRange(leftIdx, transactions, sorter);
-        }
-
-        return result;
-    }
-
-    private final Function<T, BigDecimal> getAmount;
-    private final Function<T, LocalDate> getDate;
-    private final Map<Currency, Transactions> transactionsMap;
-    private final Collection<? extends T> orderedTransactions;
-    private Predicate<Record> recordFilter;
-    private Iteration iteration;
-    private IntRange maxDaysRange;
-    private IntRange maxAmountRange;
-    private IntRange balanceRange;
-    private String amountDiffTag;
-    private String daysDiffTag;
-
-    final static MathContext MC = MathContext.DECIMAL32;
-
-    private final static Logger LOGGER = LoggingRecordMapper.LOGGER;
-
-    private class Transactions {
-        final List<T> amountSorted;
-        final List<T> dateSorted;
-
-        Transactions() {
-            amountSorted = new ArrayList<>();
-            dateSorted = new ArrayList<>();
-        }
-
-        private MatchInternal bestMatch(Record key) {
-            final int[] amountRange = findAmountRange(key);
-            final int[] dateRange = findDateRange(key);
-
-            final Set<T> transactions = new HashSet<>(amountSorted.subList(
-                    amountRange[0], amountRange[1]));
-            transactions.retainAll(dateSorted.subList(dateRange[0], dateRange[1]));
-
-            return transactions.stream()
-            .map(t -> new MatchInternal(t, calculateMatchScore(t, key), this))
-            .filter(m -> m.getMatchScore() != 0)
-            .max((x, y) -> Math.max(x.getMatchScore(), y.getMatchScore()))
-            .orElse(null);
-        }
-
-        private int[] findAmountRange(Record key) {
-            final BigDecimal theKey = getAmount(key);
-            final BigDecimal keyA = theKey.multiply(BigDecimal.ONE.subtract(
-                    iteration.maxAmountDiff, MC), MC);
-            final BigDecimal keyB = theKey.multiply(BigDecimal.ONE.add(
-                    iteration.maxAmountDiff, MC), MC);
-            final BigDecimal leftKey, rightKey;
-            if (theKey.compareTo(BigDecimal.ZERO) > 0) {
-                leftKey = keyA;
-                rightKey = keyB;
-            } else {
-                leftKey = keyB;
-                rightKey = keyA;
-            }
-
-            return findRange(
-                    leftKey,
-                    rightKey,
-                    (x, y) -> getAmount(x).compareTo(getAmount(y)),
-                    amountSorted);
-        }
-
-        private int[] findDateRange(Record key) {
-            final LocalDate theKey = getDate(key);
-            return findRange(
-                    theKey.minusDays(iteration.maxDaysDiff),
-                    theKey.plusDays(iteration.maxDaysDiff),
-                    (x, y) -> getDate(x).compareTo(getDate(y)),
-                    dateSorted);
-        }
-    }
-
-    private final class MatchInternal {
-        MatchInternal(T value, int score, Transactions transactions) {
-            Objects.requireNonNull(value);
-            Objects.requireNonNull(transactions);
-            this.value = value;
-            this.score = score;
-            this.transactions = transactions;
-        }
-
-        T getValue() {
-            return value;
-        }
-
-        int getMatchScore() {
-            return score;
-        }
-
-        boolean isFullMatch() {
-            return getMatchScore() == MAX_MATCH_SCORE;
-        }
-
-        void removeValue() {
-            if (transactions != null) {
-                transactions.amountSorted.remove(value);
-                transactions.dateSorted.remove(value);
-                transactions = null;
-                orderedTransactions.remove(value);
-            }
-        }
-
-        Match createMatch(Record key) {
-            return new Match(score, key, value);
-        }
-
-        private final T value;
-        private final int score;
-        private Transactions transactions;
-    };
-
-    private final class Iteration {
-        Iteration(int maxDaysDiff, int maxAmountDiff, int balance) {
-            if (maxAmountDiff > MAX_AMOUNT_DIFF) {
-                throw new IllegalArgumentException();
-            }
-
-            if (balance > MAX_BALANCE) {
-                throw new IllegalArgumentException();
-            }
-
-            this.maxDaysDiff = maxDaysDiff;
-            this.maxAmountDiff = new BigDecimal(maxAmountDiff).divide(
-                    new BigDecimal(MAX_AMOUNT_DIFF), MC);
-            this.balance = new BigDecimal(balance).divide(new BigDecimal(
-                    MAX_BALANCE), MC);
-        }
-
-        int calculateMatchScore(T a, Record b) {
-            BigDecimal aAmount = getAmount(a);
-            BigDecimal bAmount = getAmount(b);
-            BigDecimal amountDelta = aAmount.subtract(bAmount, MC).abs();
-
-            final BigDecimal amountMatchDiff = amountDelta.divide(aAmount.max(
-                    bAmount), MC);
-            if (amountMatchDiff.compareTo(maxAmountDiff) > 0) {
-                return 0;
-            }
-
-            final BigDecimal amountMatchScore = BigDecimal.ONE.subtract(
-                    amountMatchDiff, MC);
-
-            final long daysDiff = Math.abs(ChronoUnit.DAYS.between(getDate(a),
-                    getDate(b)));
-
-            if (daysDiff > maxDaysDiff) {
-                return 0;
-            }
-
-            final BigDecimal dateMatchScore = BigDecimal.ONE.subtract(
-                    new BigDecimal(daysDiff).divide(new BigDecimal(maxDaysDiff
-                            + 1), MC), MC);
-
-            final BigDecimal amountMatch = amountMatchScore.multiply(balance, MC);
-            final BigDecimal dateMatch = dateMatchScore.multiply(
-                    BigDecimal.ONE.subtract(balance, MC), MC);
-
-            final BigDecimal match = amountMatch.add(dateMatch);
-
-            return match.multiply(new BigDecimal(MAX_MATCH_SCORE), MC).intValue();
-        }
-
-        Map<Record, MatchInternal> mapRecords(Stream<Record> records) {
-            Map<T, List<Record>> mappedEntries = new HashMap<>();
-            Map<Record, MatchInternal> matches = new LinkedHashMap<>();
-
-            Consumer<Record> initializer = record -> {
-                final MatchInternal match;
-                if (recordFilter == null || recordFilter.test(record)) {
-                    match = findTransaction(record);
-                } else {
-                    match = null;
-                }
-                if (match != null) {
-                    if (match.isFullMatch()) {
-                        match.removeValue();
-                    } else {
-                        List<Record> mappedRecords = mappedEntries.get(
-                                match.getValue());
-                        if (mappedRecords == null) {
-                            mappedRecords = new ArrayList<>(List.of(record));
-                            mappedEntries.put(match.getValue(), mappedRecords);
-                        }
-                    }
-                }
-                matches.put(record, match);
-            };
-
-            // Collect all matches.
-            records.forEachOrdered(initializer);
-
-            List<Record> collisions = new ArrayList<>();
-            do {
-                // Resolve match collisions.
-                // Order matches by score. Start with the best match.
-                matches.values().stream()
-                        .filter(Objects::nonNull)
-                        .filter(Predicate.not(MatchInternal::isFullMatch))
-                        .sorted(Comparator.comparingInt(MatchInternal::getMatchScore).reversed())
-                        .forEachOrdered(match -> {
-                    List<Record> candidates = mappedEntries.get(match.getValue());
-                    if (candidates != null) {
-                        Record bestMatch = Collections.max(candidates,
-                                (x, y) -> calculateMatchScore(match.getValue(), x)
-                                - calculateMatchScore(match.getValue(), y));
-                        match.removeValue();
-                        mappedEntries.remove(match.getValue());
-                        candidates.stream()
-                                .filter(Predicate.not(bestMatch::equals))
-                                .forEachOrdered(collisions::add);
-                    }
-                });
-                collisions.forEach(initializer);
-            } while (!collisions.isEmpty());
-
-            return matches;
-        }
-
-        @Override
-        public String toString() {
-            return String.format("amount-diff=%s; days-diff=%d; balance=%s",
-                    maxAmountDiff, maxDaysDiff, balance);
-        }
-
-        private final long maxDaysDiff;
-        private final BigDecimal maxAmountDiff;
-        private final BigDecimal balance;
-    }
-}
+package com.budgetmaster.budgetmaster;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+
+public final class MarketplaceTransactions<T> {
+    public final static int MAX_MATCH_SCORE = 1000;
+    public final static int MAX_BALANCE = 1000;
+    public final static int MAX_AMOUNT_DIFF = 1000;
+
+    public final static class IntRange implements Iterable<Integer> {
+        IntRange(int startInclusive, int endInclusive, int step) {
+            this.startInclusive = startInclusive;
+            this.endInclusive = endInclusive;
+            this.step = step;
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return !started || value != endInclusive;
+                }
+
+                @Override
+                public Integer next() {
+                    started = true;
+                    try {
+                        return value;
+                    } finally {
+                        value += step;
+                        if (value > endInclusive) {
+                            value = endInclusive;
+                        }
+                    }
+                }
+
+                private int value = startInclusive;
+                private boolean started;
+            };
+        }
+
+        private final int startInclusive, endInclusive, step;
+    }
+
+    public enum SearchStrategy {
+        Exhaustive,
+        BranchAndBound;
+
+        public String xmlName() {
+            return String.join("-", name().split("(?=\\p{Lu})")).toLowerCase();
+        }
+
+        public static SearchStrategy fromXmlName(String v) {
+            return Stream.of(values())
+                    .filter(strategy -> strategy.xmlName().equals(v))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(String.format(
+                            "Invalid search strategy [%s]. Valid values: %s", v,
+                            Stream.of(values()).map(SearchStrategy::xmlName)
+                                    .collect(Collectors.toList()))));
+        }
+    };
+
+    public final class Match {
+        Match(int score, Record key, T value) {
+            if (score <= 0) {
+                throw new IllegalArgumentException(String.format(
+                        "Invalid match score=%d for key=%s and value=%s", score,
+                        key, value));
+            }
+
+            this.key = key;
+            this.value = value;
+            this.score = score;
+        }
+
+        public Record getKey() {
+            return key;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public int getMatchScore() {
+            return score;
+        }
+
+        public BigDecimal getAmountDiff() {
+            return getAmount(key).subtract(getAmount(value));
+        }
+
+        public long getDayDiff() {
+            return ChronoUnit.DAYS.between(getDate(key), getDate(value));
+        }
+
+        public Set<String> getTags() {
+            Set<String> tags = null;
+            if (amountDiffTag != null) {
+                final BigDecimal amountDiff = getAmountDiff();
+                if (amountDiff.compareTo(BigDecimal.ZERO) != 0) {
+                    if (tags == null) {
+                        tags = new HashSet<>();
+                    }
+                    tags.add(amountDiffTag);
+                    tags.add(String.format("%s_%s", amountDiffTag,
+                            amountDiff.toPlainString()));
+                }
+            }
+
+            if (daysDiffTag != null) {
+                final long daysDiff = getDayDiff();
+                if (daysDiff != 0) {
+                    if (tags == null) {
+                        tags = new HashSet<>();
+                    }
+                    tags.add(daysDiffTag);
+                    tags.add(String.format("%s_%d", daysDiffTag, daysDiff));
+                }
+            }
+
+            return tags;
+        }
+
+        @Override
+        public String toString() {
+            final BigDecimal amountDiff = getAmountDiff();
+            final long daysDiff = getDayDiff();
+
+            StringBuilder sb = new StringBuilder();
+            if (amountDiff.compareTo(BigDecimal.ZERO) != 0) {
+                sb.append(String.format(" amount-diff=%s;", amountDiff));
+            }
+            if (daysDiff != 0) {
+                sb.append(String.format(" days-diff=%s;", daysDiff));
+            }
+            return String.format("score=%d;%s key=[%s]; value=[%s]", score, sb, key,
+                    value);
+        }
+
+        private final Record key;
+        private final T value;
+        private final int score;
+    };
+
+    public MarketplaceTransactions(Stream<? extends T> transactions,
+            Function<T, BigDecimal> getAmount, Function<T, Currency> getCurrency,
+            Function<T, LocalDate> getDate) {
+        this.getAmount = getAmount;
+        this.getDate = getDate;
+        this.transactionsMap = new HashMap<>();
+        this.orderedTransactions = transactions.collect(Collectors.toCollection(
+                LinkedHashSet::new));
+
+        Map<Currency, List<T>> byCurrency = new LinkedHashMap<>();
+        orderedTransactions.forEach(v -> byCurrency.computeIfAbsent(
+                getCurrency.apply(v), x -> new ArrayList<>()).add(v));
+
+        int base = 0;
+        for (var e : byCurrency.entrySet()) {
+            transactionsMap.put(e.getKey(), new Transactions(e.getKey(),
+                    e.getValue(), base));
+            base += e.getValue().size();
+        }
+        this.claimed = new BitSet(base);
+
+        setMaxDaysRange(null);
+        setMaxAmountRange(null);
+        setBalanceRange(null);
+        setSearchStrategy(null);
+    }
+
+    public MarketplaceTransactions<T> setMaxDaysRange(IntRange v) {
+        if (v == null) {
+            maxDaysRange = new IntRange(0, 0, 0);
+        } else {
+            maxDaysRange = v;
+        }
+        return this;
+    }
+
+    public MarketplaceTransactions<T> setMaxAmountRange(IntRange v) {
+        if (v == null) {
+            maxAmountRange = new IntRange(0, 0, 0);
+        } else {
+            maxAmountRange = v;
+        }
+        return this;
+    }
+
+    public MarketplaceTransactions<T> setBalanceRange(IntRange v) {
+        if (v == null) {
+            balanceRange = new IntRange(MAX_BALANCE / 2, MAX_BALANCE / 2, 0);
+        } else {
+            balanceRange = v;
+        }
+        return this;
+    }
+
+    public MarketplaceTransactions<T> setSearchStrategy(SearchStrategy v) {
+        if (v == null) {
+            searchStrategy = SearchStrategy.Exhaustive;
+        } else {
+            searchStrategy = v;
+        }
+        return this;
+    }
+
+    public MarketplaceTransactions<T> setAmountDiffTag(String v) {
+        amountDiffTag = v;
+        return this;
+    }
+
+    public MarketplaceTransactions<T> setDaysDiffTag(String v) {
+        daysDiffTag = v;
+        return this;
+    }
+
+    public MarketplaceTransactions<T> setRecordFilter(Predicate<Record> v) {
+        recordFilter = v;
+        return this;
+    }
+
+    public Stream<Record> mapRecords(Stream<Record> records,
+            Function<Match, Record> merger) {
+
+        final long transactionCount = orderedTransactions.size();
+
+        List<Record> srcRecords = records.collect(Collectors.toList());
+        List<RecordKey> keys = srcRecords.stream().map(RecordKey::new).collect(
+                Collectors.toList());
+
+        List<int[]> grid = new ArrayList<>();
+        for (int maxDays : maxDaysRange) {
+            for (int maxAmount : maxAmountRange) {
+                for (int balance : balanceRange) {
+                    grid.add(new int[] {maxDays, maxAmount, balance});
+                }
+            }
+        }
+
+        final Iteration bestIteration;
+        final long skipped;
+        switch (searchStrategy) {
+            case BranchAndBound: {
+                AtomicLong skippedCounter = new AtomicLong();
+                bestIteration = branchAndBoundSearch(grid, keys,
+                        skippedCounter);
+                skipped = skippedCounter.get();
+                break;
+            }
+
+            default:
+                bestIteration = exhaustiveSearch(grid, keys);
+                skipped = 0;
+                break;
+        }
+
+        LOGGER.info(String.format("search=%s; iterations=%d; skipped=%d",
+                searchStrategy.xmlName(), grid.size(), skipped));
+
+        if (bestIteration != null) {
+            applyClaimed(bestIteration.claimed);
+
+            final Map<Record, MatchInternal> matches = bestIteration.matches;
+            int minScore = matches.values().stream()
+                    .filter(Objects::nonNull)
+                    .map(MatchInternal::getMatchScore)
+                    .min(Integer::compare).orElse(0);
+            LOGGER.finer(String.format("transactions=%d; matched=%d; unclaimed=%d; min_score=%d; %s",
+                transactionCount, transactionCount - orderedTransactions.size(),
+                orderedTransactions.size(), minScore, bestIteration));
+
+            // Apply matches.
+            return matches.entrySet().stream().map(e -> {
+                if (e.getValue() != null) {
+                    return merger.apply(e.getValue().createMatch(e.getKey()));
+                }
+                return e.getKey();
+            });
+        }
+
+        return srcRecords.stream();
+    }
+
+    /**
+     * Runs all iterations of the grid.
+     *
+     * Iterations work on private copies of the claimed transactions set and
+     * can run concurrently. Picks the iteration with the most matches. If
+     * there are several, picks the first one in the grid order.
+     */
+    private Iteration exhaustiveSearch(List<int[]> grid, List<RecordKey> records) {
+        return IntStream.range(0, grid.size())
+                .parallel()
+                .mapToObj(i -> runIteration(i, grid.get(i), records))
+                .filter(iteration -> iteration.matchesCount > 0)
+                .reduce(Iteration::best)
+                .orElse(null);
+    }
+
+    /**
+     * Runs only iterations of the grid that can beat the best iteration found
+     * so far.
+     *
+     * The number of matches of an iteration is bounded by the number of
+     * records with at least one candidate transaction within the amount and
+     * date tolerances of the iteration. The bound doesn't depend on the
+     * balance and grows with tolerances. Iterations are ordered by the bound
+     * and skipped if the bound is below the number of matches of the best
+     * iteration. Picks the same iteration as the exhaustive search.
+     */
+    private Iteration branchAndBoundSearch(List<int[]> grid,
+            List<RecordKey> records, AtomicLong skipped) {
+        Map<List<Integer>, Long> bounds = grid.stream()
+                .map(params -> List.of(params[0], params[1]))
+                .distinct()
+                .collect(Collectors.toList())
+                .parallelStream()
+                .collect(Collectors.toMap(Function.identity(),
+                        tolerances -> new Iteration(-1, tolerances.get(0),
+                                tolerances.get(1), MAX_BALANCE / 2).maxMatchesCount(
+                                records)));
+
+        final long[] gridBounds = grid.stream()
+                .map(params -> List.of(params[0], params[1]))
+                .mapToLong(bounds::get)
+                .toArray();
+
+        AtomicReference<Iteration> best = new AtomicReference<>();
+
+        IntStream.range(0, grid.size())
+                .boxed()
+                .sorted(Comparator.comparingLong((Integer i) -> gridBounds[i])
+                        .reversed()
+                        .thenComparing(Comparator.naturalOrder()))
+                .collect(Collectors.toList())
+                .parallelStream()
+                .forEach(i -> {
+                    final Iteration current = best.get();
+                    final long bound = gridBounds[i];
+                    if (bound == 0 || (current != null && (bound
+                            < current.matchesCount || (bound
+                            == current.matchesCount && i > current.index)))) {
+                        skipped.incrementAndGet();
+                        return;
+                    }
+
+                    Iteration iteration = runIteration(i, grid.get(i), records);
+                    if (iteration.matchesCount > 0) {
+                        best.accumulateAndGet(iteration,
+                                (x, y) -> x == null ? y : x.best(y));
+                    }
+                });
+
+        return best.get();
+    }
+
+    private Iteration runIteration(int index, int[] params,
+            List<RecordKey> records) {
+        Iteration iteration = new Iteration(index, params[0], params[1],
+                params[2]);
+        iteration.mapRecords(records);
+
+        LOGGER.finer(String.format("%s; unmatched=%d", iteration,
+                records.size() - iteration.matchesCount));
+
+        return iteration;
+    }
+
+    public Record mapRecord(Match match, Function<T, String> newDescription,
+            Function<T, Set<String>> newTags, Logger logger) {
+        RecordBuilder rb = RecordBuilder.from(match.getKey());
+        rb.setDescription(newDescription.apply(match.getValue()));
+
+        StringBuilder logMsg = null;
+        if (logger.isLoggable(Level.INFO)) {
+            logMsg = new StringBuilder();
+            logMsg.append(String.format("Set [%s] description",
+                    rb.getDescription()));
+        }
+
+        Set<String> tags = Stream.of(newTags.apply(match.getValue()), match.getTags())
+                .filter(Objects::nonNull)
+                .flatMap(x -> x.stream())
+                .collect(Collectors.toSet());
+
+        if (tags != null) {
+            Set<String> oldTags = null;
+            if (logger.isLoggable(Level.INFO)) {
+                if (rb.getTags() != null) {
+                    oldTags = Set.of(rb.getTags());
+                } else {
+                    oldTags = Set.of();
+                }
+            }
+
+            tags.forEach(rb::addTag);
+
+            if (logger.isLoggable(Level.INFO)) {
+                Set<String> addedTags = new HashSet<>(Set.of(rb.getTags()));
+                addedTags.removeAll(oldTags);
+
+                if (!addedTags.isEmpty()) {
+                    logMsg.append(String.format("; add %s tags", addedTags));
+                }
+            }
+        }
+
+        logger.info(String.format("%s in [%s]", logMsg, match));
+
+        return rb.create();
+    }
+
+    public Stream<? extends T> getUnclaimedTransactions() {
+        return orderedTransactions.stream();
+    }
+
+    private void applyClaimed(BitSet v) {
+        for (Transactions transactions : transactionsMap.values()) {
+            transactions.forEachClaimed(v, orderedTransactions::remove);
+        }
+        claimed = v;
+    }
+
+    private LocalDate getDate(Object o) {
+        if (o instanceof Record) {
+            return ((Record)o).getTransactionDate();
+        }
+        if (o instanceof LocalDate) {
+            return (LocalDate)o;
+        }
+        return getDate.apply((T)o);
+    }
+
+    private BigDecimal getAmount(Object o) {
+        if (o instanceof Record) {
+            return ((Record)o).getAmount();
+        }
+        if (o instanceof BigDecimal) {
+            return (BigDecimal)o;
+        }
+        return getAmount.apply((T)o);
+    }
+
+    private final Function<T, BigDecimal> getAmount;
+    private final Function<T, LocalDate> getDate;
+    private final Map<Currency, Transactions> transactionsMap;
+    private final Collection<? extends T> orderedTransactions;
+    private Predicate<Record> recordFilter;
+    private BitSet claimed;
+    private IntRange maxDaysRange;
+    private IntRange maxAmountRange;
+    private IntRange balanceRange;
+    private SearchStrategy searchStrategy;
+    private String amountDiffTag;
+    private String daysDiffTag;
+
+    final static MathContext MC = MathContext.DECIMAL32;
+
+    private final static Logger LOGGER = LoggingRecordMapper.LOGGER;
+
+    private final static int BUCKET_SIZE = 64;
+
+    /**
+     * Max absolute amount in minor currency units handled with fixed-point
+     * math. Keeps products of amounts and tolerances within long range.
+     */
+    private final static long MAX_MINOR_AMOUNT = 1_000_000_000_000L;
+
+    /**
+     * Record with amount and date converted to the representation used by
+     * the index of transactions in the currency of the record.
+     */
+    private final class RecordKey {
+        RecordKey(Record record) {
+            this.record = record;
+            transactions = transactionsMap.get(record.getCurrency());
+            day = Math.toIntExact(record.getTransactionDate().toEpochDay());
+            if (transactions != null) {
+                amount = transactions.toMinorUnits(record.getAmount());
+            } else {
+                amount = Decimal32.INEXACT;
+            }
+        }
+
+        private final Record record;
+        private final Transactions transactions;
+        private final long amount;
+        private final int day;
+    }
+
+    /**
+     * Index of transactions in the same currency over (amount, date) pairs.
+     *
+     * Transactions are sorted by amount and split in fixed size buckets.
+     * Transactions in every bucket are additionally ordered by date. Lookup
+     * of transactions in the given amount and date ranges scans transactions
+     * of partially covered buckets and runs binary search by date in fully
+     * covered buckets. Removed transactions are marked in a bit set and
+     * never physically removed from the index.
+     *
+     * Amounts are additionally stored as longs in minor currency units and
+     * dates as epoch days. Matching uses them with fixed-point math and falls
+     * back to BigDecimal math for amounts that don't fit.
+     */
+    private final class Transactions {
+        Transactions(Currency currency, List<? extends T> items, int base) {
+            this.base = base;
+            fractionDigits = currency != null
+                    ? currency.getDefaultFractionDigits() : -1;
+
+            values = new ArrayList<>(items);
+            values.sort((x, y) -> getAmount.apply(x).compareTo(getAmount.apply(y)));
+
+            final int count = values.size();
+            amounts = new BigDecimal[count];
+            minorAmounts = new long[count];
+            days = new int[count];
+            boolean allExact = true;
+            for (int i = 0; i != count; ++i) {
+                amounts[i] = getAmount.apply(values.get(i));
+                minorAmounts[i] = toMinorUnits(amounts[i]);
+                allExact &= (minorAmounts[i] != Decimal32.INEXACT);
+                days[i] = Math.toIntExact(getDate.apply(values.get(i)).toEpochDay());
+            }
+            exact = allExact;
+
+            dateOrder = new int[count];
+            dateOrderDays = new int[count];
+            for (int begin = 0; begin < count; begin += BUCKET_SIZE) {
+                final int end = Math.min(begin + BUCKET_SIZE, count);
+                // Order by date and then by amount index.
+                long[] bucket = new long[end - begin];
+                for (int i = begin; i != end; ++i) {
+                    bucket[i - begin] = ((long) days[i] << 32) | i;
+                }
+                Arrays.sort(bucket);
+                for (int i = begin; i != end; ++i) {
+                    dateOrder[i] = (int) bucket[i - begin];
+                    dateOrderDays[i] = days[dateOrder[i]];
+                }
+            }
+        }
+
+        /**
+         * Returns the given amount in minor currency units or
+         * Decimal32.INEXACT if it has more fraction digits than the currency
+         * or is out of range.
+         */
+        private long toMinorUnits(BigDecimal amount) {
+            if (fractionDigits < 0) {
+                return Decimal32.INEXACT;
+            }
+            try {
+                final long v = amount.movePointRight(fractionDigits)
+                        .longValueExact();
+                if (Math.abs(v) > MAX_MINOR_AMOUNT) {
+                    return Decimal32.INEXACT;
+                }
+                return v;
+            } catch (ArithmeticException ex) {
+                return Decimal32.INEXACT;
+            }
+        }
+
+        private MatchInternal bestMatch(RecordKey key, Iteration iteration) {
+            // {index, score} of the best match
+            final int[] best = new int[] {-1, 0};
+            forEachCandidate(key, iteration, idx -> {
+                final int score = iteration.calculateMatchScore(this, idx, key);
+                if (score > best[1] || (score == best[1] && score != 0
+                        && idx < best[0])) {
+                    best[0] = idx;
+                    best[1] = score;
+                }
+                return true;
+            });
+
+            if (best[0] < 0) {
+                return null;
+            }
+            return new MatchInternal(this, best[0], best[1]);
+        }
+
+        private boolean hasCandidate(RecordKey key, Iteration iteration) {
+            return !forEachCandidate(key, iteration,
+                    idx -> !iteration.isCandidate(this, idx, key));
+        }
+
+        /**
+         * Calls the given action for every unclaimed transaction in the amount
+         * and date ranges of the given key. Stops when the action returns
+         * false. Returns false if stopped and true otherwise.
+         */
+        private boolean forEachCandidate(RecordKey key, Iteration iteration,
+                IntPredicate action) {
+            final int[] amountRange = findAmountRange(key, iteration);
+            final int from = amountRange[0];
+            final int to = amountRange[1];
+
+            final long minDay = (long) key.day - iteration.maxDaysDiff;
+            final long maxDay = (long) key.day + iteration.maxDaysDiff;
+
+            for (int begin = from - from % BUCKET_SIZE; begin < to;
+                    begin += BUCKET_SIZE) {
+                final int end = Math.min(begin + BUCKET_SIZE, values.size());
+                if (begin >= from && end <= to) {
+                    // The whole bucket is in the amount range.
+                    for (int i = lowerBound(dateOrderDays, begin, end, minDay);
+                            i != end && dateOrderDays[i] <= maxDay; ++i) {
+                        final int idx = dateOrder[i];
+                        if (!iteration.claimed.get(base + idx)
+                                && !action.test(idx)) {
+                            return false;
+                        }
+                    }
+                } else {
+                    for (int idx = Math.max(from, begin),
+                            idxEnd = Math.min(to, end); idx < idxEnd; ++idx) {
+                        if (days[idx] < minDay || days[idx] > maxDay) {
+                            continue;
+                        }
+                        if (!iteration.claimed.get(base + idx)
+                                && !action.test(idx)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void forEachClaimed(BitSet v, Consumer<T> consumer) {
+            for (int idx = v.nextSetBit(base); idx >= 0
+                    && idx < base + values.size(); idx = v.nextSetBit(idx + 1)) {
+                consumer.accept(values.get(idx - base));
+            }
+        }
+
+        private int[] findAmountRange(RecordKey key, Iteration iteration) {
+            if (exact && key.amount != Decimal32.INEXACT) {
+                // Same bounds as below computed in units of 1/MAX_AMOUNT_DIFF
+                // of the minor currency unit.
+                final long keyA = Decimal32.roundInteger(key.amount
+                        * (MAX_AMOUNT_DIFF - iteration.maxAmountDiffValue));
+                final long keyB = Decimal32.roundInteger(key.amount
+                        * (MAX_AMOUNT_DIFF + iteration.maxAmountDiffValue));
+                final long leftKey, rightKey;
+                if (key.amount > 0) {
+                    leftKey = keyA;
+                    rightKey = keyB;
+                } else {
+                    leftKey = keyB;
+                    rightKey = keyA;
+                }
+
+                return new int[] {
+                    bound(leftKey, false),
+                    bound(rightKey, true)
+                };
+            }
+
+            final BigDecimal theKey = getAmount(key.record);
+            final BigDecimal keyA = theKey.multiply(BigDecimal.ONE.subtract(
+                    iteration.maxAmountDiff, MC), MC);
+            final BigDecimal keyB = theKey.multiply(BigDecimal.ONE.add(
+                    iteration.maxAmountDiff, MC), MC);
+            final BigDecimal leftKey, rightKey;
+            if (theKey.compareTo(BigDecimal.ZERO) > 0) {
+                leftKey = keyA;
+                rightKey = keyB;
+            } else {
+                leftKey = keyB;
+                rightKey = keyA;
+            }
+
+            return new int[] {
+                bound(leftKey, false),
+                bound(rightKey, true)
+            };
+        }
+
+        /**
+         * Returns index of the first amount greater than (if `upper` is true)
+         * or greater or equal to (if `upper` is false) the given key.
+         */
+        private int bound(BigDecimal key, boolean upper) {
+            int low = 0;
+            int high = amounts.length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                final int cmp = amounts[mid].compareTo(key);
+                if (cmp < 0 || (upper && cmp == 0)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Same as bound(BigDecimal, boolean) for the key in units of
+         * 1/MAX_AMOUNT_DIFF of the minor currency unit.
+         */
+        private int bound(long key, boolean upper) {
+            int low = 0;
+            int high = minorAmounts.length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                final long v = minorAmounts[mid] * MAX_AMOUNT_DIFF;
+                if (v < key || (upper && v == key)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private final int base;
+        private final int fractionDigits;
+        private final boolean exact;
+        private final List<T> values;
+        private final BigDecimal[] amounts;
+        private final long[] minorAmounts;
+        private final int[] days;
+        private final int[] dateOrder;
+        private final int[] dateOrderDays;
+    }
+
+    private static int lowerBound(int[] values, int begin, int end, long key) {
+        int low = begin;
+        int high = end;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private final class MatchInternal {
+        MatchInternal(Transactions transactions, int idx, int score) {
+            this.transactions = transactions;
+            this.idx = idx;
+            this.value = Objects.requireNonNull(transactions.values.get(idx));
+            this.index = transactions.base + idx;
+            this.score = score;
+        }
+
+        T getValue() {
+            return value;
+        }
+
+        int getMatchScore() {
+            return score;
+        }
+
+        boolean isFullMatch() {
+            return getMatchScore() == MAX_MATCH_SCORE;
+        }
+
+        Match createMatch(Record key) {
+            return new Match(score, key, value);
+        }
+
+        private final Transactions transactions;
+        private final int idx;
+        private final T value;
+        private final int index;
+        private final int score;
+    };
+
+    /**
+     * Scores pairs of amounts and day differences within amount and date
+     * tolerances.
+     *
+     * Scores are calculated with BigDecimal math in MC context or with
+     * equivalent fixed-point math on amounts in minor currency units. Both
+     * give the same scores. Fixed-point math is used whenever the amounts
+     * allow it.
+     */
+    static class MatchScorer {
+        MatchScorer(int maxDaysDiff, int maxAmountDiff, int balance) {
+            if (maxAmountDiff > MAX_AMOUNT_DIFF) {
+                throw new IllegalArgumentException();
+            }
+
+            if (balance > MAX_BALANCE) {
+                throw new IllegalArgumentException();
+            }
+
+            this.maxDaysDiff = maxDaysDiff;
+            this.maxAmountDiff = new BigDecimal(maxAmountDiff).divide(
+                    new BigDecimal(MAX_AMOUNT_DIFF), MC);
+            this.balance = new BigDecimal(balance).divide(new BigDecimal(
+                    MAX_BALANCE), MC);
+            this.maxAmountDiffValue = maxAmountDiff;
+            this.maxAmountDiffFixed = Decimal32.divide(maxAmountDiff,
+                    MAX_AMOUNT_DIFF);
+            this.balanceValue = balance;
+        }
+
+        int calculateMatchScore(BigDecimal aAmount, BigDecimal bAmount,
+                long daysDiff) {
+            BigDecimal amountDelta = aAmount.subtract(bAmount, MC).abs();
+
+            final BigDecimal amountMatchDiff = amountDelta.divide(aAmount.max(
+                    bAmount), MC);
+            if (amountMatchDiff.compareTo(maxAmountDiff) > 0) {
+                return 0;
+            }
+
+            final BigDecimal amountMatchScore = BigDecimal.ONE.subtract(
+                    amountMatchDiff, MC);
+
+            if (daysDiff > maxDaysDiff) {
+                return 0;
+            }
+
+            final BigDecimal dateMatchScore = BigDecimal.ONE.subtract(
+                    new BigDecimal(daysDiff).divide(new BigDecimal(maxDaysDiff
+                            + 1), MC), MC);
+
+            final BigDecimal amountMatch = amountMatchScore.multiply(balance, MC);
+            final BigDecimal dateMatch = dateMatchScore.multiply(
+                    BigDecimal.ONE.subtract(balance, MC), MC);
+
+            final BigDecimal match = amountMatch.add(dateMatch);
+
+            return match.multiply(new BigDecimal(MAX_MATCH_SCORE), MC).intValue();
+        }
+
+        /**
+         * Same as calculateMatchScore(BigDecimal, BigDecimal, long) for
+         * amounts in minor currency units. Returns Decimal32.INEXACT if the
+         * score can't be calculated with fixed-point math.
+         */
+        long calculateMatchScore(long aAmount, long bAmount, long daysDiff) {
+            final long amountMatchDiff = amountMatchDiff(aAmount, bAmount);
+            if (amountMatchDiff == Decimal32.INEXACT) {
+                return Decimal32.INEXACT;
+            }
+            if (amountMatchDiff > maxAmountDiffFixed) {
+                return 0;
+            }
+            if (amountMatchDiff <= -Decimal32.ONE) {
+                // Keep the following products in long range.
+                return Decimal32.INEXACT;
+            }
+
+            final long amountMatchScore = Decimal32.subtract(Decimal32.ONE,
+                    amountMatchDiff);
+
+            if (daysDiff > maxDaysDiff) {
+                return 0;
+            }
+
+            final long dateMatchScore = Decimal32.subtract(Decimal32.ONE,
+                    Decimal32.divide(daysDiff, maxDaysDiff + 1));
+
+            // Balance is in 1/MAX_BALANCE units, i.e. has scale of 3.
+            final long amountMatch = Decimal32.multiply(amountMatchScore,
+                    balanceValue, 3);
+            final long dateMatch = Decimal32.multiply(dateMatchScore,
+                    MAX_BALANCE - balanceValue, 3);
+            if (amountMatch == Decimal32.INEXACT
+                    || dateMatch == Decimal32.INEXACT) {
+                return Decimal32.INEXACT;
+            }
+
+            final long match = Decimal32.multiply(amountMatch + dateMatch,
+                    MAX_MATCH_SCORE, 0);
+            if (match == Decimal32.INEXACT) {
+                return Decimal32.INEXACT;
+            }
+            return Decimal32.intValue(match);
+        }
+
+        /**
+         * Returns |a - b| / max(a, b) as a fixed-point value or
+         * Decimal32.INEXACT.
+         */
+        long amountMatchDiff(long aAmount, long bAmount) {
+            final long max = Math.max(aAmount, bAmount);
+            if (max == 0) {
+                return Decimal32.INEXACT;
+            }
+            return Decimal32.divide(Decimal32.roundInteger(Math.abs(aAmount
+                    - bAmount)), max);
+        }
+
+        final long maxDaysDiff;
+        final BigDecimal maxAmountDiff;
+        final BigDecimal balance;
+        final int maxAmountDiffValue;
+        final long maxAmountDiffFixed;
+        final int balanceValue;
+    }
+
+    private final class Iteration extends MatchScorer {
+        Iteration(int index, int maxDaysDiff, int maxAmountDiff, int balance) {
+            super(maxDaysDiff, maxAmountDiff, balance);
+            this.index = index;
+            this.claimed = (BitSet) MarketplaceTransactions.this.claimed.clone();
+        }
+
+        int calculateMatchScore(Transactions transactions, int idx,
+                RecordKey key) {
+            final long amount = transactions.minorAmounts[idx];
+            if (amount != Decimal32.INEXACT && key.amount != Decimal32.INEXACT) {
+                final long score = calculateMatchScore(amount, key.amount,
+                        Math.abs(transactions.days[idx] - key.day));
+                if (score != Decimal32.INEXACT) {
+                    return (int) score;
+                }
+            }
+            return calculateMatchScore(transactions.values.get(idx), key.record);
+        }
+
+        int calculateMatchScore(T a, Record b) {
+            return calculateMatchScore(getAmount(a), getAmount(b), Math.abs(
+                    ChronoUnit.DAYS.between(getDate(a), getDate(b))));
+        }
+
+        boolean isCandidate(Transactions transactions, int idx, RecordKey key) {
+            final long amount = transactions.minorAmounts[idx];
+            if (amount != Decimal32.INEXACT && key.amount != Decimal32.INEXACT) {
+                final long amountMatchDiff = amountMatchDiff(amount, key.amount);
+                if (amountMatchDiff != Decimal32.INEXACT) {
+                    return amountMatchDiff <= maxAmountDiffFixed && Math.abs(
+                            transactions.days[idx] - key.day) <= maxDaysDiff;
+                }
+            }
+            return isCandidate(transactions.values.get(idx), key.record);
+        }
+
+        /**
+         * Returns true if the given transaction and record are within amount
+         * and date tolerances of this iteration. A match is only possible
+         * between such pairs.
+         */
+        boolean isCandidate(T a, Record b) {
+            BigDecimal aAmount = getAmount(a);
+            BigDecimal bAmount = getAmount(b);
+            BigDecimal amountDelta = aAmount.subtract(bAmount, MC).abs();
+
+            final BigDecimal amountMatchDiff = amountDelta.divide(aAmount.max(
+                    bAmount), MC);
+            if (amountMatchDiff.compareTo(maxAmountDiff) > 0) {
+                return false;
+            }
+
+            return Math.abs(ChronoUnit.DAYS.between(getDate(a), getDate(b)))
+                    <= maxDaysDiff;
+        }
+
+        /**
+         * Returns the upper bound of the number of records this iteration
+         * can match. Claimed transactions only accumulate while records are
+         * matched, so a record can only be matched if it has a candidate
+         * transaction among the transactions unclaimed before the iteration.
+         */
+        long maxMatchesCount(List<RecordKey> records) {
+            return records.stream()
+                    .filter(key -> recordFilter == null || recordFilter.test(
+                            key.record))
+                    .filter(key -> key.transactions != null
+                            && key.transactions.hasCandidate(key, this))
+                    .count();
+        }
+
+        Iteration best(Iteration other) {
+            if (matchesCount != other.matchesCount) {
+                return matchesCount > other.matchesCount ? this : other;
+            }
+            return index < other.index ? this : other;
+        }
+
+        void mapRecords(List<RecordKey> records) {
+            Map<T, List<RecordKey>> mappedEntries = new HashMap<>();
+
+            Consumer<RecordKey> initializer = key -> {
+                final MatchInternal match;
+                if (recordFilter == null || recordFilter.test(key.record)) {
+                    match = findTransaction(key);
+                } else {
+                    match = null;
+                }
+                if (match != null) {
+                    if (match.isFullMatch()) {
+                        claimed.set(match.index);
+                    } else {
+                        List<RecordKey> mappedRecords = mappedEntries.get(
+                                match.getValue());
+                        if (mappedRecords == null) {
+                            mappedRecords = new ArrayList<>(List.of(key));
+                            mappedEntries.put(match.getValue(), mappedRecords);
+                        }
+                    }
+                }
+                matches.put(key.record, match);
+            };
+
+            // Collect all matches.
+            records.forEach(initializer);
+
+            List<RecordKey> collisions = new ArrayList<>();
+            do {
+                // Resolve match collisions.
+                // Order matches by score. Start with the best match.
+                matches.values().stream()
+                        .filter(Objects::nonNull)
+                        .filter(Predicate.not(MatchInternal::isFullMatch))
+                        .sorted(Comparator.comparingInt(MatchInternal::getMatchScore).reversed())
+                        .forEachOrdered(match -> {
+                    List<RecordKey> candidates = mappedEntries.get(match.getValue());
+                    if (candidates != null) {
+                        RecordKey bestMatch = Collections.max(candidates,
+                                (x, y) -> calculateMatchScore(match.transactions,
+                                        match.idx, x) - calculateMatchScore(
+                                        match.transactions, match.idx, y));
+                        claimed.set(match.index);
+                        mappedEntries.remove(match.getValue());
+                        candidates.stream()
+                                .filter(Predicate.not(bestMatch::equals))
+                                .forEachOrdered(collisions::add);
+                    }
+                });
+                collisions.forEach(initializer);
+            } while (!collisions.isEmpty());
+
+            matchesCount = matches.values().stream().filter(
+                    Objects::nonNull).count();
+        }
+
+        private MatchInternal findTransaction(RecordKey key) {
+            if (key.transactions != null) {
+                return key.transactions.bestMatch(key, this);
+            }
+
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("amount-diff=%s; days-diff=%d; balance=%s",
+                    maxAmountDiff, maxDaysDiff, balance);
+        }
+
+        private final int index;
+        private final BitSet claimed;
+        private final Map<Record, MatchInternal> matches = new LinkedHashMap<>();
+        private long matchesCount;
+    }
+}
@@ -1,6 +1,7 @@
 package com.budgetmaster.budgetmaster;
 
 import com.budgetmaster.budgetmaster.MarketplaceTransactions.IntRange;
+import com.budgetmaster.budgetmaster.MarketplaceTransactions.SearchStrategy;
 import static com.budgetmaster.budgetmaster.Util.queryNodes;
 import java.math.BigDecimal;
 import java.util.function.Consumer;
@@ -15,6 +16,7 @@ public class MarketplaceTransactionsInitializer implements Pluggable, Consumer<M
         mt.setMaxDaysRange(maxDaysRange);
         mt.setMaxAmountRange(maxAmountRange);
         mt.setBalanceRange(balanceRange);
+        mt.setSearchStrategy(searchStrategy);
         mt.setAmountDiffTag(amountDiffTag);
         mt.setDaysDiffTag(daysDiffTag);
     }
@@ -27,6 +29,12 @@ public class MarketplaceTransactionsInitializer implements Pluggable, Consumer<M
         balanceRange = initRange(root, "balance",
                 MarketplaceTransactions.MAX_BALANCE);
 
+        String searchStrategyText = Util.readLastElement(root, "search-strategy");
+        if (searchStrategyText != null) {
+            searchStrategy = SearchStrategy.fromXmlName(
+                    searchStrategyText.strip());
+        }
+
         amountDiffTag = Util.readLastElement(root, "diff-tag-amount");
 
         daysDiffTag = Util.readLastElement(root, "diff-tag-days");
@@ -83,6 +91,7 @@ public class MarketplaceTransactionsInitializer implements Pluggable, Consumer<M
     private IntRange maxDaysRange;
     private IntRange maxAmountRange;
     private IntRange balanceRange;
+    private SearchStrategy searchStrategy;
     
     private final int DEFAULT_MAX_STEPS = 20;
 }
@@ -0,0 +1,54 @@
+package com.budgetmaster.budgetmaster;
+
+import java.io.InterruptedIOException;
+
+
+/**
+ * Number of bytes shared by concurrent jobs. A job reserves bytes before
+ * allocating memory and releases them when the memory is no longer used.
+ * A reservation blocks until enough bytes are released by other jobs.
+ * Reservations larger than the budget are clamped to the budget, so a
+ * single job can always run.
+ */
+final class MemoryBudget {
+    MemoryBudget(long bytes) {
+        if (bytes < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid memory budget: %d", bytes));
+        }
+        this.total = bytes;
+        this.available = bytes;
+    }
+
+    /**
+     * Reserves the given number of bytes. Returns the number of reserved
+     * bytes to be passed to release().
+     */
+    synchronized long reserve(long bytes) throws InterruptedIOException {
+        final long reserved = Math.max(0, Math.min(bytes, total));
+        try {
+            while (available < reserved) {
+                wait();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(String.format(
+                    "Interrupted waiting for %d bytes of memory budget",
+                    reserved));
+        }
+        available -= reserved;
+        return reserved;
+    }
+
+    synchronized void release(long reserved) {
+        available += reserved;
+        notifyAll();
+    }
+
+    long getTotal() {
+        return total;
+    }
+
+    private final long total;
+    private long available;
+}
@@ -20,39 +20,154 @@ public final class MonetaryAmount {
         return amount;
     }
 
+    /**
+     * Parses amount with optional currency symbol, e.g. "$1,234,567.89",
+     * "-$7.10", "($7.10)", "7.10-". Amount is negative if it is prefixed or
+     * suffixed with minus sign or enclosed in parentheses. Commas in the
+     * integer part are group separators. Leading and trailing white space is
+     * ignored. Trailing zeros of the amount are stripped.
+     *
+     * @throws NumberFormatException if the value is not a monetary amount
+     */
     public static MonetaryAmount of(String value) {
-        return new MonetaryAmount(value);
+        return of(value, 0, value.length());
     }
 
-    private MonetaryAmount(String value) {
-        value = value.strip();
-        final boolean negative = value.charAt(0) == '-';
-        int idx = 0;
-        while (idx < value.length() && !Character.isDigit(value.charAt(idx))) {
-            idx++;
+    /**
+     * Parses [begin, end) range of the given characters as of(String) does.
+     * Amounts with up to 18 significant digits are accumulated in a long
+     * without intermediate strings.
+     */
+    static MonetaryAmount of(CharSequence value, int begin, int end) {
+        while (begin != end && Character.isWhitespace(value.charAt(begin))) {
+            begin++;
+        }
+        while (end != begin && Character.isWhitespace(value.charAt(end - 1))) {
+            end--;
+        }
+
+        int pos = begin;
+        boolean negative = false;
+        boolean parenthesized = false;
+        if (pos != end) {
+            if (value.charAt(pos) == '-') {
+                negative = true;
+                pos++;
+            } else if (value.charAt(pos) == '(') {
+                parenthesized = true;
+                pos++;
+            }
+        }
+
+        final int symbolBegin = pos;
+        while (pos != end && !Character.isDigit(value.charAt(pos))
+                && !(value.charAt(pos) == '.' && pos + 1 != end
+                && isDigit(value.charAt(pos + 1)))) {
+            pos++;
+        }
+        final int numberBegin = pos;
+
+        long unscaled = 0;
+        int significantDigits = 0;
+        int scale = 0;
+        boolean seenDigit = false;
+        boolean seenDot = false;
+        for (; pos != end; ++pos) {
+            final char c = value.charAt(pos);
+            if (isDigit(c)) {
+                seenDigit = true;
+                if (seenDot) {
+                    scale++;
+                }
+                if (unscaled != 0 || c != '0') {
+                    significantDigits++;
+                }
+                if (significantDigits <= MAX_LONG_DIGITS) {
+                    unscaled = unscaled * 10 + (c - '0');
+                }
+            } else if (c == ',' && seenDigit && !seenDot) {
+                // Group separator.
+            } else if (c == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                break;
+            }
+        }
+        final int numberEnd = pos;
+
+        if (pos != end && !negative && !parenthesized && value.charAt(pos)
+                == '-') {
+            negative = true;
+            pos++;
+        }
+        if (parenthesized && pos != end && value.charAt(pos) == ')') {
+            parenthesized = false;
+            negative = true;
+            pos++;
+        }
+        if (pos != end || parenthesized || !seenDigit) {
+            throw new NumberFormatException(String.format(
+                    "Invalid monetary amount: [%s]", value.subSequence(begin,
+                            end)));
         }
 
-        if (negative) {
-            currencySymbol = value.substring(1, idx);
-            amount = parse(value.substring(idx)).negate();
+        BigDecimal amount;
+        if (significantDigits <= MAX_LONG_DIGITS) {
+            // Strip trailing zeros like BigDecimal.stripTrailingZeros() does.
+            if (unscaled == 0) {
+                scale = 0;
+            }
+            while (unscaled != 0 && unscaled % 10 == 0) {
+                unscaled /= 10;
+                scale--;
+            }
+            amount = BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
         } else {
-            currencySymbol = value.substring(0, idx);
-            amount = parse(value.substring(idx));
+            final char[] digits = new char[numberEnd - numberBegin];
+            int len = 0;
+            for (int i = numberBegin; i != numberEnd; ++i) {
+                final char c = value.charAt(i);
+                if (c != ',') {
+                    digits[len++] = c;
+                }
+            }
+            amount = new BigDecimal(digits, 0, len).stripTrailingZeros();
+            if (negative) {
+                amount = amount.negate();
+            }
         }
+
+        return new MonetaryAmount(currencySymbol(value, symbolBegin,
+                numberBegin), amount);
+    }
+
+    private MonetaryAmount(String currencySymbol, BigDecimal amount) {
+        this.currencySymbol = currencySymbol;
+        this.amount = amount;
     }
 
-    private static BigDecimal parse(String value) {
-        int sepIdx = value.indexOf(',');
-        if (sepIdx > 0) {
-            value = value.substring(0, sepIdx) + value.substring(sepIdx + 1);
+    private static String currencySymbol(CharSequence value, int begin,
+            int end) {
+        if (begin == end) {
+            return "";
         }
+        if (end - begin == 1 && value.charAt(begin) == '$') {
+            return DOLLAR_SIGN;
+        }
+        return value.subSequence(begin, end).toString();
+    }
 
-        return new BigDecimal(value).stripTrailingZeros();
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
     }
 
     private final String currencySymbol;
     private final BigDecimal amount;
 
+    private final static int MAX_LONG_DIGITS = 18;
+
+    private final static String DOLLAR_SIGN = "$";
+
     private static final Map<String, Currency> SYMBOL_TO_CURRENCY = Currency.getAvailableCurrencies().stream()
             .map(e -> Map.entry(e.getSymbol(Locale.US), e))
             .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
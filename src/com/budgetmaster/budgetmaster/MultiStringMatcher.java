@@ -0,0 +1,128 @@
+package com.budgetmaster.budgetmaster;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+
+/**
+ * Aho-Corasick automaton finding occurrences of multiple strings in text in
+ * one pass.
+ */
+final class MultiStringMatcher {
+    MultiStringMatcher(List<String> patterns) {
+        List<TreeMap<Character, Integer>> gotos = new ArrayList<>();
+        List<List<Integer>> outputs = new ArrayList<>();
+        gotos.add(new TreeMap<>());
+        outputs.add(new ArrayList<>());
+
+        for (int i = 0; i != patterns.size(); ++i) {
+            int state = 0;
+            for (char c : patterns.get(i).toCharArray()) {
+                Integer next = gotos.get(state).get(c);
+                if (next == null) {
+                    next = gotos.size();
+                    gotos.add(new TreeMap<>());
+                    outputs.add(new ArrayList<>());
+                    gotos.get(state).put(c, next);
+                }
+                state = next;
+            }
+            outputs.get(state).add(i);
+        }
+
+        final int stateCount = gotos.size();
+        offsets = new int[stateCount + 1];
+        for (int state = 0; state != stateCount; ++state) {
+            offsets[state + 1] = offsets[state] + gotos.get(state).size();
+        }
+        labels = new char[offsets[stateCount]];
+        targets = new int[offsets[stateCount]];
+        for (int state = 0; state != stateCount; ++state) {
+            int idx = offsets[state];
+            for (Map.Entry<Character, Integer> e : gotos.get(state).entrySet()) {
+                labels[idx] = e.getKey();
+                targets[idx] = e.getValue();
+                idx++;
+            }
+        }
+
+        // Breadth-first traversal to compute failure links. Outputs of the
+        // failure state are appended to the outputs of the state.
+        fail = new int[stateCount];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int idx = offsets[0]; idx != offsets[1]; ++idx) {
+            queue.add(targets[idx]);
+        }
+        while (!queue.isEmpty()) {
+            final int state = queue.remove();
+            for (int idx = offsets[state]; idx != offsets[state + 1]; ++idx) {
+                final int child = targets[idx];
+                int f = fail[state];
+                int next;
+                while ((next = transition(f, labels[idx])) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = (next >= 0 && next != child) ? next : 0;
+                outputs.get(child).addAll(outputs.get(fail[child]));
+                queue.add(child);
+            }
+        }
+
+        this.outputs = outputs.stream()
+                .map(v -> v.stream().mapToInt(Integer::intValue).distinct().toArray())
+                .toArray(int[][]::new);
+    }
+
+    /**
+     * Calls the given consumer with the index of every pattern occurring in
+     * the given text. The same index may be reported multiple times.
+     */
+    void forEachMatch(CharSequence text, IntConsumer consumer) {
+        forEachOccurrence(text, (patternIdx, end) -> consumer.accept(patternIdx));
+    }
+
+    @FunctionalInterface
+    interface OccurrenceConsumer {
+        void accept(int patternIdx, int end);
+    }
+
+    /**
+     * Calls the given consumer with the index of the pattern and the end
+     * index (exclusive) in the given text of every occurrence of every
+     * pattern. Occurrences are reported in the order of their end indices.
+     */
+    void forEachOccurrence(CharSequence text, OccurrenceConsumer consumer) {
+        int state = 0;
+        for (int i = 0, n = text.length(); i != n; ++i) {
+            final char c = text.charAt(i);
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = next < 0 ? 0 : next;
+            for (int patternIdx : outputs[state]) {
+                consumer.accept(patternIdx, i + 1);
+            }
+        }
+    }
+
+    private int transition(int state, char c) {
+        final int idx = Arrays.binarySearch(labels, offsets[state],
+                offsets[state + 1], c);
+        return idx < 0 ? -1 : targets[idx];
+    }
+
+    // State transitions. Transitions of the state `s` are in
+    // [offsets[s], offsets[s + 1]) ranges of `labels` and `targets` arrays
+    // sorted by labels.
+    private final int[] offsets;
+    private final char[] labels;
+    private final int[] targets;
+    private final int[] fail;
+    private final int[][] outputs;
+}
@@ -1,18 +1,24 @@
 package com.budgetmaster.budgetmaster;
 
-import java.time.temporal.ChronoUnit;
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.function.Function;
 import java.util.function.UnaryOperator;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 
+/**
+ * Keeps pairs of records of the same statement ID with opposite amounts
+ * made within the given period or, if negated, unpaired records with the
+ * same statement ID and absolute amount as other records (see
+ * filterRows()). Selected records are output grouped by statement ID and
+ * absolute amount in the iteration order of HashMaps keyed by them.
+ */
 final class OuroborosRecordsFilter implements UnaryOperator<Stream<Record>> {
 
     public OuroborosRecordsFilter negate(boolean v) {
@@ -32,104 +38,207 @@ final class OuroborosRecordsFilter implements UnaryOperator<Stream<Record>> {
 
     @Override
     public Stream<Record> apply(Stream<Record> records) {
-        Map<String, List<Record>> sourceClusters = new HashMap<>();
-
-        records.forEachOrdered(r -> {
-                    String sourceId = r.getSource().getId();
-                    List<Record> clusterRecords = sourceClusters.get(sourceId);
-                    if (clusterRecords == null) {
-                        clusterRecords = new ArrayList<>();
-                        sourceClusters.put(sourceId, clusterRecords);
-                    }
-                    clusterRecords.add(r);
-                });
-
-        return sourceClusters.values().stream().map(this::forEachSource).flatMap(
-                s -> s);
-    }
-
-    private Stream<Record> forEachSource(List<Record> records) {
-        return forEachCluster(records.stream(),
-                record -> record.getAmount().abs(), this::forEachAbsAmount);
+        return RecordBatch.filter(records, this::filterRows);
     }
 
-    private Stream<Record> forEachAbsAmount(Stream<Record> records) {
-        records = records.sorted((r1, r2) -> {
-            int result = r1.getTransactionDate().compareTo(
-                    r2.getTransactionDate());
+    /**
+     * Clusters rows by statement ID and absolute amount and pairs rows of
+     * every cluster with opposite signs. Returns paired rows or, if negated,
+     * unpaired rows of clusters with more than one row. Clusters are ordered
+     * like the values of a HashMap of statement IDs, each holding a HashMap
+     * of absolute amounts, filled with the given rows in the given order.
+     * Paired rows of a cluster are returned in the order of pairs, unpaired
+     * ones by date.
+     */
+    int[] filterRows(RecordBatch batch, int[] rows) {
+        final RecordBatch.StringColumn statementIds = batch.getStatementIds();
+
+        // Cluster rows and order rows of every cluster by date. Same day
+        // refunds go after purchases. The sort is stable, so rows of the same
+        // day and sign keep the given order.
+        final int[] sorted = rows.clone();
+        RecordBatch.sort(sorted, (r1, r2) -> {
+            int result = Integer.compare(statementIds.code(r1),
+                    statementIds.code(r2));
+            if (result == 0) {
+                result = compareAbsAmounts(batch, r1, r2);
+            }
             if (result == 0) {
-                // Same day transactions
-                int score1 = (r1.isNegative() ? 1 : 0);
-                int score2 = (r2.isNegative() ? 1 : 0);
-                result = score1 - score2;
+                result = Integer.compare(batch.getTransactionDay(r1),
+                        batch.getTransactionDay(r2));
+            }
+            if (result == 0) {
+                result = Boolean.compare(batch.isNegative(r1),
+                        batch.isNegative(r2));
             }
             return result;
         });
-        return forEachAbsAmount(records.toArray(Record[]::new));
+
+        final boolean[] paired = new boolean[sorted.length];
+        final int[] selected = new int[sorted.length];
+        final int[] clusters = new int[batch.size()];
+        final int[] clusterEnds = new int[sorted.length];
+        int clusterCount = 0;
+        int count = 0;
+        int end;
+        for (int begin = 0; begin != sorted.length; begin = end) {
+            end = begin + 1;
+            while (end != sorted.length && statementIds.code(sorted[begin])
+                    == statementIds.code(sorted[end]) && compareAbsAmounts(
+                            batch, sorted[begin], sorted[end]) == 0) {
+                end++;
+            }
+            if (end - begin > 1) {
+                count = forEachAbsAmount(batch, sorted, begin, end, paired,
+                        selected, count);
+            }
+            for (int i = begin; i != end; ++i) {
+                clusters[sorted[i]] = clusterCount;
+            }
+            clusterEnds[clusterCount++] = count;
+        }
+
+        return toHashMapOrder(batch, rows, clusters, clusterEnds, clusterCount,
+                selected, count);
+    }
+
+    /**
+     * Returns selected rows of clusters ordered like the values of the maps
+     * the filter used to cluster records with. The maps are rebuilt from the
+     * first row of every cluster in the given order of rows. Amounts were
+     * merged into their maps with Collectors.toMap(), so a statement whose
+     * last row repeats an amount gets one more merge, which may resize the
+     * table (see DupRecordsFilter.toHashMapOrder()).
+     */
+    private static int[] toHashMapOrder(RecordBatch batch, int[] rows,
+            int[] clusters, int[] clusterEnds, int clusterCount,
+            int[] selected, int selectedCount) {
+        final RecordBatch.StringColumn statementIds = batch.getStatementIds();
+        final int statementCount = statementIds.cardinality() + 1;
+        final Map<String, Integer> statements = new HashMap<>();
+        final List<Map<BigDecimal, Integer>> amountsByStatement
+                = new ArrayList<>(Collections.nCopies(statementCount, null));
+        final boolean[] lastRowIsDup = new boolean[statementCount];
+        final boolean[] seenClusters = new boolean[clusterCount];
+        for (int row : rows) {
+            int statement = statementIds.code(row);
+            if (statement == RecordBatch.NULL_CODE) {
+                // Records without statement ID go to the last slot.
+                statement = statementCount - 1;
+            }
+
+            Map<BigDecimal, Integer> amounts = amountsByStatement.get(
+                    statement);
+            if (amounts == null) {
+                amounts = new HashMap<>();
+                amountsByStatement.set(statement, amounts);
+                statements.put(statementIds.value(statementIds.code(row)),
+                        statement);
+            }
+
+            final int cluster = clusters[row];
+            lastRowIsDup[statement] = seenClusters[cluster];
+            if (!seenClusters[cluster]) {
+                seenClusters[cluster] = true;
+                amounts.merge(batch.getAmount(row).abs(), cluster,
+                        (existing, replacement) -> existing);
+            }
+        }
+
+        final int[] result = new int[selectedCount];
+        int count = 0;
+        for (int statement : statements.values()) {
+            final Map<BigDecimal, Integer> amounts = amountsByStatement.get(
+                    statement);
+            if (lastRowIsDup[statement]) {
+                amounts.merge(amounts.keySet().iterator().next(), 0,
+                        (existing, replacement) -> existing);
+            }
+            for (int cluster : amounts.values()) {
+                final int begin = cluster == 0 ? 0 : clusterEnds[cluster - 1];
+                final int end = clusterEnds[cluster];
+                System.arraycopy(selected, begin, result, count, end - begin);
+                count += end - begin;
+            }
+        }
+        return result;
     }
 
-    private Stream<Record> forEachAbsAmount(Record[] records) {
-        List<Record> matches = null;
-
-        for (int i = 0; i < records.length; ++i) {
-            if (records[i] != null) {
-                boolean isNegative = records[i].isNegative();
-                if ((refund && !isNegative) || !refund) {
-                    for (int j = i + 1; j < records.length; ++j) {
-                        if (records[j] != null && isNegative
-                                != records[j].isNegative()) {
-                            final long periodDays = ChronoUnit.DAYS.between(
-                                    records[i].getTransactionDate(),
-                                    records[j].getTransactionDate());
-                            if (periodDays < maxPeriodDays) {
-                                if (!negate) {
-                                    if (matches == null) {
-                                        matches = new ArrayList<>();
-                                    }
-                                    matches.add(records[i]);
-                                    matches.add(records[j]);
-                                }
-
-                                LOGGER.info(String.format(
-                                        "Matching records: [%s] [%s]",
-                                        records[i], records[j]));
-
-                                records[i] = null;
-                                records[j] = null;
-                                break;
-                            }
+    private int forEachAbsAmount(RecordBatch batch, int[] rows, int begin,
+            int end, boolean[] paired, int[] result, int count) {
+        for (int i = begin; i < end; ++i) {
+            if (paired[i]) {
+                continue;
+            }
+
+            final boolean isNegative = batch.isNegative(rows[i]);
+            if (refund && isNegative) {
+                continue;
+            }
+
+            for (int j = i + 1; j < end; ++j) {
+                if (!paired[j] && isNegative != batch.isNegative(rows[j])) {
+                    final long periodDays = (long) batch.getTransactionDay(
+                            rows[j]) - batch.getTransactionDay(rows[i]);
+                    if (periodDays < maxPeriodDays) {
+                        if (!negate) {
+                            result[count++] = rows[i];
+                            result[count++] = rows[j];
                         }
+
+                        if (LOGGER.isLoggable(Level.INFO)) {
+                            LOGGER.info(String.format(
+                                    "Matching records: [%s] [%s]",
+                                    batch.get(rows[i]), batch.get(rows[j])));
+                        }
+
+                        paired[i] = true;
+                        paired[j] = true;
+                        break;
                     }
                 }
             }
         }
 
         if (negate) {
-            return Stream.of(records).filter(Objects::nonNull);
-        }
-
-        if (matches == null) {
-            return Stream.of();
+            for (int i = begin; i < end; ++i) {
+                if (!paired[i]) {
+                    result[count++] = rows[i];
+                }
+            }
         }
 
-        return matches.stream();
+        return count;
     }
 
-    private <T> Stream<Record> forEachCluster(Stream<Record> records,
-            Function<Record, T> clusterFunction,
-            UnaryOperator<Stream<Record>> nextFilter) {
-        // Cluster records.
-        Map<T, Record[]> clusters = records.collect(Collectors.toMap(
-                clusterFunction,
-                record -> new Record[]{record},
-                (a, b) -> Stream.concat(Stream.of(a), Stream.of(b)).toArray(
-                        Record[]::new)));
-
-        return clusters.values().stream()
-                .filter(items -> items.length > 1)
-                .map(Stream::of)
-                .map(nextFilter)
-                .flatMap(s -> s);
+    /**
+     * Orders rows by absolute amounts. Amounts with equal values and
+     * different scales are different like they are for BigDecimal.equals().
+     */
+    private static int compareAbsAmounts(RecordBatch batch, int r1, int r2) {
+        final boolean large1 = batch.isLargeAmount(r1);
+        final boolean large2 = batch.isLargeAmount(r2);
+        if (large1 != large2) {
+            return Boolean.compare(large1, large2);
+        }
+
+        int result;
+        if (large1) {
+            result = batch.getAmount(r1).abs().compareTo(batch.getAmount(r2)
+                    .abs());
+            if (result == 0) {
+                result = Integer.compare(batch.getAmount(r1).scale(),
+                        batch.getAmount(r2).scale());
+            }
+        } else {
+            result = Long.compare(Math.abs(batch.getUnscaledAmount(r1)),
+                    Math.abs(batch.getUnscaledAmount(r2)));
+            if (result == 0) {
+                result = Integer.compare(batch.getAmountScale(r1),
+                        batch.getAmountScale(r2));
+            }
+        }
+        return result;
     }
 
     private boolean negate;
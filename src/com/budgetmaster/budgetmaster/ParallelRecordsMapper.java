@@ -0,0 +1,151 @@
+package com.budgetmaster.budgetmaster;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * Applies stateless record mapper to records in parallel.
+ *
+ * Records are read from the input stream in batches. Every batch is split in
+ * chunks mapped by tasks of the given fork-join pool. Mapped records are
+ * returned in the order of the input records. Null mapped records are
+ * dropped.
+ *
+ * Records the mapper discards are collected in per-chunk buffers. The mapper
+ * should add discarded records to the buffer of the current thread returned
+ * by getDiscardedRecordsBuffer(). When a batch is processed, buffers of its
+ * chunks are passed to the discarded records consumer in the order of the
+ * chunks.
+ */
+final class ParallelRecordsMapper implements UnaryOperator<Stream<Record>> {
+    ParallelRecordsMapper(UnaryOperator<Record> mapper, ForkJoinPool pool,
+            Consumer<List<Record>> discardedRecordsConsumer) {
+        Objects.requireNonNull(mapper);
+        Objects.requireNonNull(pool);
+        Objects.requireNonNull(discardedRecordsConsumer);
+
+        this.mapper = mapper;
+        this.pool = pool;
+        this.discardedRecordsConsumer = discardedRecordsConsumer;
+        this.chunkCount = pool.getParallelism() * CHUNKS_PER_THREAD;
+    }
+
+    /**
+     * Returns buffer for records discarded by the mapper in the current
+     * thread or null if the current thread is not mapping records.
+     */
+    static List<Record> getDiscardedRecordsBuffer() {
+        return DISCARDED_RECORDS.get();
+    }
+
+    @Override
+    public Stream<Record> apply(Stream<Record> records) {
+        final Iterator<Record> input = records.iterator();
+        final Iterator<Record> output = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                while (!batch.hasNext() && input.hasNext()) {
+                    batch = mapBatch(input).iterator();
+                }
+                return batch.hasNext();
+            }
+
+            @Override
+            public Record next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch.next();
+            }
+
+            private Iterator<Record> batch = List.<Record>of().iterator();
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(output,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(
+                        records::close);
+    }
+
+    private List<Record> mapBatch(Iterator<Record> input) {
+        final List<Record> batch = new ArrayList<>(chunkCount * CHUNK_SIZE);
+        while (batch.size() != chunkCount * CHUNK_SIZE && input.hasNext()) {
+            batch.add(input.next());
+        }
+
+        final List<Chunk> chunks = new ArrayList<>();
+        for (int from = 0; from < batch.size(); from += CHUNK_SIZE) {
+            chunks.add(new Chunk(batch.subList(from, Math.min(batch.size(),
+                    from + CHUNK_SIZE))));
+        }
+
+        if (chunks.size() == 1) {
+            chunks.get(0).run();
+        } else {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(
+                    chunks.stream().map(ForkJoinTask::adapt).collect(
+                            Collectors.toList()))));
+        }
+
+        final List<Record> result = new ArrayList<>(batch.size());
+        for (Chunk chunk : chunks) {
+            result.addAll(chunk.mappedRecords);
+            if (!chunk.discardedRecords.isEmpty()) {
+                discardedRecordsConsumer.accept(chunk.discardedRecords);
+            }
+        }
+        return result;
+    }
+
+    private final class Chunk implements Runnable {
+        Chunk(List<Record> records) {
+            this.records = records;
+            this.mappedRecords = new ArrayList<>(records.size());
+            this.discardedRecords = new ArrayList<>();
+        }
+
+        @Override
+        public void run() {
+            final List<Record> oldBuffer = DISCARDED_RECORDS.get();
+            DISCARDED_RECORDS.set(discardedRecords);
+            try {
+                for (Record record : records) {
+                    if (record != null) {
+                        final Record mappedRecord = mapper.apply(record);
+                        if (mappedRecord != null) {
+                            mappedRecords.add(mappedRecord);
+                        }
+                    }
+                }
+            } finally {
+                DISCARDED_RECORDS.set(oldBuffer);
+            }
+        }
+
+        private final List<Record> records;
+        private final List<Record> mappedRecords;
+        private final List<Record> discardedRecords;
+    }
+
+    private final UnaryOperator<Record> mapper;
+    private final ForkJoinPool pool;
+    private final Consumer<List<Record>> discardedRecordsConsumer;
+    private final int chunkCount;
+
+    private final static ThreadLocal<List<Record>> DISCARDED_RECORDS = new ThreadLocal<>();
+
+    private final static int CHUNK_SIZE = 512;
+    private final static int CHUNKS_PER_THREAD = 4;
+}
@@ -0,0 +1,266 @@
+package com.budgetmaster.budgetmaster;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.pdfbox.util.Version;
+
+
+/**
+ * On-disk cache of text extracted from PDF files.
+ *
+ * Text is stored gzip-compressed in a file per (PDF file content, text
+ * extraction settings, PDFBox version) triple. File name is SHA-256 digest
+ * of the content of the PDF file, the settings affecting the extracted text
+ * and the PDFBox version. Changes of any of them result in a cache miss.
+ * Unlike StatementCache, the key doesn't depend on the application build,
+ * so the text survives rebuilds made while parsers are edited.
+ *
+ * The total size of cache files is limited. When a new file makes the cache
+ * exceed the limit, the least recently used files are removed. Cache hits
+ * update modification times of cache files to track their use.
+ */
+final class PdfTextCache {
+    PdfTextCache(Path dir, long maxBytes) throws IOException {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid PDF text cache size limit: %d", maxBytes));
+        }
+        this.dir = Files.createDirectories(dir);
+        this.maxBytes = maxBytes;
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.savedBytes = new AtomicLong();
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+    long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the total size of PDF files text of which was taken from the
+     * cache instead of being extracted.
+     */
+    long getSavedByteCount() {
+        return savedBytes.get();
+    }
+
+    long getMaxByteCount() {
+        return maxBytes;
+    }
+
+    Path getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Returns text of the given PDF file extracted with the given extractor.
+     * Takes text from the cache if available. Extracts text and saves it in
+     * the cache otherwise.
+     */
+    String getText(Path pdfFile, PdfTextExtractor extractor) throws
+            IOException {
+        final Path cacheFile = dir.resolve(String.format("%s%s",
+                cacheKey(pdfFile, extractor), FILE_NAME_SUFFIX));
+
+        String text = null;
+        try {
+            text = load(cacheFile);
+        } catch (NoSuchFileException ex) {
+            // Not cached.
+        } catch (IOException ex) {
+            LOGGER.warning(String.format(
+                    "Failed to read [%s] cache file of [%s] PDF file: %s",
+                    cacheFile, pdfFile, ex));
+        }
+
+        if (text != null) {
+            hits.incrementAndGet();
+            savedBytes.addAndGet(Files.size(pdfFile));
+            LOGGER.finer(String.format(
+                    "Read text of [%s] PDF file from [%s] cache file", pdfFile,
+                    cacheFile));
+            try {
+                Files.setLastModifiedTime(cacheFile, FileTime.from(
+                        Instant.now()));
+            } catch (IOException ex) {
+                // Removed by a concurrent trim(). Not an error.
+            }
+            return text;
+        }
+
+        misses.incrementAndGet();
+        text = extractor.extractText(pdfFile);
+        try {
+            save(cacheFile, text);
+            trim();
+        } catch (IOException ex) {
+            LOGGER.warning(String.format(
+                    "Failed to write [%s] cache file of [%s] PDF file: %s",
+                    cacheFile, pdfFile, ex));
+        }
+        return text;
+    }
+
+    /**
+     * Returns the number of cache files.
+     */
+    long getEntryCount() throws IOException {
+        return listEntries().size();
+    }
+
+    /**
+     * Returns the total size of cache files.
+     */
+    long getByteCount() throws IOException {
+        long result = 0;
+        for (Path file : listEntries()) {
+            result += sizeOf(file);
+        }
+        return result;
+    }
+
+    /**
+     * Removes all cache files. Returns the number of removed files.
+     */
+    synchronized long purge() throws IOException {
+        long result = 0;
+        for (Path file : listEntries()) {
+            if (Files.deleteIfExists(file)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes least recently used cache files until the total size of cache
+     * files doesn't exceed the limit.
+     */
+    private synchronized void trim() throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        long total = 0;
+        for (Path file : listEntries()) {
+            final Entry entry = new Entry(file);
+            total += entry.size;
+            entries.add(entry);
+        }
+
+        if (total <= maxBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparingLong(entry -> entry.lastModified));
+        for (Entry entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            Files.deleteIfExists(entry.file);
+            total -= entry.size;
+            LOGGER.finer(String.format("Evict [%s] cache file", entry.file));
+        }
+    }
+
+    private List<Path> listEntries() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(
+                    FILE_NAME_SUFFIX)).collect(Collectors.toList());
+        }
+    }
+
+    private void save(Path cacheFile, String text) throws IOException {
+        final Path tmpFile = Files.createTempFile(dir, null, null);
+        try {
+            try (OutputStream out = new GZIPOutputStream(
+                    Files.newOutputStream(tmpFile))) {
+                out.write(text.getBytes(StandardCharsets.UTF_8));
+            }
+            // Concurrent jobs extracting text of the same content may race
+            // here. Either of the identical files wins.
+            Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    private static String load(Path cacheFile) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(
+                cacheFile))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String cacheKey(Path pdfFile, PdfTextExtractor extractor)
+            throws IOException {
+        MessageDigest md = StatementCache.newMessageDigest();
+        md.update(String.format("%d:%s:%s:sortByPosition=%b",
+                FORMAT_VERSION, Version.getVersion(), StatementCache
+                .contentDigest(pdfFile), extractor.isSortByPosition())
+                .getBytes(StandardCharsets.UTF_8));
+        return StatementCache.toHexString(md.digest());
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException ex) {
+            // Removed concurrently.
+            return 0;
+        }
+    }
+
+    private final static class Entry {
+        Entry(Path file) {
+            this.file = file;
+            this.size = sizeOf(file);
+            long time;
+            try {
+                time = Files.getLastModifiedTime(file).toMillis();
+            } catch (IOException ex) {
+                // Removed concurrently.
+                time = 0;
+            }
+            this.lastModified = time;
+        }
+
+        final Path file;
+        final long size;
+        final long lastModified;
+    }
+
+    private final Path dir;
+    private final long maxBytes;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong savedBytes;
+
+    private final static String FILE_NAME_SUFFIX = ".txt.gz";
+
+    private final static int FORMAT_VERSION = 1;
+
+    private static final Logger LOGGER = Logger.getLogger(
+            MethodHandles.lookup().lookupClass().getName());
+}
@@ -1,40 +1,267 @@
 package com.budgetmaster.budgetmaster;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Logger;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
 import org.apache.pdfbox.text.PDFTextStripper;
 
 public final class PdfTextExtractor {
 
+    /**
+     * Sets the maximum number of PDF files processed concurrently by all
+     * extractors. Text extraction is CPU-heavy, running more extractions than
+     * there are processors only adds memory pressure.
+     */
+    public static void setMaxConcurrentExtractions(int v) {
+        if (v < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid maximum number of concurrent extractions: %d", v));
+        }
+        extractionPermits = new Semaphore(v);
+    }
+
+    /**
+     * Sets the number of bytes shared by all extractors for loading PDF
+     * files. Loading of a document reserves the maximum amount of main memory
+     * the document may use (see setMaxMainMemoryBytes()) or, if it is not
+     * limited, the estimate of the heap a loaded document uses while its
+     * text is extracted (see estimateDocumentMemory()). Loading blocks until
+     * the reservation fits the budget, so the number of documents loaded
+     * concurrently adapts to the memory they use.
+     */
+    public static void setMemoryBudget(long bytes) {
+        memoryBudget = new MemoryBudget(bytes);
+    }
+
     public String extractText(Path pdfFile) throws IOException {
-        try (PDDocument document = PDDocument.load(pdfFile.toFile())) {
-            AccessPermission ap = document.getCurrentAccessPermission();
-            if (!ap.canExtractContent()) {
-                throw new IOException("You do not have permission to extract text");
-            }
+        final String pdfText;
+        if (pageJobs == 1) {
+            pdfText = withDocument(pdfFile, document -> {
+                checkPermissions(document);
+                return extractText(document, 1, Integer.MAX_VALUE);
+            });
+        } else {
+            pdfText = extractTextByPages(pdfFile);
+        }
 
-            PDFTextStripper stripper = new PDFTextStripper();
+        LOGGER.finest(pdfText);
 
-            stripper.setSortByPosition(sortByPosition);
+        return pdfText;
+    }
 
-            String pdfText = stripper.getText(document);
+    public PdfTextExtractor setSortByPosition(boolean v) {
+        sortByPosition = v;
+        return this;
+    }
 
-            LOGGER.finest(pdfText);
+    boolean isSortByPosition() {
+        return sortByPosition;
+    }
 
-            return pdfText;
+    /**
+     * Sets the number of page ranges of a PDF file to extract text from
+     * concurrently. Every range is extracted from a separate instance of the
+     * document, the texts of the ranges are concatenated in the page order.
+     * 0 is the number of processors. The default is 1, the whole document is
+     * extracted in the calling thread.
+     */
+    public PdfTextExtractor setPageJobs(int v) {
+        if (v < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid number of page jobs: %d", v));
         }
+        pageJobs = v;
+        return this;
     }
 
-    public PdfTextExtractor setSortByPosition(boolean v) {
-        sortByPosition = v;
+    /**
+     * Sets the maximum number of bytes of main memory a document may use.
+     * The rest is kept in temporary files. Negative value means the whole
+     * document is kept in main memory. This is the default.
+     */
+    public PdfTextExtractor setMaxMainMemoryBytes(long v) {
+        maxMainMemoryBytes = v;
         return this;
     }
 
+    private String extractTextByPages(Path pdfFile) throws IOException {
+        // PDDocument is not thread-safe. Every page range is extracted from
+        // its own instance of the document loaded from the file. Documents
+        // read the file on demand, so the file is not held in memory outside
+        // of the memory budget.
+        final int pageCount = withDocument(pdfFile, document -> {
+            checkPermissions(document);
+            return document.getNumberOfPages();
+        });
+
+        int jobCount = pageJobs;
+        if (jobCount == 0) {
+            jobCount = Runtime.getRuntime().availableProcessors();
+        }
+        jobCount = Math.max(1, Math.min(jobCount, pageCount));
+
+        final List<Future<String>> ranges = new ArrayList<>(jobCount);
+        try {
+            int startPage = 1;
+            for (int i = 0; i != jobCount; ++i) {
+                final int firstPage = startPage;
+                final int lastPage = firstPage + (pageCount - firstPage + 1)
+                        / (jobCount - i) - 1;
+                ranges.add(PagePool.EXECUTOR.submit(() -> withDocument(pdfFile,
+                        document -> extractText(document, firstPage,
+                                lastPage))));
+                startPage = lastPage + 1;
+            }
+
+            final StringBuilder sb = new StringBuilder();
+            for (Future<String> range : ranges) {
+                sb.append(range.get());
+            }
+            return sb.toString();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(String.format(
+                    "Interrupted extracting text from [%s] file", pdfFile));
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            ranges.forEach(range -> range.cancel(true));
+        }
+    }
+
+    private String extractText(PDDocument document, int startPage,
+            int endPage) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+
+        stripper.setSortByPosition(sortByPosition);
+        stripper.setStartPage(startPage);
+        stripper.setEndPage(endPage);
+
+        return stripper.getText(document);
+    }
+
+    /**
+     * Loads the document from the given file and applies the given function
+     * to it. Holds an extraction permit and memory budget reservation while
+     * the document is loaded.
+     */
+    private <T> T withDocument(Path pdfFile, DocumentFunction<T> func) throws
+            IOException {
+        final MemoryUsageSetting memUsageSetting;
+        final long memoryBytes;
+        if (maxMainMemoryBytes < 0) {
+            memUsageSetting = MemoryUsageSetting.setupMainMemoryOnly();
+            memoryBytes = estimateDocumentMemory(Files.size(pdfFile));
+        } else {
+            memUsageSetting = MemoryUsageSetting.setupMixed(maxMainMemoryBytes);
+            memoryBytes = maxMainMemoryBytes;
+        }
+
+        final Semaphore permits = acquirePermit(pdfFile);
+        try {
+            final MemoryBudget budget = memoryBudget;
+            final long reserved = budget != null ? budget.reserve(memoryBytes) : 0;
+            try (PDDocument document = PDDocument.load(pdfFile.toFile(),
+                    memUsageSetting)) {
+                return func.apply(document);
+            } finally {
+                if (budget != null) {
+                    budget.release(reserved);
+                }
+            }
+        } finally {
+            releasePermit(permits);
+        }
+    }
+
+    /**
+     * Returns the estimate of the number of bytes of heap a document loaded
+     * in main memory uses while its text is extracted. Parsed objects,
+     * decoded content streams and the extracted text take 10-17 times the
+     * size of the file as measured on statement-like and text-heavy
+     * documents of 100 KB - 1 MB. Small documents use about 1.5 MB whatever
+     * their size.
+     */
+    private static long estimateDocumentMemory(long fileSize) {
+        if (fileSize > (Long.MAX_VALUE - DOCUMENT_MEMORY_OVERHEAD)
+                / DOCUMENT_MEMORY_FACTOR) {
+            return Long.MAX_VALUE;
+        }
+        return DOCUMENT_MEMORY_OVERHEAD + fileSize * DOCUMENT_MEMORY_FACTOR;
+    }
+
+    @FunctionalInterface
+    private interface DocumentFunction<T> {
+        T apply(PDDocument document) throws IOException;
+    }
+
+    private static void checkPermissions(PDDocument document) throws
+            IOException {
+        AccessPermission ap = document.getCurrentAccessPermission();
+        if (!ap.canExtractContent()) {
+            throw new IOException("You do not have permission to extract text");
+        }
+    }
+
+    private static Semaphore acquirePermit(Path pdfFile) throws
+            InterruptedIOException {
+        final Semaphore permits = extractionPermits;
+        if (permits != null) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(String.format(
+                        "Interrupted waiting to extract text from [%s] file",
+                        pdfFile));
+            }
+        }
+        return permits;
+    }
+
+    private static void releasePermit(Semaphore permits) {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    private final static class PagePool {
+        final static ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), r -> {
+                    Thread thread = new Thread(r, "pdf-text-extractor");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
     private boolean sortByPosition;
+    private int pageJobs = 1;
+    private long maxMainMemoryBytes = -1;
+
+    private static volatile Semaphore extractionPermits;
+    private static volatile MemoryBudget memoryBudget;
+
+    private final static long DOCUMENT_MEMORY_FACTOR = 16;
+    private final static long DOCUMENT_MEMORY_OVERHEAD = 2 * 1024 * 1024;
 
     private static final Logger LOGGER = Logger.getLogger(
             MethodHandles.lookup().lookupClass().getName());
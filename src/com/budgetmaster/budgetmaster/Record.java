@@ -6,7 +6,6 @@ import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Currency;
 import java.util.Objects;
-import java.util.Set;
 
 public final class Record {
     public LocalDate getTransactionDate() {
@@ -26,11 +25,14 @@ public final class Record {
     }
     
     public String getGlobalId() {
-        return String.format("%s-%s", source.getSystemId(), getId());
+        return source.getSystemId() + "-" + getId();
     }
 
     public String[] getTags() {
-        return tags;
+        if (tags == null) {
+            return null;
+        }
+        return TagDictionary.names(tags);
     }
 
     public boolean hasTag(String tag) {
@@ -38,7 +40,28 @@ public final class Record {
         if (tags == null) {
             return false;
         }
-        return Set.of(tags).contains(tag);
+
+        final int idx = TagDictionary.indexOf(tag);
+        if (idx < 0) {
+            return false;
+        }
+        if (idx < Long.SIZE) {
+            return (tagBits & (1L << idx)) != 0;
+        }
+        for (int v : tags) {
+            if (v == idx) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns TagDictionary indices of tags of this record or null if this
+     * record has no tags. The returned array must not be modified.
+     */
+    int[] getTagIndices() {
+        return tags;
     }
 
     public Currency getCurrency() {
@@ -70,7 +93,7 @@ public final class Record {
 
     Record(LocalDate transactionDate, LocalDate postingDate, String desc,
             BigDecimal amount, String category, Currency currency, Statement source,
-            String id, String[] tags) {
+            String id, int[] tags) {
         Objects.requireNonNull(transactionDate);
         Objects.requireNonNull(desc);
         Objects.requireNonNull(amount);
@@ -88,6 +111,16 @@ public final class Record {
         this.currency = currency;
         this.id = id;
         this.tags = tags;
+
+        long bits = 0;
+        if (tags != null) {
+            for (int v : tags) {
+                if (v < Long.SIZE) {
+                    bits |= 1L << v;
+                }
+            }
+        }
+        this.tagBits = bits;
     }
 
     @Override
@@ -105,7 +138,7 @@ public final class Record {
         }
 
         if (tags != null) {
-            sb.append(String.format("|%s", Arrays.toString(tags)));
+            sb.append(String.format("|%s", Arrays.toString(getTags())));
         }
 
         if (currency != null) {
@@ -118,8 +151,9 @@ public final class Record {
         }
 
         if (source != null) {
-            sb.append(String.format("|%s|%s", source.getId(), Util.pathEllipsis(
-                    Path.of(source.getSystemId()), 40)));
+            final String systemId = source.getSystemId();
+            sb.append(String.format("|%s|%s", source.getId(), systemId == null
+                    ? null : Util.pathEllipsis(Path.of(systemId), 40)));
         }
 
         return sb.toString();
@@ -133,5 +167,8 @@ public final class Record {
     private final Statement source;
     private final Currency currency;
     private final String id;
-    private final String[] tags;
+    // TagDictionary indices of tags.
+    private final int[] tags;
+    // Bitset of tags with indices less than 64.
+    private final long tagBits;
 }
@@ -0,0 +1,650 @@
+package com.budgetmaster.budgetmaster;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+
+/**
+ * Records stored in columns.
+ *
+ * Dates are epoch days, amounts are unscaled longs with scales, tags are
+ * TagDictionary indices with bitsets of the first 64 tags. Descriptions,
+ * categories, currencies and statements are coded with per-batch
+ * dictionaries, so passes compare and hash small integers instead of
+ * strings and objects. The batch keeps the records it was created from, so
+ * rows are converted back to records without copying.
+ *
+ * Passes select rows of a batch with row filters. A row filter takes rows of
+ * a batch and returns rows it keeps in the order of output.
+ *
+ * Statements are coded by ID and system ID. Rows with different statement
+ * objects with the same IDs have the same statement code.
+ */
+final class RecordBatch {
+
+    /**
+     * Selects rows of a batch.
+     */
+    @FunctionalInterface
+    interface RowFilter {
+        /**
+         * Returns rows of the given rows of the given batch this filter
+         * keeps in the order of output.
+         */
+        int[] apply(RecordBatch batch, int[] rows);
+
+        default RowFilter andThen(RowFilter next) {
+            Objects.requireNonNull(next);
+            return (batch, rows) -> next.apply(batch, apply(batch, rows));
+        }
+    }
+
+    /**
+     * Compares rows of a batch.
+     */
+    @FunctionalInterface
+    interface RowComparator {
+        int compare(int row1, int row2);
+    }
+
+    /**
+     * Tests rows of a batch.
+     */
+    @FunctionalInterface
+    interface RowPredicate {
+        boolean test(RecordBatch batch, int row);
+    }
+
+    /**
+     * Dictionary-coded string column. Rows with null values have NULL_CODE
+     * code.
+     */
+    final static class StringColumn {
+        private StringColumn(int[] codes, int[] mapping, String[] values) {
+            this.codes = codes;
+            this.mapping = mapping;
+            this.values = values;
+        }
+
+        int code(int row) {
+            final int code = codes[row];
+            if (mapping == null || code == NULL_CODE) {
+                return code;
+            }
+            return mapping[code];
+        }
+
+        String value(int code) {
+            return code == NULL_CODE ? null : values[code];
+        }
+
+        /**
+         * Returns the number of distinct non-null values of the column.
+         */
+        int cardinality() {
+            return values.length;
+        }
+
+        private StringColumn select(int[] rows) {
+            return new StringColumn(selectInts(codes, rows), mapping, values);
+        }
+
+        private final int[] codes;
+        // Maps codes of rows to codes of values if not null.
+        private final int[] mapping;
+        private final String[] values;
+    }
+
+    /**
+     * Collects records into a batch.
+     */
+    final static class Builder {
+        Builder add(Record record) {
+            Objects.requireNonNull(record);
+            if (size == transactionDays.length) {
+                grow();
+            }
+
+            transactionDays[size] = toDay(record.getTransactionDate());
+            postingDays[size] = toDay(record.getPostingDate());
+            setAmount(size, record.getAmount());
+            descriptions[size] = descriptionDict.code(record.getDescription());
+            categories[size] = categoryDict.code(record.getCategory());
+            currencies[size] = currencyCode(record.getCurrency());
+            statements[size] = statementCode(record.getSource());
+            ids[size] = record.getId();
+            records[size] = record;
+
+            final int[] recordTags = record.getTagIndices();
+            if (recordTags != null) {
+                if (tags == null) {
+                    tags = new int[transactionDays.length][];
+                }
+                tags[size] = recordTags;
+                long bits = 0;
+                for (int v : recordTags) {
+                    if (v < Long.SIZE) {
+                        bits |= 1L << v;
+                    }
+                }
+                tagBits[size] = bits;
+            }
+
+            size++;
+            return this;
+        }
+
+        RecordBatch create() {
+            return new RecordBatch(size,
+                    Arrays.copyOf(transactionDays, size),
+                    Arrays.copyOf(postingDays, size),
+                    Arrays.copyOf(unscaledAmounts, size),
+                    Arrays.copyOf(amountScales, size),
+                    largeAmounts == null ? null : Arrays.copyOf(largeAmounts, size),
+                    descriptionDict.column(Arrays.copyOf(descriptions, size)),
+                    categoryDict.column(Arrays.copyOf(categories, size)),
+                    currencyColumn(Arrays.copyOf(currencies, size)),
+                    Arrays.copyOf(statements, size),
+                    toArray(statementIdCodes),
+                    statementIdDict.toArray(),
+                    toArray(statementSystemIdCodes),
+                    statementSystemIdDict.toArray(),
+                    Arrays.copyOf(ids, size),
+                    tags == null ? null : Arrays.copyOf(tags, size),
+                    Arrays.copyOf(tagBits, size),
+                    Arrays.copyOf(records, size));
+        }
+
+        private void setAmount(int row, BigDecimal amount) {
+            final int scale = amount.scale();
+            if (scale >= Byte.MIN_VALUE && scale <= Byte.MAX_VALUE
+                    && amount.precision() <= MAX_LONG_DIGITS) {
+                unscaledAmounts[row] = amount.unscaledValue().longValue();
+                amountScales[row] = (byte) scale;
+            } else {
+                if (largeAmounts == null) {
+                    largeAmounts = new BigDecimal[transactionDays.length];
+                }
+                largeAmounts[row] = amount;
+                unscaledAmounts[row] = amount.signum();
+            }
+        }
+
+        private int currencyCode(Currency currency) {
+            if (currency == null) {
+                return NULL_CODE;
+            }
+            int code = currencyDict.indexOf(currency);
+            if (code < 0) {
+                code = currencyDict.size();
+                currencyDict.add(currency);
+            }
+            return code;
+        }
+
+        private StringColumn currencyColumn(int[] codes) {
+            return new StringColumn(codes, null, currencyDict.stream()
+                    .map(Currency::getCurrencyCode)
+                    .toArray(String[]::new));
+        }
+
+        private int statementCode(Statement statement) {
+            if (statement == null) {
+                return NULL_CODE;
+            }
+
+            // Statements are often shared by records. Look up the statement
+            // object first to skip reading its IDs.
+            Integer code = statementObjectCodes.get(statement);
+            if (code != null) {
+                return code;
+            }
+
+            final int idCode = statementIdDict.code(statement.getId());
+            final int systemIdCode = statementSystemIdDict.code(
+                    statement.getSystemId());
+            code = statementCodes.computeIfAbsent(List.of(idCode, systemIdCode),
+                    x -> {
+                        statementIdCodes.add(idCode);
+                        statementSystemIdCodes.add(systemIdCode);
+                        return statementIdCodes.size() - 1;
+                    });
+            statementObjectCodes.put(statement, code);
+            return code;
+        }
+
+        private void grow() {
+            final int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            transactionDays = Arrays.copyOf(transactionDays, capacity);
+            postingDays = Arrays.copyOf(postingDays, capacity);
+            unscaledAmounts = Arrays.copyOf(unscaledAmounts, capacity);
+            amountScales = Arrays.copyOf(amountScales, capacity);
+            if (largeAmounts != null) {
+                largeAmounts = Arrays.copyOf(largeAmounts, capacity);
+            }
+            descriptions = Arrays.copyOf(descriptions, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            currencies = Arrays.copyOf(currencies, capacity);
+            statements = Arrays.copyOf(statements, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            if (tags != null) {
+                tags = Arrays.copyOf(tags, capacity);
+            }
+            tagBits = Arrays.copyOf(tagBits, capacity);
+            records = Arrays.copyOf(records, capacity);
+        }
+
+        private static int toDay(LocalDate date) {
+            return Math.toIntExact(date.toEpochDay());
+        }
+
+        private static int[] toArray(List<Integer> v) {
+            return v.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private int size;
+        private int[] transactionDays = new int[0];
+        private int[] postingDays = new int[0];
+        private long[] unscaledAmounts = new long[0];
+        private byte[] amountScales = new byte[0];
+        private BigDecimal[] largeAmounts;
+        private int[] descriptions = new int[0];
+        private int[] categories = new int[0];
+        private int[] currencies = new int[0];
+        private int[] statements = new int[0];
+        private String[] ids = new String[0];
+        private int[][] tags;
+        private long[] tagBits = new long[0];
+        private Record[] records = new Record[0];
+
+        private final Dictionary descriptionDict = new Dictionary();
+        private final Dictionary categoryDict = new Dictionary();
+        private final List<Currency> currencyDict = new ArrayList<>();
+        private final Dictionary statementIdDict = new Dictionary();
+        private final Dictionary statementSystemIdDict = new Dictionary();
+        private final Map<List<Integer>, Integer> statementCodes = new HashMap<>();
+        private final Map<Statement, Integer> statementObjectCodes = new IdentityHashMap<>();
+        private final List<Integer> statementIdCodes = new ArrayList<>();
+        private final List<Integer> statementSystemIdCodes = new ArrayList<>();
+    }
+
+    static RecordBatch of(Stream<Record> records) {
+        final Builder builder = new Builder();
+        records.forEachOrdered(builder::add);
+        return builder.create();
+    }
+
+    static RecordBatch of(Collection<Record> records) {
+        final Builder builder = new Builder();
+        records.forEach(builder::add);
+        return builder.create();
+    }
+
+    /**
+     * Applies the given row filter to all rows of a batch of the given
+     * records. Returns records of the rows the filter keeps.
+     */
+    static Stream<Record> filter(Stream<Record> records, RowFilter filter) {
+        final RecordBatch batch = of(records);
+        return IntStream.of(filter.apply(batch, batch.allRows())).mapToObj(
+                batch::get);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns indices of all rows in ascending order.
+     */
+    int[] allRows() {
+        return IntStream.range(0, size).toArray();
+    }
+
+    /**
+     * Returns batch of the given rows in the given order. Dictionaries are
+     * shared with this batch.
+     */
+    RecordBatch select(int[] rows) {
+        for (int row : rows) {
+            Objects.checkIndex(row, size);
+        }
+
+        BigDecimal[] selectedLargeAmounts = null;
+        if (largeAmounts != null) {
+            selectedLargeAmounts = new BigDecimal[rows.length];
+            for (int i = 0; i != rows.length; ++i) {
+                selectedLargeAmounts[i] = largeAmounts[rows[i]];
+            }
+        }
+
+        int[][] selectedTags = null;
+        final String[] selectedIds = new String[rows.length];
+        final long[] selectedUnscaledAmounts = new long[rows.length];
+        final byte[] selectedAmountScales = new byte[rows.length];
+        final long[] selectedTagBits = new long[rows.length];
+        final Record[] selectedRecords = new Record[rows.length];
+        if (tags != null) {
+            selectedTags = new int[rows.length][];
+        }
+        for (int i = 0; i != rows.length; ++i) {
+            final int row = rows[i];
+            selectedIds[i] = ids[row];
+            selectedUnscaledAmounts[i] = unscaledAmounts[row];
+            selectedAmountScales[i] = amountScales[row];
+            selectedTagBits[i] = tagBits[row];
+            selectedRecords[i] = records[row];
+            if (tags != null) {
+                selectedTags[i] = tags[row];
+            }
+        }
+
+        return new RecordBatch(rows.length,
+                selectInts(transactionDays, rows),
+                selectInts(postingDays, rows),
+                selectedUnscaledAmounts,
+                selectedAmountScales,
+                selectedLargeAmounts,
+                descriptions.select(rows),
+                categories.select(rows),
+                currencyCodes.select(rows),
+                selectInts(statements, rows),
+                statementIdCodes,
+                statementIds.values,
+                statementSystemIdCodes,
+                statementSystemIds.values,
+                selectedIds,
+                selectedTags,
+                selectedTagBits,
+                selectedRecords);
+    }
+
+    /**
+     * Returns record of the given row. The record is not copied.
+     */
+    Record get(int row) {
+        return records[row];
+    }
+
+    Stream<Record> stream() {
+        return IntStream.range(0, size).mapToObj(this::get);
+    }
+
+    int getTransactionDay(int row) {
+        return transactionDays[row];
+    }
+
+    int getPostingDay(int row) {
+        return postingDays[row];
+    }
+
+    BigDecimal getAmount(int row) {
+        if (isLargeAmount(row)) {
+            return largeAmounts[row];
+        }
+        return BigDecimal.valueOf(unscaledAmounts[row], amountScales[row]);
+    }
+
+    /**
+     * Returns true if the amount of the given row doesn't fit unscaled long
+     * and byte scale. getUnscaledAmount() and getAmountScale() are undefined
+     * for such rows.
+     */
+    boolean isLargeAmount(int row) {
+        return largeAmounts != null && largeAmounts[row] != null;
+    }
+
+    long getUnscaledAmount(int row) {
+        return unscaledAmounts[row];
+    }
+
+    int getAmountScale(int row) {
+        return amountScales[row];
+    }
+
+    boolean isNegative(int row) {
+        // Unscaled amounts of large amounts are their signums.
+        return unscaledAmounts[row] < 0;
+    }
+
+    String getId(int row) {
+        return ids[row];
+    }
+
+    /**
+     * Returns true if the given row has a tag with the given TagDictionary
+     * index.
+     */
+    boolean hasTag(int row, int tagIdx) {
+        if (tagIdx < 0) {
+            return false;
+        }
+        if (tagIdx < Long.SIZE) {
+            return (tagBits[row] & (1L << tagIdx)) != 0;
+        }
+        if (tags == null || tags[row] == null) {
+            return false;
+        }
+        for (int v : tags[row]) {
+            if (v == tagIdx) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    StringColumn getDescriptions() {
+        return descriptions;
+    }
+
+    StringColumn getCategories() {
+        return categories;
+    }
+
+    StringColumn getCurrencyCodes() {
+        return currencyCodes;
+    }
+
+    StringColumn getStatementIds() {
+        return statementIds;
+    }
+
+    StringColumn getStatementSystemIds() {
+        return statementSystemIds;
+    }
+
+    private RecordBatch(int size, int[] transactionDays, int[] postingDays,
+            long[] unscaledAmounts, byte[] amountScales,
+            BigDecimal[] largeAmounts, StringColumn descriptions,
+            StringColumn categories, StringColumn currencyCodes,
+            int[] statements, int[] statementIdCodes,
+            String[] statementIdValues, int[] statementSystemIdCodes,
+            String[] statementSystemIdValues, String[] ids, int[][] tags,
+            long[] tagBits, Record[] records) {
+        this.size = size;
+        this.transactionDays = transactionDays;
+        this.postingDays = postingDays;
+        this.unscaledAmounts = unscaledAmounts;
+        this.amountScales = amountScales;
+        this.largeAmounts = largeAmounts;
+        this.descriptions = descriptions;
+        this.categories = categories;
+        this.currencyCodes = currencyCodes;
+        this.statements = statements;
+        this.statementIdCodes = statementIdCodes;
+        this.statementSystemIdCodes = statementSystemIdCodes;
+        this.statementIds = new StringColumn(statements, statementIdCodes,
+                statementIdValues);
+        this.statementSystemIds = new StringColumn(statements,
+                statementSystemIdCodes, statementSystemIdValues);
+        this.ids = ids;
+        this.tags = tags;
+        this.tagBits = tagBits;
+        this.records = records;
+    }
+
+    /**
+     * Sorts the given rows with the given comparator. The sort is stable.
+     */
+    static void sort(int[] rows, RowComparator comparator) {
+        mergeSort(rows, rows.clone(), 0, rows.length, comparator);
+    }
+
+    private static void mergeSort(int[] rows, int[] buffer, int from, int to,
+            RowComparator comparator) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; ++i) {
+                final int row = rows[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(rows[j], row) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+
+        final int mid = (from + to) >>> 1;
+        mergeSort(rows, buffer, from, mid, comparator);
+        mergeSort(rows, buffer, mid, to, comparator);
+        if (comparator.compare(rows[mid - 1], rows[mid]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(rows, from, buffer, from, to - from);
+        int i = from;
+        int j = mid;
+        int k = from;
+        while (i < mid && j < to) {
+            if (comparator.compare(buffer[j], buffer[i]) < 0) {
+                rows[k++] = buffer[j++];
+            } else {
+                rows[k++] = buffer[i++];
+            }
+        }
+        while (i < mid) {
+            rows[k++] = buffer[i++];
+        }
+        while (j < to) {
+            rows[k++] = buffer[j++];
+        }
+    }
+
+    private static int[] selectInts(int[] codes, int[] rows) {
+        final int[] result = new int[rows.length];
+        for (int i = 0; i != rows.length; ++i) {
+            result[i] = codes[rows[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Assigns codes to strings in the order of first occurrence.
+     *
+     * Codes are kept in an open addressing table of ints, so adding a
+     * string allocates nothing but table growth.
+     */
+    private final static class Dictionary {
+        int code(String v) {
+            if (v == null) {
+                return NULL_CODE;
+            }
+
+            int slot = firstSlot(v);
+            while (table[slot] != 0) {
+                final int code = table[slot] - 1;
+                if (values[code].equals(v)) {
+                    return code;
+                }
+                slot = (slot + 1) & (table.length - 1);
+            }
+
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = v;
+            table[slot] = ++size;
+            if (size * 2 > table.length) {
+                rehash();
+            }
+            return size - 1;
+        }
+
+        String[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        StringColumn column(int[] rowCodes) {
+            return new StringColumn(rowCodes, null, toArray());
+        }
+
+        private void rehash() {
+            table = new int[table.length * 2];
+            for (int code = 0; code != size; ++code) {
+                int slot = firstSlot(values[code]);
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & (table.length - 1);
+                }
+                table[slot] = code + 1;
+            }
+        }
+
+        private int firstSlot(String v) {
+            // Spread high bits like HashMap does.
+            final int h = v.hashCode();
+            return (h ^ (h >>> 16)) & (table.length - 1);
+        }
+
+        // Codes plus one, zero for empty slots. Table length is a power of
+        // two.
+        private int[] table = new int[INITIAL_DICTIONARY_CAPACITY * 2];
+        private String[] values = new String[INITIAL_DICTIONARY_CAPACITY];
+        private int size;
+    }
+
+    private final int size;
+    private final int[] transactionDays;
+    private final int[] postingDays;
+    // Signums of large amounts.
+    private final long[] unscaledAmounts;
+    private final byte[] amountScales;
+    // Amounts not fitting unscaled long and byte scale or null.
+    private final BigDecimal[] largeAmounts;
+    private final StringColumn descriptions;
+    private final StringColumn categories;
+    private final StringColumn currencyCodes;
+    // Codes of statements by IDs and system IDs.
+    private final int[] statements;
+    private final int[] statementIdCodes;
+    private final int[] statementSystemIdCodes;
+    private final StringColumn statementIds;
+    private final StringColumn statementSystemIds;
+    private final String[] ids;
+    // TagDictionary indices of tags or null if no row has tags.
+    private final int[][] tags;
+    // Bitsets of tags with indices less than 64.
+    private final long[] tagBits;
+    private final Record[] records;
+
+    final static int NULL_CODE = -1;
+
+    private final static int INITIAL_CAPACITY = 1024;
+
+    private final static int INITIAL_DICTIONARY_CAPACITY = 16;
+
+    private final static int INSERTION_SORT_THRESHOLD = 16;
+
+    private final static int MAX_LONG_DIGITS = 18;
+}
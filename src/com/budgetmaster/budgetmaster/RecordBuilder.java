@@ -3,6 +3,7 @@ package com.budgetmaster.budgetmaster;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Currency;
 import java.util.HashSet;
 import java.util.List;
@@ -16,7 +17,7 @@ public final class RecordBuilder {
     public Record create() {
         return new Record(transactionDate, postingDate, filterSting(desc),
                 filterAmount(), filterSting(category), currency, source,
-                filterSting(id), tags);
+                filterSting(id), getTagIndices());
     }
 
     public static RecordBuilder from(Record record) {
@@ -28,7 +29,7 @@ public final class RecordBuilder {
                 .setCategory(record.getCategory())
                 .setCurrency(record.getCurrency())
                 .setId(record.getId())
-                .setTags(record.getTags())
+                .setTagIndices(record.getTagIndices())
                 .setSource(record.getSource());
     }
 
@@ -60,23 +61,40 @@ public final class RecordBuilder {
     }
 
     public String[] getTags() {
-        return tags;
+        if (tags == null) {
+            return null;
+        }
+        return TagDictionary.names(getTagIndices());
     }
 
     public RecordBuilder setTags(String[] v) {
-        tags = v;
-        validateTags();
-        return this;
+        if (v != null) {
+            Stream.of(v).forEach(RecordBuilder::validateTag);
+            return setTagIndices(TagDictionary.intern(v));
+        }
+        return setTagIndices(null);
     }
 
     public RecordBuilder addTag(String v) {
         validateTag(v);
-        Set<String> newTags = new HashSet<>();
-        if (tags != null) {
-            newTags.addAll(List.of(tags));
+        final int idx = TagDictionary.intern(v);
+        if (sortedTags == null) {
+            initTagIndex();
+        }
+
+        int pos = Arrays.binarySearch(sortedTags, 0, tagCount, idx);
+        if (pos >= 0) {
+            return this;
+        }
+        pos = -(pos + 1);
+
+        if (tagCount == tags.length) {
+            tags = Arrays.copyOf(tags, tagCount * 2);
+            sortedTags = Arrays.copyOf(sortedTags, tagCount * 2);
         }
-        newTags.add(v);
-        tags = newTags.toArray(String[]::new);
+        System.arraycopy(sortedTags, pos, sortedTags, pos + 1, tagCount - pos);
+        sortedTags[pos] = idx;
+        insertInSetOrder(idx);
         return this;
     }
 
@@ -171,10 +189,119 @@ public final class RecordBuilder {
         }
     }
 
-    private void validateTags() {
-        if (tags != null) {
-            Stream.of(tags).forEach(RecordBuilder::validateTag);
+    private RecordBuilder setTagIndices(int[] v) {
+        tags = v;
+        tagCount = (v == null) ? 0 : v.length;
+        sortedTags = null;
+        return this;
+    }
+
+    /**
+     * Returns indices of tags. The array given to setTagIndices() is
+     * returned as is. Buffers of addTag() are copied as records must not
+     * share them.
+     */
+    private int[] getTagIndices() {
+        if (tags == null || sortedTags == null) {
+            return tags;
+        }
+        return Arrays.copyOf(tags, tagCount);
+    }
+
+    // addTag() used to collect tags in HashSet and tags were saved in CSV
+    // files in the iteration order of HashSet. toSetOrder() and
+    // insertInSetOrder() keep tags in the same order. HashSet iterates over
+    // its hash table buckets in order and over tags in the same bucket in
+    // the order of insertion. For up to SET_ORDER_MAX_TAGS tags the hash
+    // table has 16 buckets. More tags are ordered with HashSet.
+    //
+    // The first addTag() call puts tags in set order, which removes
+    // duplicates, into buffers owned by the builder. `sortedTags` holds the
+    // same tags in ascending order to look them up with binary search.
+
+    private void initTagIndex() {
+        final int[] setOrder;
+        if (tags == null) {
+            setOrder = new int[0];
+        } else {
+            setOrder = toSetOrder(tags);
+        }
+        tagCount = setOrder.length;
+        final int capacity = Math.max(tagCount * 2, INITIAL_TAG_CAPACITY);
+        tags = Arrays.copyOf(setOrder, capacity);
+        sortedTags = Arrays.copyOf(setOrder, capacity);
+        Arrays.sort(sortedTags, 0, tagCount);
+    }
+
+    private static int[] toSetOrder(int[] tags) {
+        if (tags.length > SET_ORDER_MAX_TAGS) {
+            Set<String> set = new HashSet<>();
+            set.addAll(List.of(TagDictionary.names(tags)));
+            return set.stream().mapToInt(TagDictionary::intern).toArray();
         }
+
+        // Remove duplicates keeping the first occurrences and sort by buckets
+        // with stable insertion sort.
+        final int[] result = new int[tags.length];
+        int count = 0;
+        for (int tag : tags) {
+            int i = count;
+            boolean duplicate = false;
+            for (int j = 0; j != count; ++j) {
+                if (result[j] == tag) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (duplicate) {
+                continue;
+            }
+
+            final int bucket = setBucket(tag);
+            while (i != 0 && setBucket(result[i - 1]) > bucket) {
+                result[i] = result[i - 1];
+                i--;
+            }
+            result[i] = tag;
+            count++;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Inserts the given tag missing from the buffer of tags in set order.
+     * The buffer must have room for it.
+     */
+    private void insertInSetOrder(int tag) {
+        if (tagCount >= SET_ORDER_MAX_TAGS) {
+            final int[] result = Arrays.copyOf(tags, tagCount + 1);
+            result[tagCount] = tag;
+            System.arraycopy(toSetOrder(result), 0, tags, 0, tagCount + 1);
+            tagCount++;
+            return;
+        }
+
+        // Insert after all tags in the same or preceding buckets.
+        final int bucket = setBucket(tag);
+        int low = 0;
+        int high = tagCount;
+        while (low != high) {
+            final int mid = (low + high) >>> 1;
+            if (setBucket(tags[mid]) <= bucket) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        System.arraycopy(tags, low, tags, low + 1, tagCount - low);
+        tags[low] = tag;
+        tagCount++;
+    }
+
+    private static int setBucket(int tag) {
+        final int h = TagDictionary.name(tag).hashCode();
+        return (h ^ (h >>> 16)) & (SET_ORDER_BUCKETS - 1);
     }
 
     private boolean negateAmount;
@@ -187,7 +314,12 @@ public final class RecordBuilder {
     private BigDecimal amount;
     private Currency currency;
     private String id;
-    private String[] tags;
+    // TagDictionary indices of tags.
+    private int[] tags;
+    private int tagCount;
+    // Ascending indices of tags. Created by the first addTag() call. Then
+    // both arrays are buffers with `tagCount` elements in use.
+    private int[] sortedTags;
 
     public enum Setter {
         Amount((rb, v) -> rb.setAmount((BigDecimal)v)),
@@ -207,5 +339,9 @@ public final class RecordBuilder {
         final BiConsumer<RecordBuilder, ?> method;
     };
 
+    private final static int SET_ORDER_MAX_TAGS = 8;
+    private final static int SET_ORDER_BUCKETS = 16;
+    private final static int INITIAL_TAG_CAPACITY = 4;
+
     private final static Pattern VALIDATE_TAG_PATTERN = Pattern.compile("^\\w[\\w_-[.]]*$");
 }
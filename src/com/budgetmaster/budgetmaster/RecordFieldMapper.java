@@ -26,17 +26,25 @@ class RecordFieldMapper implements UnaryOperator<Record> {
 
     static RecordFieldMapper amountNegator() {
         return new RecordFieldMapper((String)null, (rb, amount) -> {
-            rb.negateAmount();
+            rb.setAmount(rb.getAmount().negate());
         });
     }
 
     @Override
     public Record apply(Record r) {
         RecordBuilder rb = RecordBuilder.from(r);
-        fieldAccessor.accept(rb, value.apply(r));
+        apply(rb, r);
         return rb.create();
     }
 
+    /**
+     * Sets the field in the given builder initialized from the given record.
+     * The field value is computed from the record, not from the builder.
+     */
+    void apply(RecordBuilder rb, Record r) {
+        fieldAccessor.accept(rb, value.apply(r));
+    }
+
     private final BiConsumer <RecordBuilder, String> fieldAccessor;
     private final Function<Record, String> value;
 }
@@ -0,0 +1,525 @@
+package com.budgetmaster.budgetmaster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+
+
+/**
+ * Record matchers compiled from trees of and/or/not nodes.
+ *
+ * Nodes are stored in flat arrays and evaluated with short-circuiting.
+ * Walking the nodes doesn't allocate. An evaluation for a record allocates
+ * its state: bitsets of evaluated and matched regular expressions and of
+ * candidate regular expressions of every screened field. Screening a field
+ * value and running a regular expression allocate as well.
+ *
+ * Regular expressions applied to the same record field are screened
+ * together. Literal strings one of which any match of a regular expression
+ * must contain are extracted from every regular expression and searched in
+ * the field value in one pass with MultiStringMatcher. Regular expressions
+ * with none of their literals found in the field value are not run.
+ * Results of regular expressions are cached per evaluation, so the same
+ * regular expression is run at most once for a record.
+ *
+ * Programs also evaluate rows of record batches. Field values of rows are
+ * dictionary codes, so literals are searched and regular expressions are
+ * run at most once for every distinct value of a field in the batch.
+ */
+final class RecordMatcherProgram {
+
+    final static class Builder {
+        int alwaysTrue() {
+            return addNode(TRUE, 0, 0);
+        }
+
+        int and(List<Integer> children) {
+            return addBranch(AND, children);
+        }
+
+        int or(List<Integer> children) {
+            return addBranch(OR, children);
+        }
+
+        int not(int child) {
+            return addNode(NOT, child, 0);
+        }
+
+        /**
+         * Adds node matching records the given predicate accepts. Rows of
+         * batches are tested with records created from them.
+         */
+        int predicate(Predicate<Record> v) {
+            predicates.add(v);
+            rowPredicates.add(null);
+            predicateLogMsgs.add(null);
+            return addNode(PREDICATE, predicates.size() - 1, 0);
+        }
+
+        /**
+         * Adds node matching records the given predicate accepts and rows of
+         * batches the given row predicate accepts. Every match is logged with
+         * the given message.
+         */
+        int predicate(Predicate<Record> v, RecordBatch.RowPredicate rowV,
+                String logMsg) {
+            predicates.add(LoggingRecordMatcher.of(v, logMsg));
+            rowPredicates.add(rowV);
+            predicateLogMsgs.add(logMsg);
+            return addNode(PREDICATE, predicates.size() - 1, 0);
+        }
+
+        /**
+         * Adds node matching if the given regular expression is found in the
+         * value of the given field of a record. The field of batches is the
+         * given column. Null field values never match. Every match is logged
+         * with the given message.
+         */
+        int regexp(String fieldName, Function<Record, String> fieldAccessor,
+                Function<RecordBatch, RecordBatch.StringColumn> columnAccessor,
+                String regexp, String logMsg) {
+            final Pattern pattern = Pattern.compile(regexp);
+
+            FieldBuilder field = fields.computeIfAbsent(fieldName,
+                    x -> new FieldBuilder(fields.size(), fieldAccessor,
+                            columnAccessor));
+
+            final int rule = ruleIndices.computeIfAbsent(List.of(fieldName,
+                    regexp), x -> {
+                rulePatterns.add(pattern);
+                ruleFields.add(field.index);
+                field.addRule(rulePatterns.size() - 1, RegexLiterals.of(regexp));
+                return rulePatterns.size() - 1;
+            });
+
+            ruleLogMsgs.add(logMsg);
+            return addNode(REGEXP, rule, ruleLogMsgs.size() - 1);
+        }
+
+        RecordMatcherProgram create() {
+            return new RecordMatcherProgram(this);
+        }
+
+        private int addBranch(byte kind, List<Integer> children) {
+            final int from = this.children.size();
+            this.children.addAll(children);
+            return addNode(kind, from, this.children.size());
+        }
+
+        private int addNode(byte kind, int arg, int arg2) {
+            kinds.add(kind);
+            args.add(arg);
+            args2.add(arg2);
+            return kinds.size() - 1;
+        }
+
+        private final List<Byte> kinds = new ArrayList<>();
+        private final List<Integer> args = new ArrayList<>();
+        private final List<Integer> args2 = new ArrayList<>();
+        private final List<Integer> children = new ArrayList<>();
+        private final List<Predicate<Record>> predicates = new ArrayList<>();
+        private final List<RecordBatch.RowPredicate> rowPredicates = new ArrayList<>();
+        private final List<String> predicateLogMsgs = new ArrayList<>();
+        private final List<String> ruleLogMsgs = new ArrayList<>();
+        private final List<Pattern> rulePatterns = new ArrayList<>();
+        private final List<Integer> ruleFields = new ArrayList<>();
+        private final Map<List<String>, Integer> ruleIndices = new HashMap<>();
+        private final Map<String, FieldBuilder> fields = new HashMap<>();
+    }
+
+    /**
+     * Evaluation of nodes of the program.
+     */
+    private abstract class Evaluator {
+        boolean test(int node) {
+            switch (kinds[node]) {
+                case TRUE:
+                    return true;
+
+                case AND:
+                    for (int i = args[node]; i != args2[node]; ++i) {
+                        if (!test(children[i])) {
+                            return false;
+                        }
+                    }
+                    return true;
+
+                case OR:
+                    for (int i = args[node]; i != args2[node]; ++i) {
+                        if (test(children[i])) {
+                            return true;
+                        }
+                    }
+                    return false;
+
+                case NOT:
+                    return !test(args[node]);
+
+                case PREDICATE:
+                    return testPredicate(args[node]);
+
+                case REGEXP: {
+                    final boolean matched = testRule(args[node]);
+                    if (matched) {
+                        logMatch(ruleLogMsgs[args2[node]]);
+                    }
+                    return matched;
+                }
+
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+
+        abstract boolean testPredicate(int predicate);
+
+        abstract boolean testRule(int rule);
+
+        abstract void logMatch(String msg);
+    }
+
+    /**
+     * State of evaluation of nodes of the program for a record.
+     */
+    final class Evaluation extends Evaluator {
+        private Evaluation(Record record) {
+            this.record = record;
+            final int ruleWords = (rulePatterns.length + 63) >>> 6;
+            evaluatedRules = new long[ruleWords];
+            matchedRules = new long[ruleWords];
+            fieldValues = new String[fields.length];
+            candidateRules = new long[fields.length][];
+        }
+
+        @Override
+        boolean testPredicate(int predicate) {
+            return predicates.get(predicate).test(record);
+        }
+
+        @Override
+        boolean testRule(int rule) {
+            final int word = rule >>> 6;
+            final long bit = 1L << rule;
+            if ((evaluatedRules[word] & bit) != 0) {
+                return (matchedRules[word] & bit) != 0;
+            }
+
+            final boolean matched = runRule(rule);
+            evaluatedRules[word] |= bit;
+            if (matched) {
+                matchedRules[word] |= bit;
+            }
+            return matched;
+        }
+
+        @Override
+        void logMatch(String msg) {
+            LoggingRecordMatcher.logMatch(msg, record);
+        }
+
+        private boolean runRule(int rule) {
+            final Field field = fields[ruleFields[rule]];
+            long[] candidates = candidateRules[field.index];
+            if (candidates == null) {
+                final String value = field.accessor.apply(record);
+                fieldValues[field.index] = value;
+                if (value == null) {
+                    candidates = NO_CANDIDATES;
+                } else {
+                    candidates = field.findCandidateRules(value);
+                }
+                candidateRules[field.index] = candidates;
+            }
+
+            final int word = rule >>> 6;
+            if (word >= candidates.length || (candidates[word] & (1L << rule))
+                    == 0) {
+                return false;
+            }
+
+            return rulePatterns[rule].matcher(fieldValues[field.index]).find();
+        }
+
+        private final Record record;
+        private final long[] evaluatedRules;
+        private final long[] matchedRules;
+        private final String[] fieldValues;
+        private final long[][] candidateRules;
+    }
+
+    /**
+     * State of evaluation of nodes of the program for rows of a batch.
+     * Results of regular expressions are kept per dictionary code of the
+     * field value.
+     */
+    final class BatchEvaluation extends Evaluator {
+        private BatchEvaluation(RecordBatch batch) {
+            this.batch = batch;
+            columns = new RecordBatch.StringColumn[fields.length];
+            values = new ValueState[fields.length][];
+            for (Field field : fields) {
+                columns[field.index] = field.columnAccessor.apply(batch);
+                values[field.index] = new ValueState[
+                        columns[field.index].cardinality()];
+            }
+            row = -1;
+        }
+
+        boolean test(int node, int row) {
+            if (this.row != row) {
+                this.row = row;
+                record = null;
+            }
+            return test(node);
+        }
+
+        @Override
+        boolean testPredicate(int predicate) {
+            final RecordBatch.RowPredicate rowPredicate
+                    = rowPredicates[predicate];
+            if (rowPredicate == null) {
+                return predicates.get(predicate).test(getRecord());
+            }
+
+            final boolean matched = rowPredicate.test(batch, row);
+            if (matched) {
+                logMatch(predicateLogMsgs[predicate]);
+            }
+            return matched;
+        }
+
+        @Override
+        boolean testRule(int rule) {
+            final Field field = fields[ruleFields[rule]];
+            final RecordBatch.StringColumn column = columns[field.index];
+            final int code = column.code(row);
+            if (code == RecordBatch.NULL_CODE) {
+                return false;
+            }
+
+            ValueState state = values[field.index][code];
+            if (state == null) {
+                state = new ValueState(field, column.value(code));
+                values[field.index][code] = state;
+            }
+            return state.testRule(rule);
+        }
+
+        @Override
+        void logMatch(String msg) {
+            if (LoggingRecordMatcher.LOGGER.isLoggable(Level.INFO)) {
+                LoggingRecordMatcher.logMatch(msg, getRecord());
+            }
+        }
+
+        private Record getRecord() {
+            if (record == null) {
+                record = batch.get(row);
+            }
+            return record;
+        }
+
+        private final RecordBatch batch;
+        private final RecordBatch.StringColumn[] columns;
+        private final ValueState[][] values;
+        private int row;
+        private Record record;
+    }
+
+    /**
+     * Results of regular expressions for a field value.
+     */
+    private final class ValueState {
+        ValueState(Field field, String value) {
+            this.value = value;
+            candidates = field.findCandidateRules(value);
+            matchedRules = new long[candidates.length];
+        }
+
+        boolean testRule(int rule) {
+            final int word = rule >>> 6;
+            final long bit = 1L << rule;
+            if ((candidates[word] & bit) == 0) {
+                return false;
+            }
+            if ((matchedRules[word] & bit) != 0) {
+                return true;
+            }
+
+            if (rulePatterns[rule].matcher(value).find()) {
+                matchedRules[word] |= bit;
+                return true;
+            }
+            // Rules are candidates until they fail to match.
+            candidates[word] &= ~bit;
+            return false;
+        }
+
+        private final String value;
+        private final long[] candidates;
+        private final long[] matchedRules;
+    }
+
+    Evaluation evaluate(Record record) {
+        return new Evaluation(record);
+    }
+
+    Predicate<Record> toPredicate(int node) {
+        return record -> evaluate(record).test(node);
+    }
+
+    BatchEvaluation evaluate(RecordBatch batch) {
+        return new BatchEvaluation(batch);
+    }
+
+    /**
+     * Returns row filter keeping rows matching the given node in the given
+     * order.
+     */
+    RecordBatch.RowFilter toRowFilter(int node) {
+        return (batch, rows) -> {
+            final BatchEvaluation evaluation = evaluate(batch);
+            final int[] result = new int[rows.length];
+            int count = 0;
+            for (int row : rows) {
+                if (evaluation.test(node, row)) {
+                    result[count++] = row;
+                }
+            }
+            return count == rows.length ? result : Arrays.copyOf(result,
+                    count);
+        };
+    }
+
+    private RecordMatcherProgram(Builder builder) {
+        final int nodeCount = builder.kinds.size();
+        kinds = new byte[nodeCount];
+        for (int i = 0; i != nodeCount; ++i) {
+            kinds[i] = builder.kinds.get(i);
+        }
+        args = builder.args.stream().mapToInt(Integer::intValue).toArray();
+        args2 = builder.args2.stream().mapToInt(Integer::intValue).toArray();
+        children = builder.children.stream().mapToInt(Integer::intValue).toArray();
+        predicates = List.copyOf(builder.predicates);
+        rowPredicates = builder.rowPredicates.toArray(
+                RecordBatch.RowPredicate[]::new);
+        predicateLogMsgs = builder.predicateLogMsgs.toArray(String[]::new);
+        ruleLogMsgs = builder.ruleLogMsgs.toArray(String[]::new);
+        rulePatterns = builder.rulePatterns.toArray(Pattern[]::new);
+        ruleFields = builder.ruleFields.stream().mapToInt(Integer::intValue).toArray();
+        fields = new Field[builder.fields.size()];
+        builder.fields.values().forEach(v -> fields[v.index] = v.create(
+                rulePatterns.length));
+    }
+
+    private final static class FieldBuilder {
+        FieldBuilder(int index, Function<Record, String> accessor,
+                Function<RecordBatch, RecordBatch.StringColumn> columnAccessor) {
+            this.index = index;
+            this.accessor = accessor;
+            this.columnAccessor = columnAccessor;
+        }
+
+        void addRule(int rule, RegexLiterals literals) {
+            if (literals == null) {
+                unscreenedRules.add(rule);
+            } else {
+                final List<String> patterns = literals.isCaseInsensitive()
+                        ? caseInsensitiveLiterals : this.literals;
+                final List<Integer> patternRules = literals.isCaseInsensitive()
+                        ? caseInsensitiveLiteralRules : literalRules;
+                for (String literal : literals.getLiterals()) {
+                    patterns.add(literal);
+                    patternRules.add(rule);
+                }
+            }
+        }
+
+        Field create(int ruleCount) {
+            return new Field(this, ruleCount);
+        }
+
+        private final int index;
+        private final Function<Record, String> accessor;
+        private final Function<RecordBatch, RecordBatch.StringColumn> columnAccessor;
+        private final List<Integer> unscreenedRules = new ArrayList<>();
+        private final List<String> literals = new ArrayList<>();
+        private final List<Integer> literalRules = new ArrayList<>();
+        private final List<String> caseInsensitiveLiterals = new ArrayList<>();
+        private final List<Integer> caseInsensitiveLiteralRules = new ArrayList<>();
+    }
+
+    private final static class Field {
+        Field(FieldBuilder builder, int ruleCount) {
+            index = builder.index;
+            accessor = builder.accessor;
+            columnAccessor = builder.columnAccessor;
+            unscreenedRules = new long[(ruleCount + 63) >>> 6];
+            builder.unscreenedRules.forEach(rule -> unscreenedRules[rule >>> 6]
+                    |= 1L << rule);
+
+            literals = new MultiStringMatcher(builder.literals);
+            literalRules = builder.literalRules.stream().mapToInt(
+                    Integer::intValue).toArray();
+
+            caseInsensitiveLiterals = new MultiStringMatcher(
+                    builder.caseInsensitiveLiterals);
+            caseInsensitiveLiteralRules = builder.caseInsensitiveLiteralRules
+                    .stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        long[] findCandidateRules(String value) {
+            final long[] result = unscreenedRules.clone();
+            if (literalRules.length != 0) {
+                literals.forEachMatch(value, idx -> {
+                    final int rule = literalRules[idx];
+                    result[rule >>> 6] |= 1L << rule;
+                });
+            }
+            if (caseInsensitiveLiteralRules.length != 0) {
+                caseInsensitiveLiterals.forEachMatch(
+                        RegexLiterals.toLowerCaseAscii(value), idx -> {
+                    final int rule = caseInsensitiveLiteralRules[idx];
+                    result[rule >>> 6] |= 1L << rule;
+                });
+            }
+            return result;
+        }
+
+        private final int index;
+        private final Function<Record, String> accessor;
+        private final Function<RecordBatch, RecordBatch.StringColumn> columnAccessor;
+        private final long[] unscreenedRules;
+        private final MultiStringMatcher literals;
+        private final int[] literalRules;
+        private final MultiStringMatcher caseInsensitiveLiterals;
+        private final int[] caseInsensitiveLiteralRules;
+    }
+
+    private final byte[] kinds;
+    private final int[] args;
+    private final int[] args2;
+    private final int[] children;
+    private final List<Predicate<Record>> predicates;
+    private final RecordBatch.RowPredicate[] rowPredicates;
+    private final String[] predicateLogMsgs;
+    private final String[] ruleLogMsgs;
+    private final Pattern[] rulePatterns;
+    private final int[] ruleFields;
+    private final Field[] fields;
+
+    private final static byte TRUE = 0;
+    private final static byte AND = 1;
+    private final static byte OR = 2;
+    private final static byte NOT = 3;
+    private final static byte PREDICATE = 4;
+    private final static byte REGEXP = 5;
+
+    private final static long[] NO_CANDIDATES = new long[0];
+}
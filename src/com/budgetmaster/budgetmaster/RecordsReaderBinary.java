@@ -0,0 +1,179 @@
+package com.budgetmaster.budgetmaster;
+
+import static com.budgetmaster.budgetmaster.BinaryRecordsSerializer.AMOUNT_BIG;
+import static com.budgetmaster.budgetmaster.BinaryRecordsSerializer.AMOUNT_LONG;
+import static com.budgetmaster.budgetmaster.BinaryRecordsSerializer.AMOUNT_NULL;
+import static com.budgetmaster.budgetmaster.BinaryRecordsSerializer.FORMAT_VERSION;
+import static com.budgetmaster.budgetmaster.BinaryRecordsSerializer.MAGIC;
+import static com.budgetmaster.budgetmaster.BinaryRecordsSerializer.NULL_DATE;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * Reads records saved by BinaryRecordsSerializer. The file is memory-mapped
+ * and records are decoded as the returned stream is consumed.
+ */
+final public class RecordsReaderBinary implements RecordsSupplier {
+    @Override
+    public Stream<Record> read(Path file) throws IOException {
+        final ByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(String.format(
+                        "[%s] file is too large", file));
+            }
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buf.limit() < HEADER_SIZE + FOOTER_SIZE || buf.getInt(0) != MAGIC
+                || buf.getInt(buf.limit() - Integer.BYTES) != MAGIC) {
+            throw new IOException(String.format(
+                    "[%s] file is not a binary records file", file));
+        }
+        if (buf.getInt(Integer.BYTES) != FORMAT_VERSION) {
+            throw new IOException(String.format(
+                    "Unsupported version %d of [%s] binary records file",
+                    buf.getInt(Integer.BYTES), file));
+        }
+
+        final int footer = buf.limit() - FOOTER_SIZE;
+        final int dictOffset = Math.toIntExact(buf.getLong(footer));
+        final int count = buf.getInt(footer + Long.BYTES);
+
+        buf.position(dictOffset);
+        final String[] dict = new String[buf.getInt()];
+        for (int i = 0; i != dict.length; ++i) {
+            dict[i] = readString(buf);
+        }
+
+        buf.position(HEADER_SIZE);
+        return StreamSupport.stream(Spliterators.spliterator(
+                new RecordIterator(buf, count, dict), count,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private final static class RecordIterator implements Iterator<Record> {
+        RecordIterator(ByteBuffer buf, int count, String[] dict) {
+            this.buf = buf;
+            this.remaining = count;
+            this.dict = dict;
+            this.currencies = new Currency[dict.length];
+            this.sources = new HashMap<>();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining != 0;
+        }
+
+        @Override
+        public Record next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+
+            RecordBuilder rb = new RecordBuilder();
+            rb.setTransactionDate(readDate(buf));
+            rb.setPostingDate(readDate(buf));
+            rb.setId(readString(buf));
+            rb.setDescription(readString(buf));
+
+            final byte amountKind = buf.get();
+            if (amountKind != AMOUNT_NULL) {
+                final int scale = buf.getInt();
+                if (amountKind == AMOUNT_LONG) {
+                    rb.setAmount(BigDecimal.valueOf(buf.getLong(), scale));
+                } else if (amountKind == AMOUNT_BIG) {
+                    rb.setAmount(new BigDecimal(new BigInteger(readBytes(buf)),
+                            scale));
+                } else {
+                    throw new IllegalStateException(String.format(
+                            "Invalid amount kind %d", amountKind));
+                }
+            }
+
+            final int currencyIdx = buf.getInt();
+            if (currencyIdx >= 0) {
+                if (currencies[currencyIdx] == null) {
+                    currencies[currencyIdx] = Currency.getInstance(
+                            dict[currencyIdx]);
+                }
+                rb.setCurrency(currencies[currencyIdx]);
+            }
+
+            rb.setCategory(lookup(buf.getInt()));
+
+            final int statementIdIdx = buf.getInt();
+            final int systemIdIdx = buf.getInt();
+            if (statementIdIdx >= 0 || systemIdIdx >= 0) {
+                rb.setSource(sources.computeIfAbsent(List.of(statementIdIdx,
+                        systemIdIdx), x -> Statement.of(lookup(statementIdIdx),
+                        lookup(systemIdIdx))));
+            }
+
+            final int tagCount = buf.getInt();
+            if (tagCount >= 0) {
+                final String[] tags = new String[tagCount];
+                for (int i = 0; i != tagCount; ++i) {
+                    tags[i] = dict[buf.getInt()];
+                }
+                rb.setTags(tags);
+            }
+
+            return rb.create();
+        }
+
+        private String lookup(int idx) {
+            return idx < 0 ? null : dict[idx];
+        }
+
+        private final ByteBuffer buf;
+        private final String[] dict;
+        private final Currency[] currencies;
+        private final Map<List<Integer>, Statement> sources;
+        private int remaining;
+    }
+
+    private static LocalDate readDate(ByteBuffer buf) {
+        final int v = buf.getInt();
+        return v == NULL_DATE ? null : LocalDate.ofEpochDay(v);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        final int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] v = new byte[length];
+        buf.get(v);
+        return new String(v, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer buf) {
+        final byte[] v = new byte[buf.getInt()];
+        buf.get(v);
+        return v;
+    }
+
+    private final static int HEADER_SIZE = 2 * Integer.BYTES;
+    private final static int FOOTER_SIZE = Long.BYTES + 2 * Integer.BYTES;
+}
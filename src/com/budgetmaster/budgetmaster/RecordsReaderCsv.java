@@ -1,7 +1,6 @@
 package com.budgetmaster.budgetmaster;
 
 import java.nio.file.Path;
-import java.time.format.DateTimeFormatter;
 import java.util.Map;
 import java.util.stream.Stream;
 import org.apache.commons.csv.CSVFormat;
@@ -24,8 +23,8 @@ final public class RecordsReaderCsv extends AccountStatementCsv {
     }
 
     @Override
-    protected DateTimeFormatter recordDateTimeFormatter() {
-        return new CsvRecordsSerializer().getDateTimeFormatter();
+    protected DateDecoder recordDateDecoder() {
+        return DATE_DECODER;
     }
 
     @Override
@@ -43,4 +42,7 @@ final public class RecordsReaderCsv extends AccountStatementCsv {
         Statement statement = Statement.fromStatementFile(id, systemId, null, null);
         rb.setSource(statement);
     }
+
+    private final static DateDecoder DATE_DECODER = DateDecoder.ofPattern(
+            CsvRecordsSerializer.DATE_FORMAT);
 }
@@ -0,0 +1,359 @@
+package com.budgetmaster.budgetmaster;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Literal strings at least one of which occurs in every match of a regular
+ * expression.
+ *
+ * Extraction is conservative. It understands a subset of
+ * java.util.regex.Pattern syntax: top-level alternatives, escaped and
+ * quantified characters, character classes, groups and the leading `(?i)`
+ * flag. Groups and character classes are skipped and never contribute to
+ * literals. For any other construct, or if any of top-level alternatives
+ * has no literal characters, no literals are extracted.
+ */
+final class RegexLiterals {
+
+    /**
+     * Returns literals of the given regular expression or null if they can't
+     * be extracted.
+     */
+    static RegexLiterals of(String regexp) {
+        return new Parser(regexp).parse();
+    }
+
+    /**
+     * Returns true if literals should be searched in text with ASCII
+     * characters converted to lower case with toLowerCaseAscii().
+     */
+    boolean isCaseInsensitive() {
+        return caseInsensitive;
+    }
+
+    List<String> getLiterals() {
+        return literals;
+    }
+
+    static String toLowerCaseAscii(String v) {
+        for (int i = 0; i != v.length(); ++i) {
+            final char c = v.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                final char[] chars = v.toCharArray();
+                for (int j = i; j != chars.length; ++j) {
+                    if (chars[j] >= 'A' && chars[j] <= 'Z') {
+                        chars[j] += 'a' - 'A';
+                    }
+                }
+                return new String(chars);
+            }
+        }
+        return v;
+    }
+
+    private RegexLiterals(boolean caseInsensitive, List<String> literals) {
+        this.caseInsensitive = caseInsensitive;
+        this.literals = literals;
+    }
+
+    private final static class Parser {
+        Parser(String regexp) {
+            this.re = regexp;
+        }
+
+        RegexLiterals parse() {
+            try {
+                return parseOrThrow();
+            } catch (UnsupportedSyntaxException ex) {
+                return null;
+            }
+        }
+
+        private RegexLiterals parseOrThrow() {
+            final boolean caseInsensitive = re.startsWith("(?i)");
+            if (caseInsensitive) {
+                pos = 4;
+            }
+
+            final List<String> literals = new ArrayList<>();
+            while (true) {
+                final String literal = parseAlternative();
+                if (literal.isEmpty()) {
+                    return null;
+                }
+                literals.add(caseInsensitive ? toLowerCaseAscii(literal)
+                        : literal);
+
+                if (pos == re.length()) {
+                    break;
+                }
+                // Skip '|'
+                pos++;
+            }
+
+            return new RegexLiterals(caseInsensitive, literals);
+        }
+
+        /**
+         * Returns the longest run of mandatory literal characters of the
+         * alternative starting at the current position. Stops at top-level
+         * '|' or at the end of the expression.
+         */
+        private String parseAlternative() {
+            String best = "";
+            StringBuilder run = new StringBuilder();
+            while (pos != re.length() && re.charAt(pos) != '|') {
+                final char c = re.charAt(pos++);
+                final int literal;
+                switch (c) {
+                    case '(':
+                        skipGroup();
+                        literal = -1;
+                        skipQuantifier();
+                        break;
+
+                    case '[':
+                        skipCharClass();
+                        literal = -1;
+                        skipQuantifier();
+                        break;
+
+                    case '.':
+                        literal = -1;
+                        skipQuantifier();
+                        break;
+
+                    case '^':
+                    case '$':
+                        literal = -1;
+                        break;
+
+                    case '\\':
+                        literal = parseEscape();
+                        break;
+
+                    case ')':
+                    case '*':
+                    case '+':
+                    case '?':
+                    case '{':
+                        throw new UnsupportedSyntaxException();
+
+                    default:
+                        if (Character.isSurrogate(c)) {
+                            throw new UnsupportedSyntaxException();
+                        }
+                        literal = c;
+                        break;
+                }
+
+                if (literal >= 0) {
+                    final int min = skipQuantifier();
+                    if (min != 0) {
+                        run.append((char) literal);
+                    }
+                    if (min < 0) {
+                        // Not quantified.
+                        continue;
+                    }
+                }
+
+                if (run.length() > best.length()) {
+                    best = run.toString();
+                }
+                run.setLength(0);
+            }
+
+            if (run.length() > best.length()) {
+                best = run.toString();
+            }
+            return best;
+        }
+
+        /**
+         * Returns escaped literal character or -1 if the escape sequence is
+         * not a literal character. Skips quantifier of non-literal escape
+         * sequence.
+         */
+        private int parseEscape() {
+            if (pos == re.length()) {
+                throw new UnsupportedSyntaxException();
+            }
+
+            final char c = re.charAt(pos++);
+            if (Character.isSurrogate(c)) {
+                throw new UnsupportedSyntaxException();
+            }
+            if (!Character.isLetterOrDigit(c)) {
+                return c;
+            }
+
+            if ("bBAzZG".indexOf(c) >= 0) {
+                // Boundary matcher.
+                return -1;
+            }
+
+            if ("dDsSwWhHvVRXtnrfae".indexOf(c) >= 0) {
+                skipQuantifier();
+                return -1;
+            }
+
+            throw new UnsupportedSyntaxException();
+        }
+
+        /**
+         * Skips quantifier at the current position. Returns min number of
+         * repetitions of the quantifier or -1 if there is no quantifier.
+         */
+        private int skipQuantifier() {
+            if (pos == re.length()) {
+                return -1;
+            }
+
+            final int min;
+            switch (re.charAt(pos)) {
+                case '*':
+                case '?':
+                    min = 0;
+                    pos++;
+                    break;
+
+                case '+':
+                    min = 1;
+                    pos++;
+                    break;
+
+                case '{': {
+                    final int end = re.indexOf('}', pos);
+                    if (end < 0) {
+                        throw new UnsupportedSyntaxException();
+                    }
+                    final String range = re.substring(pos + 1, end);
+                    final int sep = range.indexOf(',');
+                    try {
+                        min = Integer.parseInt(sep < 0 ? range : range.substring(
+                                0, sep));
+                    } catch (NumberFormatException ex) {
+                        throw new UnsupportedSyntaxException();
+                    }
+                    pos = end + 1;
+                    break;
+                }
+
+                default:
+                    return -1;
+            }
+
+            if (pos != re.length() && (re.charAt(pos) == '?' || re.charAt(pos)
+                    == '+')) {
+                // Reluctant or possessive quantifier.
+                pos++;
+            }
+
+            return min;
+        }
+
+        /**
+         * Skips group. The current position is after the opening '('.
+         */
+        private void skipGroup() {
+            if (pos != re.length() && re.charAt(pos) == '?' && pos + 1
+                    != re.length() && ":=!<>".indexOf(re.charAt(pos + 1)) < 0) {
+                // Inline flags.
+                throw new UnsupportedSyntaxException();
+            }
+
+            int depth = 1;
+            while (pos != re.length()) {
+                final char c = re.charAt(pos++);
+                switch (c) {
+                    case '\\':
+                        skipEscapeInGroup();
+                        break;
+
+                    case '[':
+                        skipCharClass();
+                        break;
+
+                    case '(':
+                        if (pos != re.length() && re.charAt(pos) == '?'
+                                && pos + 1 != re.length() && ":=!<>".indexOf(
+                                        re.charAt(pos + 1)) < 0) {
+                            throw new UnsupportedSyntaxException();
+                        }
+                        depth++;
+                        break;
+
+                    case ')':
+                        if (--depth == 0) {
+                            return;
+                        }
+                        break;
+
+                    default:
+                        break;
+                }
+            }
+
+            throw new UnsupportedSyntaxException();
+        }
+
+        /**
+         * Skips character class. The current position is after the opening
+         * '['.
+         */
+        private void skipCharClass() {
+            if (pos != re.length() && re.charAt(pos) == '^') {
+                pos++;
+            }
+            if (pos != re.length() && re.charAt(pos) == ']') {
+                throw new UnsupportedSyntaxException();
+            }
+
+            int depth = 1;
+            while (pos != re.length()) {
+                final char c = re.charAt(pos++);
+                switch (c) {
+                    case '\\':
+                        skipEscapeInGroup();
+                        break;
+
+                    case '[':
+                        depth++;
+                        break;
+
+                    case ']':
+                        if (--depth == 0) {
+                            return;
+                        }
+                        break;
+
+                    default:
+                        break;
+                }
+            }
+
+            throw new UnsupportedSyntaxException();
+        }
+
+        private void skipEscapeInGroup() {
+            if (pos == re.length() || re.charAt(pos) == 'Q') {
+                throw new UnsupportedSyntaxException();
+            }
+            pos++;
+        }
+
+        private final String re;
+        private int pos;
+    }
+
+    private final static class UnsupportedSyntaxException extends
+            RuntimeException {
+        private final static long serialVersionUID = 1L;
+    }
+
+    private final boolean caseInsensitive;
+    private final List<String> literals;
+}
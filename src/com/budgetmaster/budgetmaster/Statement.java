@@ -13,6 +13,30 @@ public interface Statement extends ThrowingSupplier<Stream<Record>> {
 
     public String getSystemId();
 
+    /**
+     * Returns statement with the given IDs and no records. Sources of
+     * records read back from saved files are such statements. Either ID may
+     * be null.
+     */
+    static Statement of(String id, String systemId) {
+        return new Statement() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public String getSystemId() {
+                return systemId;
+            }
+
+            @Override
+            public Stream<Record> get() {
+                return Stream.empty();
+            }
+        };
+    }
+
     static Statement fromStatementFile(String id, Path path, Currency currency,
             RecordsSupplier rs) {
         return new Statement() {
@@ -0,0 +1,410 @@
+package com.budgetmaster.budgetmaster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.invoke.MethodHandles;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.w3c.dom.Element;
+
+
+/**
+ * On-disk cache of records harvested from statement files.
+ *
+ * Records are stored in a file per (statement file content, parser) pair.
+ * File name is made of SHA-256 digest of the content of the statement file
+ * and the fingerprint of the parser. Parser fingerprint is SHA-256 digest
+ * of the `<parser>` config element, the parser class name and the digest of
+ * the application build. Changes of the statement file, of the parser config
+ * or of any class of the application result in a cache miss. Stale cache
+ * files are never removed automatically.
+ */
+final class StatementCache {
+    StatementCache(Path dir) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+    long getMissCount() {
+        return misses.get();
+    }
+
+    static String parserFingerprint(Element parserEl, Class<?> parserClass) {
+        MessageDigest md = newMessageDigest();
+        md.update(String.format("%d:%s:%s:", FORMAT_VERSION,
+                parserClass.getName(), buildDigest()).getBytes(
+                StandardCharsets.UTF_8));
+        md.update(toXmlString(parserEl).getBytes(StandardCharsets.UTF_8));
+        return toHexString(md.digest());
+    }
+
+    /**
+     * Returns SHA-256 digest of the application build. The digest covers the
+     * content of every file in the directory or jar file the application
+     * classes are loaded from and the names of the other class path entries.
+     * Returns empty string if the application location is unknown.
+     */
+    static String buildDigest() {
+        return BuildDigestHolder.VALUE;
+    }
+
+    Statement wrap(Statement statement, Path path, String parserFingerprint) {
+        return new Statement() {
+            @Override
+            public String getId() {
+                return statement.getId();
+            }
+
+            @Override
+            public String getSystemId() {
+                return statement.getSystemId();
+            }
+
+            @Override
+            public Stream<Record> get() throws Exception {
+                final Path cacheFile = dir.resolve(String.format("%s-%s",
+                        contentDigest(path), parserFingerprint));
+
+                List<Record> records = null;
+                try {
+                    records = load(cacheFile, statement);
+                } catch (NoSuchFileException ex) {
+                    // Not cached.
+                } catch (IOException | RuntimeException ex) {
+                    LOGGER.warning(String.format(
+                            "Failed to read [%s] cache file of [%s] input file: %s",
+                            cacheFile, path, ex));
+                }
+
+                if (records != null) {
+                    hits.incrementAndGet();
+                    LOGGER.finer(String.format(
+                            "Read %d records of [%s] input file from [%s] cache file",
+                            records.size(), path, cacheFile));
+                    return records.stream();
+                }
+
+                misses.incrementAndGet();
+                try (Stream<Record> stream = statement.get()) {
+                    records = stream.collect(Collectors.toList());
+                }
+                try {
+                    save(cacheFile, records, statement);
+                } catch (IOException ex) {
+                    LOGGER.warning(String.format(
+                            "Failed to write [%s] cache file of [%s] input file: %s",
+                            cacheFile, path, ex));
+                }
+                return records.stream();
+            }
+        };
+    }
+
+    private void save(Path cacheFile, List<Record> records, Statement statement)
+            throws IOException {
+        final Path tmpFile = Files.createTempFile(dir, null, null);
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(records.size());
+                for (Record record : records) {
+                    writeRecord(out, record, statement);
+                }
+            }
+            // Concurrent jobs harvesting the same content may race here.
+            // Either of the identical files wins.
+            Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    private static List<Record> load(Path cacheFile, Statement statement)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported format");
+            }
+
+            final int count = in.readInt();
+            final Map<List<String>, Statement> sources = new HashMap<>();
+            final List<Record> records = new ArrayList<>(count);
+            for (int i = 0; i != count; ++i) {
+                records.add(readRecord(in, statement, sources));
+            }
+            return records;
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, Record record,
+            Statement statement) throws IOException {
+        writeString(out, record.getId());
+        writeDate(out, record.getTransactionDate());
+        writeDate(out, record.getPostingDate());
+        writeString(out, record.getDescription());
+        writeString(out, record.getCategory());
+        writeString(out, record.getCurrencyCode());
+
+        final BigDecimal amount = record.getAmount();
+        out.writeBoolean(amount != null);
+        if (amount != null) {
+            out.writeInt(amount.scale());
+            final byte[] unscaled = amount.unscaledValue().toByteArray();
+            out.writeInt(unscaled.length);
+            out.write(unscaled);
+        }
+
+        final String[] tags = record.getTags();
+        out.writeInt(tags == null ? -1 : tags.length);
+        if (tags != null) {
+            for (String tag : tags) {
+                out.writeUTF(tag);
+            }
+        }
+
+        final Statement source = record.getSource();
+        if (source == statement) {
+            out.writeByte(SOURCE_STATEMENT);
+        } else if (source == null) {
+            out.writeByte(SOURCE_NONE);
+        } else {
+            out.writeByte(SOURCE_OTHER);
+            writeString(out, source.getId());
+            writeString(out, source.getSystemId());
+        }
+    }
+
+    private static Record readRecord(DataInputStream in, Statement statement,
+            Map<List<String>, Statement> sources) throws IOException {
+        RecordBuilder rb = new RecordBuilder();
+        rb.setId(readString(in));
+        rb.setTransactionDate(readDate(in));
+        rb.setPostingDate(readDate(in));
+        rb.setDescription(readString(in));
+        rb.setCategory(readString(in));
+
+        final String currencyCode = readString(in);
+        if (currencyCode != null) {
+            rb.setCurrency(Currency.getInstance(currencyCode));
+        }
+
+        if (in.readBoolean()) {
+            final int scale = in.readInt();
+            final byte[] unscaled = new byte[in.readInt()];
+            in.readFully(unscaled);
+            rb.setAmount(new BigDecimal(new BigInteger(unscaled), scale));
+        }
+
+        final int tagCount = in.readInt();
+        if (tagCount >= 0) {
+            final String[] tags = new String[tagCount];
+            for (int i = 0; i != tagCount; ++i) {
+                tags[i] = in.readUTF();
+            }
+            rb.setTags(tags);
+        }
+
+        switch (in.readByte()) {
+            case SOURCE_STATEMENT:
+                rb.setSource(statement);
+                break;
+
+            case SOURCE_OTHER:
+                final String id = readString(in);
+                final String systemId = readString(in);
+                rb.setSource(sources.computeIfAbsent(Arrays.asList(id,
+                        systemId), x -> Statement.of(id, systemId)));
+                break;
+
+            default:
+                break;
+        }
+
+        return rb.create();
+    }
+
+    private static void writeString(DataOutputStream out, String v) throws
+            IOException {
+        out.writeBoolean(v != null);
+        if (v != null) {
+            out.writeUTF(v);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        if (in.readBoolean()) {
+            return in.readUTF();
+        }
+        return null;
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate v) throws
+            IOException {
+        out.writeBoolean(v != null);
+        if (v != null) {
+            out.writeLong(v.toEpochDay());
+        }
+    }
+
+    private static LocalDate readDate(DataInputStream in) throws IOException {
+        if (in.readBoolean()) {
+            return LocalDate.ofEpochDay(in.readLong());
+        }
+        return null;
+    }
+
+    static String contentDigest(Path path) throws IOException {
+        MessageDigest md = newMessageDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(path),
+                md)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return toHexString(md.digest());
+    }
+
+    private static String toXmlString(Element el) {
+        try {
+            var transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+            StringWriter sw = new StringWriter();
+            transformer.transform(new DOMSource(el), new StreamResult(sw));
+            return sw.toString();
+        } catch (TransformerException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    static String toHexString(byte[] v) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : v) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private final static class BuildDigestHolder {
+        private static String compute() throws IOException {
+            final Path location;
+            try {
+                var codeSource = StatementCache.class.getProtectionDomain()
+                        .getCodeSource();
+                if (codeSource == null) {
+                    return "";
+                }
+                location = Path.of(codeSource.getLocation().toURI());
+            } catch (URISyntaxException | IllegalArgumentException ex) {
+                return "";
+            }
+
+            MessageDigest md = newMessageDigest();
+            if (Files.isDirectory(location)) {
+                final List<Path> files;
+                try (Stream<Path> walk = Files.walk(location)) {
+                    files = walk.filter(Files::isRegularFile)
+                            .sorted(Comparator.comparing(location::relativize))
+                            .collect(Collectors.toList());
+                }
+                for (Path file : files) {
+                    md.update(String.format("\0file:%s\0", location.relativize(
+                            file).toString().replace('\\', '/')).getBytes(
+                            StandardCharsets.UTF_8));
+                    md.update(Files.readAllBytes(file));
+                }
+            } else {
+                try (InputStream in = new DigestInputStream(
+                        Files.newInputStream(location), md)) {
+                    in.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+
+            // Dependencies are identified by versioned jar file names.
+            Stream.of(System.getProperty("java.class.path", "").split(
+                    File.pathSeparator))
+                    .filter(Predicate.not(String::isEmpty))
+                    .map(v -> Path.of(v).toAbsolutePath().normalize())
+                    .filter(Predicate.not(location.toAbsolutePath().normalize()
+                            ::equals))
+                    .map(Path::getFileName)
+                    .map(Path::toString)
+                    .sorted()
+                    .forEachOrdered(v -> md.update(("\0dependency:" + v)
+                            .getBytes(StandardCharsets.UTF_8)));
+
+            return toHexString(md.digest());
+        }
+
+        private final static String VALUE;
+        static {
+            try {
+                VALUE = compute();
+            } catch (IOException ex) {
+                throw new Functional.ExceptionBox(ex);
+            }
+        }
+    }
+
+    private final Path dir;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    private final static int MAGIC = 0x424d5343;
+    private final static int FORMAT_VERSION = 1;
+
+    private final static byte SOURCE_NONE = 0;
+    private final static byte SOURCE_STATEMENT = 1;
+    private final static byte SOURCE_OTHER = 2;
+
+    private static final Logger LOGGER = Logger.getLogger(
+            MethodHandles.lookup().lookupClass().getName());
+}
@@ -0,0 +1,176 @@
+package com.budgetmaster.budgetmaster;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * Harvests records from statement files with jobs running in the given
+ * executor and returns them in the order of the statement files.
+ *
+ * At most `capacity` jobs are submitted ahead of the statement the consumer
+ * is waiting for. The next job is submitted when the consumer takes records
+ * of a statement. Records of a statement are available to the consumer as
+ * soon as its job and jobs of all previous statements complete.
+ *
+ * Statements for which jobs return null are counted as ignored. Statements
+ * for which jobs fail are counted as failed and skipped. If failFast is set,
+ * the first failure aborts the pipeline: jobs not complete yet are cancelled
+ * and no more statements are returned.
+ */
+final class StatementHarvestPipeline implements
+        Iterator<Map.Entry<Path, List<Record>>> {
+
+    StatementHarvestPipeline(List<Path> paths,
+            Function<Path, Callable<List<Record>>> jobFactory,
+            ExecutorService executor, int capacity, boolean failFast) {
+        Objects.requireNonNull(paths);
+        Objects.requireNonNull(jobFactory);
+        Objects.requireNonNull(executor);
+        if (capacity < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid capacity: %d", capacity));
+        }
+
+        this.paths = paths;
+        this.jobFactory = jobFactory;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.failFast = failFast;
+        this.pending = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * Returns stream of statement files mapped to records harvested from them.
+     */
+    Stream<Map.Entry<Path, List<Record>>> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            submitJobs();
+            final var head = pending.poll();
+            if (head == null) {
+                return false;
+            }
+            takeResult(head.getKey(), head.getValue());
+        }
+        return true;
+    }
+
+    @Override
+    public Map.Entry<Path, List<Record>> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final var result = next;
+        next = null;
+        return result;
+    }
+
+    long getProcessedCount() {
+        return processedCount;
+    }
+
+    long getFailedCount() {
+        return failedCount;
+    }
+
+    long getIgnoredCount() {
+        return ignoredCount;
+    }
+
+    long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns true if the pipeline was aborted because of a failure in
+     * failFast mode.
+     */
+    boolean isAborted() {
+        return aborted;
+    }
+
+    private void submitJobs() {
+        while (!aborted && pending.size() != capacity && nextPathIdx
+                != paths.size()) {
+            final Path path = paths.get(nextPathIdx);
+            try {
+                pending.add(Map.entry(path, executor.submit(jobFactory.apply(
+                        path))));
+            } catch (RejectedExecutionException ex) {
+                // Executor was shut down by a failed job.
+                abort();
+                break;
+            }
+            nextPathIdx++;
+        }
+    }
+
+    private void takeResult(Path path, Future<List<Record>> job) {
+        try {
+            final List<Record> records = job.get();
+            if (records == null) {
+                ignoredCount++;
+            } else {
+                processedCount++;
+                recordCount += records.size();
+                next = Map.entry(path, records);
+            }
+        } catch (CancellationException ex) {
+            // Cancelled jobs are skipped.
+            abort();
+        } catch (ExecutionException ex) {
+            ex.printStackTrace();
+            failedCount++;
+            if (failFast) {
+                abort();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failedCount++;
+            abort();
+        }
+    }
+
+    private void abort() {
+        aborted = true;
+        pending.forEach(e -> e.getValue().cancel(true));
+        pending.clear();
+    }
+
+    private final List<Path> paths;
+    private final Function<Path, Callable<List<Record>>> jobFactory;
+    private final ExecutorService executor;
+    private final int capacity;
+    private final boolean failFast;
+    private final Queue<Map.Entry<Path, Future<List<Record>>>> pending;
+    private int nextPathIdx;
+    private Map.Entry<Path, List<Record>> next;
+    private long processedCount;
+    private long failedCount;
+    private long ignoredCount;
+    private long recordCount;
+    private boolean aborted;
+}
@@ -1,13 +1,15 @@
 package com.budgetmaster.budgetmaster;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 
@@ -15,42 +17,58 @@ final class StatementOverlapFinder implements Function<Stream<Record>, Collectio
 
     @Override
     public Collection<Entry<String, String>> apply(Stream<Record> records) {
+        return apply(RecordBatch.of(records));
+    }
+
+    Collection<Entry<String, String>> apply(RecordBatch batch) {
+        final RecordBatch.StringColumn statementIds = batch.getStatementIds();
+        final RecordBatch.StringColumn systemIds = batch.getStatementSystemIds();
+
+        // Statement IDs are compared by ranks of their codes.
+        final int[] statementIdRanks = new int[statementIds.cardinality()];
+        final Integer[] byStatementId = IntStream.range(0,
+                statementIdRanks.length).boxed().toArray(Integer[]::new);
+        Arrays.sort(byStatementId, Comparator.comparing(
+                statementIds::value));
+        for (int i = 0; i != byStatementId.length; ++i) {
+            statementIdRanks[byStatementId[i]] = i;
+        }
+
         // Cluster by statement type and order by date
-        records = records.sorted((r1, r2) -> {
-            int result = r1.getSource().getId().compareTo(r2.getSource().getId());
+        final int[] rows = batch.allRows();
+        RecordBatch.sort(rows, (r1, r2) -> {
+            int result = Integer.compare(statementIdRanks[statementIds.code(
+                    r1)], statementIdRanks[statementIds.code(r2)]);
             if (result == 0) {
-                result = r1.getPostingDate().compareTo(r2.getPostingDate());
+                result = Integer.compare(batch.getPostingDay(r1),
+                        batch.getPostingDay(r2));
             }
             return result;
         });
 
-        State state = new State();
-        records.forEachOrdered(record -> {
-            if (state.prevRecord == null) {
-                state.processedStatements.add(record.getSource().getSystemId());
-            } else if (state.prevRecord.getSource().getSystemId().equals(
-                    record.getSource().getSystemId())) {
-            } else if (state.processedStatements.contains(
-                    record.getSource().getSystemId())) {
-                String r1SystemId = record.getSource().getSystemId();
-                String r2SystemId = state.prevRecord.getSource().getSystemId();
+        final BitSet processedStatements = new BitSet(
+                systemIds.cardinality());
+        final Set<Entry<String, String>> overlappedPairs = new HashSet<>();
+        int prevSystemId = RecordBatch.NULL_CODE;
+        for (int i = 0; i != rows.length; ++i) {
+            final int systemId = systemIds.code(rows[i]);
+            if (i == 0) {
+                processedStatements.set(systemId);
+            } else if (prevSystemId == systemId) {
+            } else if (processedStatements.get(systemId)) {
+                String r1SystemId = systemIds.value(systemId);
+                String r2SystemId = systemIds.value(prevSystemId);
                 if (r1SystemId.compareTo(r2SystemId) < 0) {
-                    state.overlappedPairs.add(Map.entry(r1SystemId, r2SystemId));
+                    overlappedPairs.add(Map.entry(r1SystemId, r2SystemId));
                 } else {
-                    state.overlappedPairs.add(Map.entry(r2SystemId, r1SystemId));
+                    overlappedPairs.add(Map.entry(r2SystemId, r1SystemId));
                 }
             } else {
-                state.processedStatements.add(record.getSource().getSystemId());
+                processedStatements.set(systemId);
             }
-            state.prevRecord = record;
-        });
-
-        return state.overlappedPairs;
-    }
+            prevSystemId = systemId;
+        }
 
-    private static final class State {
-        Set<String> processedStatements = new HashSet<>();
-        Set<Entry<String, String>> overlappedPairs = new HashSet<>();
-        Record prevRecord;
+        return overlappedPairs;
     }
 }
@@ -17,6 +17,11 @@ import org.w3c.dom.NodeList;
 
 
 public class StatementReaderBuilder {
+    StatementReaderBuilder setStatementCache(StatementCache v) {
+        statementCache = v;
+        return this;
+    }
+
     Function<Path, Statement> createFromXml(Document doc) throws IOException {
         List<Function<Path, Statement>> parsers = new ArrayList<>();
 
@@ -38,7 +43,7 @@ public class StatementReaderBuilder {
         };
     }
 
-    private static <T> T newInstance(Class clazz) {
+    private static <T> T newInstance(Class<?> clazz) {
         try {
             return (T) clazz.getConstructor().newInstance();
         } catch (IllegalAccessException | InstantiationException
@@ -49,19 +54,41 @@ public class StatementReaderBuilder {
         }
     }
 
-    private static PluggableSupplier<RecordsSupplier> createRecordsSupplierFactory(
-            String className) {
+    private static Class<?> loadClass(String className) {
         try {
-            Class clazz = Class.forName(className);
-            if (PluggableSupplier.class.isAssignableFrom(clazz)) {
-                return newInstance(clazz);
-            }
-            return () -> newInstance(clazz);
+            return Class.forName(className);
         } catch (ClassNotFoundException ex) {
             throw new RuntimeException(ex);
         }
     }
 
+    private static PluggableSupplier<RecordsSupplier> createRecordsSupplierFactory(
+            Class<?> clazz) {
+        if (PluggableSupplier.class.isAssignableFrom(clazz)) {
+            return newInstance(clazz);
+        }
+        if (Pluggable.class.isAssignableFrom(clazz)) {
+            // Every new records supplier is initialized from the parser
+            // element.
+            return new PluggableSupplier<>() {
+                @Override
+                public void initFromXml(Element root) {
+                    this.root = root;
+                }
+
+                @Override
+                public RecordsSupplier get() {
+                    RecordsSupplier result = newInstance(clazz);
+                    ((Pluggable) result).initFromXml(root);
+                    return result;
+                }
+
+                private Element root;
+            };
+        }
+        return () -> newInstance(clazz);
+    }
+
     private Function<Path, Statement> createRecordsSupplier(Element parserEl) {
 
         List<Predicate<Path>> matchers = new ArrayList<>();
@@ -87,14 +114,29 @@ public class StatementReaderBuilder {
             matchers.add(pm::matches);
         }
 
-        var rsf = createRecordsSupplierFactory(clazz);
+        final Class<?> parserClass = loadClass(clazz);
+        var rsf = createRecordsSupplierFactory(parserClass);
         rsf.initFromXml(parserEl);
 
+        final StatementCache cache = statementCache;
+        final String parserFingerprint;
+        if (cache != null) {
+            parserFingerprint = StatementCache.parserFingerprint(parserEl,
+                    parserClass);
+        } else {
+            parserFingerprint = null;
+        }
+
         return (path) -> {
             for (Predicate<Path> m : matchers) {
                 if (m.test(path)) {
-                    return Statement.fromStatementFile(id, path, currency,
-                            rsf.get());
+                    Statement statement = Statement.fromStatementFile(id, path,
+                            currency, rsf.get());
+                    if (cache != null) {
+                        statement = cache.wrap(statement, path,
+                                parserFingerprint);
+                    }
+                    return statement;
                 }
             }
             return null;
@@ -105,4 +147,6 @@ public class StatementReaderBuilder {
             throws IOException {
         return createFromXml(Util.readXml(xmlFile));
     }
+
+    private StatementCache statementCache;
 }
@@ -0,0 +1,74 @@
+package com.budgetmaster.budgetmaster;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Process-wide dictionary of record tags. Every distinct tag is assigned a
+ * small non-negative integer index. Records store tag indices instead of
+ * strings.
+ */
+final class TagDictionary {
+
+    /**
+     * Returns index of the given tag. Adds the tag to the dictionary if it is
+     * not there.
+     */
+    static int intern(String tag) {
+        final Integer idx = INDICES.get(tag);
+        if (idx != null) {
+            return idx;
+        }
+
+        synchronized (INDICES) {
+            return INDICES.computeIfAbsent(tag, x -> {
+                final int newIdx = size;
+                if (newIdx == names.length) {
+                    names = Arrays.copyOf(names, newIdx * 2);
+                }
+                names[newIdx] = x;
+                size++;
+                return newIdx;
+            });
+        }
+    }
+
+    /**
+     * Returns index of the given tag or -1 if the tag is not in the
+     * dictionary. Doesn't allocate.
+     */
+    static int indexOf(String tag) {
+        final Integer idx = INDICES.get(tag);
+        return idx == null ? -1 : idx;
+    }
+
+    static String name(int idx) {
+        return names[idx];
+    }
+
+    static String[] names(int[] indices) {
+        final String[] allNames = names;
+        final String[] result = new String[indices.length];
+        for (int i = 0; i != indices.length; ++i) {
+            result[i] = allNames[indices[i]];
+        }
+        return result;
+    }
+
+    static int[] intern(String[] tags) {
+        final int[] result = new int[tags.length];
+        for (int i = 0; i != tags.length; ++i) {
+            result[i] = intern(tags[i]);
+        }
+        return result;
+    }
+
+    // Names are written before their indices are published through INDICES,
+    // so a reader that got an index sees its name.
+    private static volatile String[] names = new String[64];
+    private static int size;
+
+    private final static Map<String, Integer> INDICES = new ConcurrentHashMap<>();
+}
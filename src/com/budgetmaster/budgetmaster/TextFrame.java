@@ -1,29 +1,54 @@
 package com.budgetmaster.budgetmaster;
 
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
+/**
+ * Frame moving forward over text.
+ *
+ * Occurrences of every string the frame is set with are found in one scan of
+ * the whole text on the first use and are looked up with binary search
+ * afterwards. Strings passed to the constructor as anchors are indexed
+ * upfront in a single pass over the text.
+ */
 public final class TextFrame {
     public TextFrame(String v) {
+        this(v, List.of());
+    }
+
+    public TextFrame(String v, Collection<String> anchors) {
         Objects.requireNonNull(v);
+        Objects.requireNonNull(anchors);
         this.data = v;
+        this.occurrences = new HashMap<>();
+        indexAnchors(anchors);
     }
 
     public TextFrame set(String from, String to) {
         Objects.requireNonNull(from);
         Objects.requireNonNull(to);
 
-        int newBegin = data.indexOf(from, begin);
+        int newBegin = indexOf(from, begin);
         if (newBegin < 0) {
             throw new TextFrameException(String.format(
-                    "Can't find [%s] substring in [%s] after %d code unit", from, data,
-                    begin));
+                    "Can't find [%s] substring after %d code unit in [%s]",
+                    from, begin, excerpt(begin)));
         }
-        int newEnd = data.indexOf(to, newBegin + from.length());
+        int newEnd = indexOf(to, newBegin + from.length());
         if (newEnd < 0) {
             throw new TextFrameException(String.format(
-                    "Can't find [%s] substring following [%s] substring in [%s] after %d code unit",
-                    to, from, data, newBegin));
+                    "Can't find [%s] substring following [%s] substring after %d code unit in [%s]",
+                    to, from, newBegin, excerpt(newBegin)));
         }
 
         begin = newBegin + from.length();
@@ -40,7 +65,177 @@ public final class TextFrame {
         return getValue().strip();
     }
 
+    /**
+     * Returns view of the text in the frame. Doesn't copy the text.
+     */
+    public CharSequence getView() {
+        return CharBuffer.wrap(data, begin, end);
+    }
+
+    /**
+     * Returns view of the text in the frame without leading and trailing
+     * white space. Doesn't copy the text.
+     */
+    public CharSequence getStrippedView() {
+        final int from = strippedBegin();
+        return CharBuffer.wrap(data, from, strippedEnd(from));
+    }
+
+    /**
+     * Returns views of lines of the text in the frame without leading and
+     * trailing white space. Yields the same strings as splitting
+     * getStrippedValue() with "\\R" regular expression. Line terminators of
+     * the whole text are indexed on the first call.
+     */
+    public Stream<CharSequence> lines() {
+        final int from = strippedBegin();
+        final int to = strippedEnd(from);
+
+        if (lineTerminators == null) {
+            lineTerminators = findLineTerminators();
+        }
+
+        final List<CharSequence> result = new ArrayList<>();
+        int lineStart = from;
+        int idx = Arrays.binarySearch(lineTerminators, from);
+        if (idx < 0) {
+            idx = -idx - 1;
+        }
+        for (; idx < lineTerminators.length && lineTerminators[idx] < to; ++idx) {
+            final int terminator = lineTerminators[idx];
+            result.add(CharBuffer.wrap(data, lineStart, terminator));
+            lineStart = terminator + 1;
+            if (data.charAt(terminator) == '\r' && lineStart < to
+                    && data.charAt(lineStart) == '\n') {
+                lineStart++;
+                idx++;
+            }
+        }
+
+        if (result.isEmpty()) {
+            return Stream.of(CharBuffer.wrap(data, from, to));
+        }
+
+        result.add(CharBuffer.wrap(data, lineStart, to));
+        // Drop trailing empty lines like String.split() does.
+        int count = result.size();
+        while (count != 0 && result.get(count - 1).length() == 0) {
+            count--;
+        }
+        return result.subList(0, count).stream();
+    }
+
+    private int strippedBegin() {
+        int idx = begin;
+        while (idx != end && Character.isWhitespace(data.charAt(idx))) {
+            idx++;
+        }
+        return idx;
+    }
+
+    private int strippedEnd(int strippedBegin) {
+        int idx = end;
+        while (idx != strippedBegin && Character.isWhitespace(data.charAt(
+                idx - 1))) {
+            idx--;
+        }
+        return idx;
+    }
+
+    private void indexAnchors(Collection<String> anchors) {
+        final List<String> patterns = anchors.stream()
+                .filter(Objects::nonNull)
+                .filter(Predicate.not(String::isEmpty))
+                .distinct()
+                .collect(Collectors.toList());
+        if (patterns.isEmpty()) {
+            return;
+        }
+
+        final int[][] positions = new int[patterns.size()][];
+        final int[] counts = new int[patterns.size()];
+        new MultiStringMatcher(patterns).forEachOccurrence(data,
+                (patternIdx, matchEnd) -> {
+                    int[] v = positions[patternIdx];
+                    if (v == null) {
+                        v = positions[patternIdx] = new int[8];
+                    } else if (counts[patternIdx] == v.length) {
+                        v = positions[patternIdx] = Arrays.copyOf(v, v.length * 2);
+                    }
+                    v[counts[patternIdx]++] = matchEnd - patterns.get(
+                            patternIdx).length();
+                });
+
+        for (int i = 0; i != patterns.size(); ++i) {
+            occurrences.put(patterns.get(i), positions[i] == null ? NO_POSITIONS
+                    : Arrays.copyOf(positions[i], counts[i]));
+        }
+    }
+
+    private int indexOf(String str, int fromIdx) {
+        if (str.isEmpty()) {
+            return data.indexOf(str, fromIdx);
+        }
+
+        final int[] positions = occurrences.computeIfAbsent(str,
+                this::findOccurrences);
+        int idx = Arrays.binarySearch(positions, fromIdx);
+        if (idx < 0) {
+            idx = -idx - 1;
+        }
+        return idx < positions.length ? positions[idx] : -1;
+    }
+
+    private int[] findOccurrences(String str) {
+        int[] result = NO_POSITIONS;
+        int count = 0;
+        for (int idx = data.indexOf(str); idx >= 0; idx = data.indexOf(str,
+                idx + 1)) {
+            if (count == result.length) {
+                result = Arrays.copyOf(result, Math.max(8, count * 2));
+            }
+            result[count++] = idx;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private int[] findLineTerminators() {
+        int[] result = NO_POSITIONS;
+        int count = 0;
+        for (int idx = 0, n = data.length(); idx != n; ++idx) {
+            switch (data.charAt(idx)) {
+                case '\n':
+                case '\u000B':
+                case '\u000C':
+                case '\r':
+                case '\u0085':
+                case '\u2028':
+                case '\u2029':
+                    if (count == result.length) {
+                        result = Arrays.copyOf(result, Math.max(64, count * 2));
+                    }
+                    result[count++] = idx;
+                    break;
+
+                default:
+                    break;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private String excerpt(int from) {
+        return Util.appendEllipsis(data.substring(from, Math.min(data.length(),
+                from + MAX_EXCERPT_LENGTH + 1)), MAX_EXCERPT_LENGTH);
+    }
+
     private final String data;
+    private final Map<String, int[]> occurrences;
+    private int[] lineTerminators;
     private int begin;
     private int end;
+
+    private final static int[] NO_POSITIONS = new int[0];
+
+    private final static int MAX_EXCERPT_LENGTH = 200;
 }
@@ -92,6 +92,16 @@ public final class Util {
         }
     }
 
+    public static void saveToBinaryFile(Path path, Stream<Record> records)
+            throws IOException {
+        BinaryRecordsSerializer serializer = new BinaryRecordsSerializer();
+        if ("--".equals(path.toString())) {
+            serializer.saveToStream(records, System.out);
+        } else {
+            serializer.saveToFile(records, path);
+        }
+    }
+
     public static NodeList queryNodes(String xpathExpr, Element el) {
         XPathFactory xpathfactory = XPathFactory.newInstance();
         XPath xpath = xpathfactory.newXPath();
@@ -120,6 +130,42 @@ public final class Util {
         return null;
     }
     
+    /**
+     * Parses number of bytes with optional case-insensitive K, M or G suffix
+     * denoting KiB, MiB or GiB respectively, e.g. "512", "64M", "2g".
+     */
+    public static long parseByteCount(String str) {
+        final String v = str.strip();
+        long multiplier = 1;
+        int end = v.length();
+        if (end != 0) {
+            switch (Character.toUpperCase(v.charAt(end - 1))) {
+                case 'K':
+                    multiplier = 1024L;
+                    end--;
+                    break;
+
+                case 'M':
+                    multiplier = 1024L * 1024;
+                    end--;
+                    break;
+
+                case 'G':
+                    multiplier = 1024L * 1024 * 1024;
+                    end--;
+                    break;
+            }
+        }
+
+        try {
+            return Math.multiplyExact(Long.parseLong(v.substring(0, end)),
+                    multiplier);
+        } catch (NumberFormatException | ArithmeticException ex) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid number of bytes: [%s]", str), ex);
+        }
+    }
+
     private static void validateEllipsisStringMaxLength(int v) {
         if (v < ELLIPSES.length()) {
             throw new IllegalArgumentException(String.format(
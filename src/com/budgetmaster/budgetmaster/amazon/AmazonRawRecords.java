@@ -20,16 +20,17 @@ import org.apache.commons.csv.CSVRecord;
 
 final class AmazonRawRecords {
     static AmazonRawRecords load(Path csvFile,
-            Class<? extends Enum<?>> headerEnum) throws IOException {
+            Class<? extends Enum<?>> headerEnum, int csvJobs) throws IOException {
         List<String> headers = new ArrayList<>();
         var reader = new CsvReader<AmazonRawRecord>()
         .setFormat(CSVFormat.RFC4180
                 .withFirstRecordAsHeader()
                 .withHeader(headerEnum))
         .setHeaderNamesConsumer(headers::addAll)
+        .setParallelism(csvJobs)
         .setConv((CSVRecord csvRecord, BiConsumer<String, Exception> reportError) -> {
             final String[] data = CsvReader.read(csvRecord);
-            final long lineNumber = csvRecord.getParser().getCurrentLineNumber();
+            final long lineNumber = CsvReader.getLineNumber(csvRecord);
             return new AmazonRawRecord() {
                 @Override
                 public String[] getData() {
@@ -47,8 +48,10 @@ final class AmazonRawRecords {
             };
         });
 
-        List<AmazonRawRecord> data = reader.readCsv(csvFile).collect(
-                Collectors.toList());
+        final List<AmazonRawRecord> data;
+        try (Stream<AmazonRawRecord> records = reader.readCsv(csvFile)) {
+            data = records.collect(Collectors.toList());
+        }
 
         return new AmazonRawRecords(headers, data);
     }
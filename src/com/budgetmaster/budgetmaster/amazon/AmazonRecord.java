@@ -1,11 +1,11 @@
 package com.budgetmaster.budgetmaster.amazon;
 
+import com.budgetmaster.budgetmaster.DateDecoder;
 import com.budgetmaster.budgetmaster.MonetaryAmount;
 import com.budgetmaster.budgetmaster.Util;
 import java.math.BigDecimal;
 import java.nio.file.Path;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -73,8 +73,8 @@ interface AmazonRecord {
 
         String orderId = data[CsvOrderHeaders.OrderID.ordinal()];
 
-        LocalDate date = LocalDate.parse(
-                data[CsvOrderHeaders.ShipmentDate.ordinal()], DATE_FORMATTER);
+        LocalDate date = DATE_DECODER.decode(
+                data[CsvOrderHeaders.ShipmentDate.ordinal()]);
 
         String title = data[CsvOrderHeaders.Title.ordinal()];
 
@@ -109,8 +109,8 @@ interface AmazonRecord {
 
         String orderId = data[CsvRefundHeaders.OrderID.ordinal()];
 
-        LocalDate date = LocalDate.parse(
-                data[CsvRefundHeaders.RefundDate.ordinal()], DATE_FORMATTER);
+        LocalDate date = DATE_DECODER.decode(
+                data[CsvRefundHeaders.RefundDate.ordinal()]);
 
         String title = data[CsvRefundHeaders.Title.ordinal()];
 
@@ -124,7 +124,7 @@ interface AmazonRecord {
         return new Impl(orderId, date, title, amount, value.toString());
     }
 
-    final static DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(
+    final static DateDecoder DATE_DECODER = DateDecoder.ofPattern(
             "MM/dd/yy");
 
     enum CsvOrderHeaders {
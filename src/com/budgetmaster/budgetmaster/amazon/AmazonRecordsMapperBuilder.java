@@ -18,8 +18,10 @@ public class AmazonRecordsMapperBuilder implements PluggableSupplier<RecordsMapp
 
     @Override
     public RecordsMapper get() {
-        var rawOrders = readCsv(inputOrdersCsvFile, CsvOrderHeaders.class);
-        var rawRefunds = readCsv(inputRefundsCsvFile, CsvRefundHeaders.class);
+        var rawOrders = readCsv(inputOrdersCsvFile, CsvOrderHeaders.class,
+                csvJobs);
+        var rawRefunds = readCsv(inputRefundsCsvFile, CsvRefundHeaders.class,
+                csvJobs);
 
         return new AmazonRecordsMapper(rawOrders, rawRefunds, tags,
                 addOrderIdTag, mti, unclaimedOrdersCsvFile,
@@ -51,12 +53,18 @@ public class AmazonRecordsMapperBuilder implements PluggableSupplier<RecordsMapp
 
         unclaimedRefundsCsvFile = Util.readLastElementAsPath(root,
                 "unclaimed-refunds-collector-csv");
+
+        String csvJobsText = Util.readLastElement(root, "csv-jobs");
+        if (csvJobsText != null) {
+            csvJobs = Integer.parseInt(csvJobsText);
+        }
     }
 
     private static AmazonRawRecords readCsv(Path file,
-            Class<? extends Enum<?>> headerEnum) {
-        return ThrowingBiFunction.toBiFunction(AmazonRawRecords::load).apply(
-                file, headerEnum);
+            Class<? extends Enum<?>> headerEnum, int csvJobs) {
+        return ThrowingBiFunction.toBiFunction(
+                (Path f, Class<? extends Enum<?>> h) -> AmazonRawRecords.load(
+                        f, h, csvJobs)).apply(file, headerEnum);
     }
 
     private Set<String> tags;
@@ -65,6 +73,7 @@ public class AmazonRecordsMapperBuilder implements PluggableSupplier<RecordsMapp
     private Path inputRefundsCsvFile;
     private Path unclaimedOrdersCsvFile;
     private Path unclaimedRefundsCsvFile;
+    private int csvJobs = 1;
 
     private final MarketplaceTransactionsInitializer mti = new MarketplaceTransactionsInitializer();
 }
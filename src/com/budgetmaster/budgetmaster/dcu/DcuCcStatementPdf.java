@@ -2,28 +2,29 @@ package com.budgetmaster.budgetmaster.dcu;
 
 import com.budgetmaster.budgetmaster.AccountStatementPdf;
 import com.budgetmaster.budgetmaster.BalanceChecksum;
+import com.budgetmaster.budgetmaster.DateDecoder;
+import com.budgetmaster.budgetmaster.LineTokenizer;
 import com.budgetmaster.budgetmaster.MonetaryAmount;
 import com.budgetmaster.budgetmaster.PdfTextExtractor;
 import com.budgetmaster.budgetmaster.Record;
 import com.budgetmaster.budgetmaster.RecordBuilder;
 import com.budgetmaster.budgetmaster.TextFrame;
 import com.budgetmaster.budgetmaster.TextFrameException;
-import com.budgetmaster.budgetmaster.Util;
 import static com.budgetmaster.budgetmaster.Util.EOL;
 import java.lang.invoke.MethodHandles;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.MonthDay;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public final class DcuCcStatementPdf extends AccountStatementPdf {
     @Override
@@ -31,6 +32,11 @@ public final class DcuCcStatementPdf extends AccountStatementPdf {
         extractor.setSortByPosition(false);
     }
 
+    @Override
+    protected Collection<String> textAnchors() {
+        return TEXT_ANCHORS;
+    }
+
     @Override
     protected List<Record> parsePdfText(TextFrame text) {
         List<Record> result = new ArrayList<>();
@@ -64,37 +70,38 @@ public final class DcuCcStatementPdf extends AccountStatementPdf {
     }
 
     private List<Record> parseTransactionTable(String text) {
-        String rawLines[] = RECORD_SPLITTER.split(text);
+        List<Record> result = new ArrayList<>();
 
-        List<String> lines = new ArrayList<>();
+        LineTokenizer tokens = new LineTokenizer();
 
-        for (String line: rawLines) {
+        for (String line: RECORD_SPLITTER.split(text)) {
             Matcher m = TRANSACTION_HEADER.matcher(line);
             if (m.matches()) {
-                lines.add(line);
-            } else if (!lines.isEmpty()) {
-                String prevLine = lines.get(lines.size() - 1);
-                int idx = prevLine.lastIndexOf(' ');
-                line = prevLine.substring(0, idx) + " " + line + prevLine.substring(idx);
-                lines.set(lines.size() - 1, line);
+                if (!tokens.isEmpty()) {
+                    result.add(parseRecord(tokens));
+                }
+                tokens.reset(line);
+            } else if (!tokens.isEmpty()) {
+                // Continuation of the description goes before the amount.
+                tokens.insert(tokens.size() - 1, line);
             }
         }
 
-        return parseRecords(lines.stream());
+        if (!tokens.isEmpty()) {
+            result.add(parseRecord(tokens));
+        }
+
+        return result;
     }
 
     @Override
-    protected void parseRecord(String str, RecordBuilder rb) {
-        // 12/12 GULF OIL 91186030 SOMERVILLE MA 20.79
-        String[] components = Util.splitAtWhitespace(str);
-
-        rb.setPostingDate(getRecordDate(components[0]));
+    protected void parseRecord(LineTokenizer tokens, RecordBuilder rb) {
+        // 12/10 12/12 GULF OIL 91186030 SOMERVILLE MA 20.79
+        rb.setPostingDate(getRecordDate(tokens.token(1)));
 
-        rb.setAmount(components[components.length - 1]);
-        String desc = Stream.of(components)
-                .skip(1)
-                .limit(components.length - 2)
-                .collect(Collectors.joining(" "));
+        final int amountIdx = tokens.size() - 1;
+        rb.setAmount(tokens.parseAmount(amountIdx));
+        String desc = tokens.join(2, amountIdx);
         rb.setDescription(desc);
 
         if (PAYMENT_TRANSACTION.matcher(desc).matches()) {
@@ -102,6 +109,11 @@ public final class DcuCcStatementPdf extends AccountStatementPdf {
         }
     }
 
+    @Override
+    protected MonthDay parseRecordMonthDay(CharSequence str) {
+        return TRANSACTION_DATE_DECODER.decodeMonthDay(str);
+    }
+
     @Override
     protected String periodString(TextFrame text) {
         text.set(EOL + "Starting Balance", EOL);
@@ -176,7 +188,7 @@ public final class DcuCcStatementPdf extends AccountStatementPdf {
 
     @Override
     protected DateTimeFormatter recordDateTimeFormatter() {
-        return TRANSACTION_DATE_FORMAT;
+        return TRANSACTION_DATE_DECODER.getFormatter();
     }
 
     private BalanceChecksum paymentsChecksum;
@@ -185,8 +197,8 @@ public final class DcuCcStatementPdf extends AccountStatementPdf {
     private static final Logger LOGGER = Logger.getLogger(
             MethodHandles.lookup().lookupClass().getName());
 
-    private final static DateTimeFormatter TRANSACTION_DATE_FORMAT = DateTimeFormatter.ofPattern(
-            "MM/dd", Locale.US);
+    private final static DateDecoder TRANSACTION_DATE_DECODER = DateDecoder.ofPattern(
+            "MM/dd");
 
     private final static DateTimeFormatter STATEMENT_PERIOD_DATE_FORMAT = DateTimeFormatter.ofPattern(
             "MM/dd/yy", Locale.US);
@@ -196,6 +208,17 @@ public final class DcuCcStatementPdf extends AccountStatementPdf {
     private final static Pattern TRANSACTION_HEADER = Pattern.compile(
             "^\\d{2}/\\d{2}\\s+\\d{2}/\\d{2}.+$");
 
+    private final static List<String> TEXT_ANCHORS = List.of(EOL,
+            EOL + "Date Date Advances Credits" + EOL,
+            EOL + "*PERIODIC FINANCE CHARGE (*)" + EOL,
+            EOL + "Fees" + EOL,
+            EOL + "Starting Balance",
+            EOL + "Statement Closing Date",
+            EOL + "Days in Period",
+            EOL + "Payments",
+            EOL + "Other Credits",
+            EOL + "Purchases");
+
     private final static Pattern PAYMENT_TRANSACTION = Pattern.compile(
             "^.*\\b(PAYMENT-TRANSFER|PAYMENT-PAYOFF|CREDIT\\s+CARD\\s+CREDIT)\\b.*$");
 }
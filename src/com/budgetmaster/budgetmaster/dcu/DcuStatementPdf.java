@@ -2,6 +2,7 @@ package com.budgetmaster.budgetmaster.dcu;
 
 import com.budgetmaster.budgetmaster.AccountStatementPdf;
 import com.budgetmaster.budgetmaster.BalanceChecksum;
+import com.budgetmaster.budgetmaster.LineTokenizer;
 import com.budgetmaster.budgetmaster.MonetaryAmount;
 import com.budgetmaster.budgetmaster.PdfTextExtractor;
 import com.budgetmaster.budgetmaster.Record;
@@ -11,9 +12,11 @@ import com.budgetmaster.budgetmaster.TextFrameException;
 import com.budgetmaster.budgetmaster.Util;
 import static com.budgetmaster.budgetmaster.Util.EOL;
 import java.math.BigDecimal;
+import java.time.MonthDay;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.regex.Matcher;
@@ -27,13 +30,18 @@ public final class DcuStatementPdf extends AccountStatementPdf {
         extractor.setSortByPosition(true);
     }
 
+    @Override
+    protected Collection<String> textAnchors() {
+        return TEXT_ANCHORS;
+    }
+
     @Override
     protected List<Record> parsePdfText(TextFrame text) {
         List<Record> result = new ArrayList<>();
 
         while (true) {
             BalanceChecksum accountChecksum;
-            String accountText;
+            List<CharSequence> accountLines;
             try {
                 text.set("ACCT#", "BALANCE");
 
@@ -46,7 +54,8 @@ public final class DcuStatementPdf extends AccountStatementPdf {
                     beginBalance = MonetaryAmount.of(beginBalanceStr).getAmount().negate();
                 }
 
-                accountText = text.set(EOL, "NEW BALANCE").getStrippedValue();
+                accountLines = text.set(EOL, "NEW BALANCE").lines().collect(
+                        Collectors.toList());
 
                 final BigDecimal endBalance = MonetaryAmount.of(text.set(
                         "NEW BALANCE", EOL).getStrippedValue()).getAmount().negate();
@@ -58,9 +67,7 @@ public final class DcuStatementPdf extends AccountStatementPdf {
                 break;
             }
 
-            String lines[] = RECORD_SPLITTER.split(accountText);
-
-            Stream recordStream = Stream.of(lines)
+            Stream<CharSequence> recordStream = accountLines.stream()
                     .filter((str) -> {
                         Matcher m = TRANSACTION_PATTERN.matcher(str);
                         return m.matches();
@@ -77,15 +84,20 @@ public final class DcuStatementPdf extends AccountStatementPdf {
     }
 
     @Override
-    protected void parseRecord(String str, RecordBuilder rb) {
-        // HR batch credits   VisaCashBack              180110 9.06 7,243.79
-        String[] components = Util.splitAtWhitespace(str);
-
-        rb.negateAmount().setAmount(components[components.length - 2]);
-        String desc = Stream.of(components)
-                .limit(components.length - 2)
-                .collect(Collectors.joining(" "));
-        rb.setDescription(desc);
+    protected void parseRecord(LineTokenizer tokens, RecordBuilder rb) {
+        // JAN10 HR batch credits   VisaCashBack              180110 9.06 7,243.79
+        final int amountIdx = tokens.size() - 2;
+        rb.negateAmount().setAmount(tokens.parseAmount(amountIdx));
+        rb.setDescription(tokens.join(1, amountIdx));
+    }
+
+    @Override
+    protected MonthDay parseRecordMonthDay(CharSequence str) {
+        MonthDay result = LineTokenizer.parseAbbreviatedMonthDay(str);
+        if (result == null) {
+            result = super.parseRecordMonthDay(str);
+        }
+        return result;
     }
 
     @Override
@@ -121,8 +133,10 @@ public final class DcuStatementPdf extends AccountStatementPdf {
     private final static DateTimeFormatter STATEMENT_PERIOD_DATE_FORMAT = DateTimeFormatter.ofPattern(
             "MM-dd-yy", Locale.US);
 
-    private final static Pattern RECORD_SPLITTER = Pattern.compile("\\R");
-
     private final static Pattern TRANSACTION_PATTERN = Pattern.compile(
             "^[A-Z]{3}\\d{2}.+\\s+[\\d-.,]+\\s+[\\d-.,]+$");
+
+    private final static List<String> TEXT_ANCHORS = List.of("ACCT#",
+            "BALANCE", EOL + "PREVIOUS BALANCE", EOL, "NEW BALANCE",
+            "BANKING – THE DCU WAY");
 }
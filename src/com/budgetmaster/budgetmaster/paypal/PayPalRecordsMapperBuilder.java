@@ -17,11 +17,12 @@ public class PayPalRecordsMapperBuilder implements PluggableSupplier<RecordsMapp
 
     @Override
     public RecordsMapper get() {
-        Stream<Record> payPalRecords = ThrowingSupplier.toSupplier(
-                () -> new RecordsReaderCsv().read(inputPayPalCsvFile)).get();
-
-        var mt = new MarketplaceTransactions<>(payPalRecords, Record::getAmount,
-                Record::getCurrency, Record::getTransactionDate);
+        final MarketplaceTransactions<Record> mt;
+        try (Stream<Record> payPalRecords = ThrowingSupplier.toSupplier(
+                () -> new RecordsReaderCsv().read(inputPayPalCsvFile)).get()) {
+            mt = new MarketplaceTransactions<>(payPalRecords, Record::getAmount,
+                    Record::getCurrency, Record::getTransactionDate);
+        }
 
         mti.accept(mt);
 
@@ -1,6 +1,7 @@
 package com.budgetmaster.budgetmaster.paypal;
 
 import com.budgetmaster.budgetmaster.AccountStatementCsv;
+import com.budgetmaster.budgetmaster.DateDecoder;
 import com.budgetmaster.budgetmaster.MonetaryAmount;
 import com.budgetmaster.budgetmaster.Record;
 import com.budgetmaster.budgetmaster.RecordBuilder;
@@ -9,12 +10,13 @@ import java.lang.invoke.MethodHandles;
 import java.math.BigDecimal;
 import java.nio.file.Path;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.Currency;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVRecord;
@@ -23,8 +25,15 @@ import org.apache.commons.csv.CSVRecord;
 public final class PayPalStatementCsv extends AccountStatementCsv {
     @Override
     public Stream<Record> read(Path csvFilePath) throws IOException {
-        Stream<Record> result = super.read(csvFilePath);
-        if (redemptions != null) {
+        // Redemption records may follow records they apply to, so read all
+        // records before applying redemptions.
+        final List<Record> records;
+        try (Stream<Record> stream = super.read(csvFilePath)) {
+            records = stream.collect(Collectors.toList());
+        }
+
+        Stream<Record> result = records.stream();
+        if (!redemptions.isEmpty()) {
             result = result.filter(Objects::nonNull).map(record -> {
                 BigDecimal amount = redemptions.get(new RedemptionKey(record));
                 if (amount != null) {
@@ -56,10 +65,6 @@ public final class PayPalStatementCsv extends AccountStatementCsv {
                 Headers.Type)) && "eBay Inc.".equals(record.get(Headers.Name))) {
             // This is redemption record.
             
-            if (redemptions == null) {
-                redemptions = new HashMap<>();
-            }
-            
             LOGGER.finer(String.format("Redemption record: %s", record));
 
             BigDecimal redemption = MonetaryAmount.of(record.get(Headers.Amount)).getAmount();
@@ -75,8 +80,8 @@ public final class PayPalStatementCsv extends AccountStatementCsv {
     }
 
     @Override
-    protected DateTimeFormatter recordDateTimeFormatter() {
-        return DATE_FORMATTER;
+    protected DateDecoder recordDateDecoder() {
+        return DATE_DECODER;
     }
 
     @Override
@@ -141,9 +146,10 @@ public final class PayPalStatementCsv extends AccountStatementCsv {
         private final LocalDate date;
     }
     
-    private Map<RedemptionKey, BigDecimal> redemptions;
+    // Filled from multiple threads if the file is read with multiple CSV jobs.
+    private final Map<RedemptionKey, BigDecimal> redemptions = new ConcurrentHashMap<>();
 
-    private final static DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(
+    private final static DateDecoder DATE_DECODER = DateDecoder.ofPattern(
             "MM/dd/yyyy");
     
     private static final Logger LOGGER = Logger.getLogger(
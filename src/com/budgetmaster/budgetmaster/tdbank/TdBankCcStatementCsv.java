@@ -1,8 +1,8 @@
 package com.budgetmaster.budgetmaster.tdbank;
 
 import com.budgetmaster.budgetmaster.AccountStatementCsv;
+import com.budgetmaster.budgetmaster.DateDecoder;
 import com.budgetmaster.budgetmaster.RecordBuilder;
-import java.time.format.DateTimeFormatter;
 import java.util.Map;
 import org.apache.commons.csv.CSVFormat;
 
@@ -19,8 +19,8 @@ public final class TdBankCcStatementCsv extends AccountStatementCsv {
     }
 
     @Override
-    protected DateTimeFormatter recordDateTimeFormatter() {
-        return DATE_FORMATTER;
+    protected DateDecoder recordDateDecoder() {
+        return DATE_DECODER;
     }
 
     @Override
@@ -37,6 +37,6 @@ public final class TdBankCcStatementCsv extends AccountStatementCsv {
         Rewards
     };
 
-    private final static DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(
+    private final static DateDecoder DATE_DECODER = DateDecoder.ofPattern(
             "yyyy-MM-dd");
 }
@@ -2,6 +2,8 @@ package com.budgetmaster.budgetmaster.tdbank;
 
 import com.budgetmaster.budgetmaster.AccountStatementPdf;
 import com.budgetmaster.budgetmaster.BalanceChecksum;
+import com.budgetmaster.budgetmaster.DateDecoder;
+import com.budgetmaster.budgetmaster.LineTokenizer;
 import com.budgetmaster.budgetmaster.MonetaryAmount;
 import com.budgetmaster.budgetmaster.Record;
 import com.budgetmaster.budgetmaster.RecordBuilder;
@@ -9,6 +11,7 @@ import com.budgetmaster.budgetmaster.TextFrame;
 import com.budgetmaster.budgetmaster.TextFrameException;
 import static com.budgetmaster.budgetmaster.Util.EOL;
 import java.math.BigDecimal;
+import java.time.MonthDay;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -85,14 +88,32 @@ public final class TdBankStatementPdf extends AccountStatementPdf {
     }
 
     @Override
-    protected void parseRecord(String str, RecordBuilder rb) {
-        int amountIdx = str.lastIndexOf(' ');
-        String amountValue = str.substring(amountIdx).strip();
+    protected void parseRecord(LineTokenizer tokens, RecordBuilder rb) {
+        final int amountIdx = tokens.size() - 1;
+        if (amountIdx <= 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Missing description or amount in [%s] record line",
+                    tokens.join(0, tokens.size())));
+        }
+
+        BigDecimal amount = tokens.parseAmount(amountIdx);
         if (negateCurrentRecordAmount) {
-            amountValue = "-" + amountValue;
+            if (amount.signum() > 0) {
+                amount = amount.negate();
+            } else {
+                // Amounts of negated sections are parsed with "-" prepended
+                // to them, so negative amounts stay negative.
+                amount = MonetaryAmount.of("-" + tokens.token(amountIdx))
+                        .getAmount();
+            }
         }
-        rb.setAmount(amountValue);
-        rb.setDescription(str.substring(0, amountIdx).strip());
+        rb.setAmount(amount);
+        rb.setDescription(tokens.join(1, amountIdx));
+    }
+
+    @Override
+    protected MonthDay parseRecordMonthDay(CharSequence str) {
+        return TRANSACTION_DATE_DECODER.decodeMonthDay(str);
     }
 
     @Override
@@ -114,7 +135,7 @@ public final class TdBankStatementPdf extends AccountStatementPdf {
 
     @Override
     protected DateTimeFormatter recordDateTimeFormatter() {
-        return TRANSACTION_DATE_FORMAT;
+        return TRANSACTION_DATE_DECODER.getFormatter();
     }
 
     private List<Record> parseDailyAccountActivity(TextFrame text, String header) {
@@ -141,7 +162,7 @@ public final class TdBankStatementPdf extends AccountStatementPdf {
     private boolean negateCurrentRecordAmount;
     private boolean continuedOnTheNextPage;
 
-    private final static DateTimeFormatter TRANSACTION_DATE_FORMAT = DateTimeFormatter.ofPattern(
+    private final static DateDecoder TRANSACTION_DATE_DECODER = DateDecoder.ofPattern(
             "MM/dd");
 
     private final static DateTimeFormatter STATEMENT_PERIOD_DATE_FORMAT = DateTimeFormatter.ofPattern(
@@ -0,0 +1,170 @@
+package com.budgetmaster.budgetmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.csv.CSVFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+/**
+ * Checks that CsvReader reading a file in chunks returns the same records,
+ * line numbers and errors as reading it sequentially.
+ */
+public class CsvReaderTest {
+
+    @Test
+    public void quotedNewlinesAcrossChunks() throws IOException {
+        final Path file = write("a,b\r\n1,\"x\r\ny\"\r\n2,\"\n\n\"\n3,z\r\n"
+                + "4,\"q\"\"\r\n\"\r\n5,w\n");
+        for (int chunkSize = 1; chunkSize != 32; ++chunkSize) {
+            assertSameResult(file, CSVFormat.DEFAULT.withFirstRecordAsHeader(),
+                    chunkSize, true);
+        }
+    }
+
+    @Test
+    public void conversionErrors() throws IOException {
+        final Path file = write("1,ok\n2,bad\n3,\"bad\r\n\"\n4,ok\r\n5,bad\n");
+        for (boolean failFast : new boolean[] {true, false}) {
+            for (int chunkSize = 1; chunkSize != 16; ++chunkSize) {
+                assertSameResult(file, CSVFormat.DEFAULT, chunkSize,
+                        failFast);
+            }
+        }
+    }
+
+    @Test
+    public void unterminatedQuote() throws IOException {
+        final Path file = write("1,ok\n2,ok\n3,\"ok\n4,ok\n");
+        for (int chunkSize = 1; chunkSize != 8; ++chunkSize) {
+            assertSameResult(file, CSVFormat.DEFAULT, chunkSize, true);
+        }
+    }
+
+    @Test
+    public void randomFiles() throws IOException {
+        final Random random = new Random(SEED);
+        for (int i = 0; i != FILE_COUNT; ++i) {
+            final Path file = write(randomCsv(random));
+            final CSVFormat format = random.nextBoolean()
+                    ? CSVFormat.DEFAULT.withFirstRecordAsHeader()
+                    : CSVFormat.DEFAULT;
+            assertSameResult(file, format, 1 + random.nextInt(40),
+                    random.nextBoolean());
+        }
+    }
+
+    private void assertSameResult(Path file, CSVFormat format, int chunkSize,
+            boolean failFast) throws IOException {
+        final String message = String.format("%s chunk size %d fail fast %s",
+                Files.readString(file).replace("\r", "\\r").replace("\n",
+                "\\n"), chunkSize, failFast);
+        assertEquals(read(file, format, failFast, 1, chunkSize), read(file,
+                format, failFast, 4, chunkSize), message);
+    }
+
+    /**
+     * Returns records with their line numbers, header names and errors,
+     * including errors printed to stderr.
+     */
+    private static List<String> read(Path file, CSVFormat format,
+            boolean failFast, int parallelism, int chunkSize) throws
+            IOException {
+        final List<String> result = new ArrayList<>();
+        final CsvReader<String> reader = new CsvReader<String>()
+                .setFormat(format)
+                .setFailFast(failFast)
+                .setParallelism(parallelism)
+                .setMinChunkSize(chunkSize)
+                .setHeaderNamesConsumer(names -> result.add("header: "
+                        + names))
+                .setConv((record, reportError) -> {
+                    final String[] values = CsvReader.read(record);
+                    if (List.of(values).contains("bad")) {
+                        throw new IllegalArgumentException(String.format(
+                                "Bad record at line %d", CsvReader
+                                .getLineNumber(record)));
+                    }
+                    return String.format("%d: %s", CsvReader.getLineNumber(
+                            record), List.of(values));
+                });
+
+        final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        final PrintStream stderr = System.err;
+        System.setErr(new PrintStream(errors, true, StandardCharsets.UTF_8));
+        try (Stream<String> records = reader.readCsv(file)) {
+            result.addAll(records.collect(Collectors.toList()));
+        } catch (RuntimeException ex) {
+            result.add(describe(ex));
+        } finally {
+            System.setErr(stderr);
+        }
+
+        // Stack frames differ between the sequential and the chunked read.
+        errors.toString(StandardCharsets.UTF_8).lines().filter(
+                line -> !line.startsWith("\t")).forEachOrdered(result::add);
+        return result;
+    }
+
+    private static String describe(Throwable ex) {
+        final StringBuilder sb = new StringBuilder();
+        for (; ex != null; ex = ex.getCause()) {
+            sb.append(String.format("%s: %s; ", ex.getClass().getName(),
+                    ex.getMessage()));
+        }
+        return sb.toString();
+    }
+
+    private static String randomCsv(Random random) {
+        final StringBuilder sb = new StringBuilder();
+        final int recordCount = random.nextInt(12);
+        for (int i = 0; i != recordCount; ++i) {
+            if (random.nextInt(8) == 0) {
+                sb.append(EOLS[random.nextInt(EOLS.length)]);
+            }
+            final int fieldCount = 1 + random.nextInt(3);
+            for (int j = 0; j != fieldCount; ++j) {
+                if (j != 0) {
+                    sb.append(',');
+                }
+                sb.append(FIELDS[random.nextInt(FIELDS.length)]);
+            }
+            if (i + 1 != recordCount || random.nextBoolean()) {
+                sb.append(EOLS[random.nextInt(EOLS.length)]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private Path write(String text) throws IOException {
+        final Path file = tempDir.resolve(String.format("%d.csv",
+                fileCount++));
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private int fileCount;
+
+    private final static long SEED = 1;
+    private final static int FILE_COUNT = 3000;
+
+    private final static String[] EOLS = {"\n", "\r\n", "\r"};
+    private final static String[] FIELDS = {"", "a", "bad", "12.34",
+        "\"x,y\"", "\"\"", "\"line\nbreak\"", "\"crlf\r\nbreak\"",
+        "\"cr\rbreak\"", "\"q\"\"uote\"", "\"\"\"\r\n\"", "\u00e9t\u00e9"};
+}
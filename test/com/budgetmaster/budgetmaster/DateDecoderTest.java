@@ -0,0 +1,159 @@
+package com.budgetmaster.budgetmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Checks that DateDecoder decodes dates and month days as DateTimeFormatter
+ * of the same pattern parses them.
+ */
+public class DateDecoderTest {
+
+    @Test
+    public void smartDayOfMonth() {
+        final DateDecoder decoder = DateDecoder.ofPattern("MM/dd/yyyy");
+        assertEquals(LocalDate.of(2021, 2, 28), decoder.decode("02/31/2021"));
+        assertEquals(LocalDate.of(2020, 2, 29), decoder.decode("02/31/2020"));
+        assertEquals(LocalDate.of(2021, 4, 30), decoder.decode("04/31/2021"));
+        assertEquals(LocalDate.of(2021, 1, 31), decoder.decode("01/31/2021"));
+        assertThrows(DateTimeParseException.class,
+                () -> decoder.decode("02/32/2021"));
+        assertThrows(DateTimeParseException.class,
+                () -> decoder.decode("13/01/2021"));
+    }
+
+    @Test
+    public void reducedYear() {
+        final DateDecoder decoder = DateDecoder.ofPattern("MM/dd/yy");
+        assertEquals(LocalDate.of(2000, 1, 5), decoder.decode("01/05/00"));
+        assertEquals(LocalDate.of(2099, 12, 31), decoder.decode("12/31/99"));
+        assertEquals(LocalDate.of(2021, 2, 28), decoder.decode("02/31/21"));
+    }
+
+    @Test
+    public void monthDay() {
+        final DateDecoder decoder = DateDecoder.ofPattern("MM/dd");
+        assertEquals(MonthDay.of(2, 29), decoder.decodeMonthDay("02/29"));
+        assertEquals(MonthDay.of(12, 31), decoder.decodeMonthDay("12/31"));
+        assertThrows(DateTimeParseException.class,
+                () -> decoder.decodeMonthDay("02/30"));
+        assertThrows(DateTimeParseException.class,
+                () -> decoder.decodeMonthDay("04/31"));
+        // Rejected text must not be memoized as a valid month day.
+        assertThrows(DateTimeParseException.class,
+                () -> decoder.decodeMonthDay("02/30"));
+    }
+
+    @Test
+    public void randomDates() {
+        final Random random = new Random(SEED);
+        for (String pattern : DATE_PATTERNS) {
+            final DateDecoder decoder = DateDecoder.ofPattern(pattern);
+            final DateTimeFormatter formatter = DateTimeFormatter.ofPattern(
+                    pattern, Locale.US);
+            for (int i = 0; i != TEXT_COUNT; ++i) {
+                final String text = randomText(random, pattern);
+                assertSameResult(text, t -> LocalDate.parse(t, formatter),
+                        decoder::decode);
+            }
+        }
+    }
+
+    @Test
+    public void randomMonthDays() {
+        final Random random = new Random(SEED);
+        for (String pattern : MONTH_DAY_PATTERNS) {
+            final DateDecoder decoder = DateDecoder.ofPattern(pattern);
+            final DateTimeFormatter formatter = DateTimeFormatter.ofPattern(
+                    pattern, Locale.US);
+            for (int i = 0; i != TEXT_COUNT; ++i) {
+                final String text = randomText(random, pattern);
+                assertSameResult(text, t -> MonthDay.parse(t, formatter),
+                        decoder::decodeMonthDay);
+            }
+        }
+    }
+
+    private static <T> void assertSameResult(String text,
+            Function<String, T> expected, Function<String, T> actual) {
+        final T expectedValue;
+        try {
+            expectedValue = expected.apply(text);
+        } catch (DateTimeParseException ex) {
+            assertThrows(DateTimeParseException.class, () -> actual.apply(
+                    text), text);
+            return;
+        }
+        assertEquals(expectedValue, actual.apply(text), text);
+    }
+
+    /**
+     * Returns text of the pattern with random field values. Some of the texts
+     * are corrupted by replacing, dropping or inserting a character.
+     */
+    private static String randomText(Random random, String pattern) {
+        final StringBuilder sb = new StringBuilder();
+        int pos = 0;
+        while (pos != pattern.length()) {
+            final char c = pattern.charAt(pos);
+            int end = pos;
+            while (end != pattern.length() && pattern.charAt(end) == c) {
+                end++;
+            }
+            final int count = end - pos;
+            switch (c) {
+                case 'y':
+                    sb.append(String.format("%0" + count + "d", count == 2
+                            ? random.nextInt(100) : random.nextInt(3000)));
+                    break;
+                case 'M':
+                    sb.append(String.format("%02d", random.nextInt(14)));
+                    break;
+                case 'd':
+                    sb.append(String.format("%02d", random.nextInt(33)));
+                    break;
+                default:
+                    sb.append(pattern, pos, end);
+                    break;
+            }
+            pos = end;
+        }
+
+        if (random.nextInt(8) == 0) {
+            final int idx = random.nextInt(sb.length());
+            final char c = CORRUPT_CHARS.charAt(random.nextInt(
+                    CORRUPT_CHARS.length()));
+            switch (random.nextInt(3)) {
+                case 0:
+                    sb.setCharAt(idx, c);
+                    break;
+                case 1:
+                    sb.deleteCharAt(idx);
+                    break;
+                default:
+                    sb.insert(idx, c);
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private final static long SEED = 1;
+    private final static int TEXT_COUNT = 20000;
+
+    private final static String[] DATE_PATTERNS = {"yyyy/MM/dd",
+        "yyyy-MM-dd", "MM/dd/yyyy", "MM/dd/yy", "dd.MM.yyyy", "yyyyMMdd"};
+    private final static String[] MONTH_DAY_PATTERNS = {"MM/dd", "dd.MM"};
+
+    private final static String CORRUPT_CHARS = "0159/- x";
+}
@@ -0,0 +1,82 @@
+package com.budgetmaster.budgetmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Checks that DupRecordsFilter keeps the same records in the same order as
+ * collecting records into a map by global ID did.
+ */
+public class DupRecordsFilterTest {
+
+    @Test
+    public void randomRecords() {
+        final Random random = new Random(SEED);
+        for (int i = 0; i != SEQUENCE_COUNT; ++i) {
+            final List<Record> records = randomRecords(random);
+            assertEquals(indices(records, applyOld(records.stream())),
+                    indices(records, new DupRecordsFilter().apply(
+                            records.stream())));
+        }
+    }
+
+    /**
+     * DupRecordsFilter.apply() as it was before records were filtered in
+     * batches.
+     */
+    private static Stream<Record> applyOld(Stream<Record> records) {
+        return records.collect(Collectors.toMap(record -> String.format(
+                "%s-%s", record.getSource().getSystemId(), record.getId()),
+                Function.identity(), (existing, replacement) -> replacement))
+                .values().stream();
+    }
+
+    static List<Integer> indices(List<Record> records, Stream<Record> output) {
+        final Map<Record, Integer> indices = new IdentityHashMap<>();
+        for (int i = 0; i != records.size(); ++i) {
+            indices.put(records.get(i), i);
+        }
+        return output.map(indices::get).collect(Collectors.toList());
+    }
+
+    private static List<Record> randomRecords(Random random) {
+        final List<Record> result = new ArrayList<>();
+        final int count = random.nextInt(MAX_RECORD_COUNT + 1);
+        final int idCount = 1 + random.nextInt(MAX_RECORD_COUNT);
+        for (int i = 0; i != count; ++i) {
+            result.add(new RecordBuilder()
+                    .setId(ID_PREFIXES[random.nextInt(ID_PREFIXES.length)]
+                            + random.nextInt(idCount))
+                    .setTransactionDate(LocalDate.of(2019, 1, 11))
+                    .setAmount("1.23")
+                    .setDescription("PURCHASE")
+                    .setSource(STATEMENTS[random.nextInt(STATEMENTS.length)])
+                    .create());
+        }
+        return result;
+    }
+
+    private final static long SEED = 1;
+    private final static int SEQUENCE_COUNT = 5000;
+    private final static int MAX_RECORD_COUNT = 120;
+
+    private final static String[] ID_PREFIXES = {"", "c-", "b-c-"};
+
+    // Global IDs of records of statements with system IDs "/x/a" and
+    // "/x/a-b" may be equal.
+    private final static Statement[] STATEMENTS = {
+        Statement.of("Bank", "/x/a"), Statement.of("Bank", "/x/a-b"),
+        Statement.of("Card", "/x/a-b-c"), Statement.of("Card", null),
+        Statement.of(null, "/x/d")};
+}
@@ -0,0 +1,157 @@
+package com.budgetmaster.budgetmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.time.MonthDay;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Checks that LineTokenizer splits lines, joins tokens and parses amounts
+ * and month days as the regular expressions and formatters it replaced did.
+ */
+public class LineTokenizerTest {
+
+    @Test
+    public void randomLines() {
+        final Random random = new Random(SEED);
+        final LineTokenizer tokens = new LineTokenizer();
+        for (int i = 0; i != LINE_COUNT; ++i) {
+            final String line = randomLine(random);
+            final List<String> expected = split(line);
+
+            tokens.reset(line);
+            assertEquals(expected, tokens(tokens), line);
+            if (expected.isEmpty()) {
+                continue;
+            }
+
+            final int from = random.nextInt(expected.size());
+            final int to = from + random.nextInt(expected.size() - from + 1);
+            assertEquals(String.join(" ", expected.subList(from, to)),
+                    tokens.join(from, to), line);
+
+            final int amountIdx = random.nextInt(expected.size());
+            final BigDecimal expectedAmount;
+            try {
+                expectedAmount = MonetaryAmount.of(expected.get(amountIdx))
+                        .getAmount();
+            } catch (NumberFormatException ex) {
+                assertThrows(NumberFormatException.class, () -> tokens
+                        .parseAmount(amountIdx), line);
+                continue;
+            }
+            assertEquals(expectedAmount, tokens.parseAmount(amountIdx), line);
+        }
+    }
+
+    @Test
+    public void insert() {
+        final Random random = new Random(SEED);
+        final LineTokenizer tokens = new LineTokenizer();
+        for (int i = 0; i != LINE_COUNT; ++i) {
+            final String line = randomLine(random);
+            final String text = randomLine(random);
+            tokens.reset(line);
+            final int idx = random.nextInt(tokens.size() + 1);
+            tokens.insert(idx, text);
+
+            final List<String> expected = new ArrayList<>(split(line));
+            expected.addAll(idx, split(text));
+            assertEquals(expected, tokens(tokens), line + " + " + text);
+        }
+    }
+
+    @Test
+    public void abbreviatedMonthDay() {
+        final Random random = new Random(SEED);
+        for (int i = 0; i != LINE_COUNT; ++i) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(MONTHS[random.nextInt(MONTHS.length)]);
+            sb.append(String.format("%02d", random.nextInt(34)));
+            if (random.nextInt(8) == 0) {
+                sb.deleteCharAt(random.nextInt(sb.length()));
+            }
+            if (random.nextInt(8) == 0) {
+                sb.insert(random.nextInt(sb.length() + 1), random.nextInt(10));
+            }
+            final String str = sb.toString();
+
+            MonthDay expected;
+            try {
+                expected = MonthDay.parse(str, ABBREVIATED_MONTH_DAY_FORMAT);
+            } catch (DateTimeParseException ex) {
+                expected = null;
+            }
+            assertEquals(expected, LineTokenizer.parseAbbreviatedMonthDay(
+                    str), str);
+        }
+    }
+
+    /**
+     * Splits line as statement parsers did before LineTokenizer.
+     */
+    private static List<String> split(String line) {
+        final String str = line.replaceAll("[\\n\\r\\s]+", " ");
+        final List<String> result = new ArrayList<>();
+        for (String token : WHITESPACE.split(str)) {
+            if (!token.isEmpty()) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+    private static List<String> tokens(LineTokenizer tokens) {
+        final List<String> result = new ArrayList<>();
+        for (int i = 0; i != tokens.size(); ++i) {
+            result.add(tokens.token(i).toString());
+        }
+        return result;
+    }
+
+    private static String randomLine(Random random) {
+        final StringBuilder sb = new StringBuilder();
+        final int tokenCount = random.nextInt(8);
+        for (int i = 0; i != tokenCount; ++i) {
+            sb.append(SPACES[random.nextInt(SPACES.length)]);
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        if (random.nextBoolean()) {
+            sb.append(SPACES[random.nextInt(SPACES.length)]);
+        }
+        return sb.toString();
+    }
+
+    private final static long SEED = 1;
+    private final static int LINE_COUNT = 50000;
+
+    private final static String[] SPACES = {" ", "  ", "\t", "\r\n", "\n",
+        "\u000B", "\f", " \t\r "};
+    private final static String[] WORDS = {"JAN10", "HR", "batch",
+        "credits", "VisaCashBack", "180110", "9.06", "7,243.79", "-1,234.56",
+        "$5.00", "(7.10)", "7.10-", ".50", "--1", "12.3.4", "abc",
+        "a\u001Cb", "a b", " "};
+
+    private final static String[] MONTHS = {"JAN", "feb", "Mar", "APR",
+        "may", "JUN", "jul", "AUG", "Sep", "OCT", "nov", "DEC", "XYZ", "JA",
+        "01"};
+
+    private final static DateTimeFormatter ABBREVIATED_MONTH_DAY_FORMAT
+            = new DateTimeFormatterBuilder()
+                    .parseCaseInsensitive()
+                    .append(DateTimeFormatter.ofPattern("MMMdd", Locale.US))
+                    .toFormatter();
+
+    private final static Pattern WHITESPACE = Pattern.compile("\\s+");
+}
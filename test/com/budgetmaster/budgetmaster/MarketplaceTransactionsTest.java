@@ -0,0 +1,154 @@
+package com.budgetmaster.budgetmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Checks that fixed-point match scores of MarketplaceTransactions are the
+ * same as scores calculated with BigDecimal math.
+ */
+public class MarketplaceTransactionsTest {
+
+    @Test
+    public void randomPairs() {
+        final Random random = new Random(SEED);
+        long exactCount = 0;
+        for (int i = 0; i != RANDOM_PAIR_COUNT; ++i) {
+            final var scorer = new MarketplaceTransactions.MatchScorer(
+                    random.nextInt(11), random.nextInt(
+                            MarketplaceTransactions.MAX_AMOUNT_DIFF + 1),
+                    random.nextInt(MarketplaceTransactions.MAX_BALANCE + 1));
+            final long a = randomAmount(random);
+            final long b;
+            if (random.nextBoolean()) {
+                b = randomAmount(random);
+            } else {
+                // Close amounts make most of the matches.
+                b = a + random.nextInt(201) - 100;
+            }
+            final long daysDiff = random.nextInt((int) scorer.maxDaysDiff + 3);
+
+            if (assertSameScore(scorer, a, b, daysDiff, random.nextInt(4))) {
+                exactCount++;
+            }
+        }
+
+        // Most pairs must be scored with fixed-point math, otherwise the
+        // test checks nothing. Large and negative amounts may fall back to
+        // BigDecimal math.
+        assertTrue(exactCount > RANDOM_PAIR_COUNT * 8 / 10, String.format(
+                "Only %d of %d pairs scored with fixed-point math", exactCount,
+                RANDOM_PAIR_COUNT));
+    }
+
+    @Test
+    public void roundingEdges() {
+        // Amounts with more significant digits than DECIMAL32 keeps.
+        final long[] amounts = {1, 2, 3, 7, 9, 10, 99, 100, 101, 999, 1000,
+            1001, 9999999, 10000000, 10000001, 12345678, 99999995,
+            99999999, 123456789, 999999999999L, 1000000000000L};
+        final long[] deltas = {0, 1, -1, 5, -5, 50, -50, 500, -500};
+        for (int maxDays : new int[] {0, 1, 2, 6, 30}) {
+            for (int maxAmount : new int[] {0, 1, 3, 10, 333, 500, 999, 1000}) {
+                for (int balance : new int[] {0, 1, 333, 500, 667, 999, 1000}) {
+                    final var scorer = new MarketplaceTransactions.MatchScorer(
+                            maxDays, maxAmount, balance);
+                    for (long a : amounts) {
+                        for (long delta : deltas) {
+                            for (long daysDiff = 0; daysDiff <= maxDays + 1;
+                                    ++daysDiff) {
+                                assertSameScore(scorer, a, a + delta, daysDiff, 2);
+                                assertSameScore(scorer, -a, -a - delta, daysDiff, 2);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void amountDiffAtTolerance() {
+        // Amounts with |a - b| / max(a, b) exactly equal to the tolerance.
+        for (int maxAmount = 0; maxAmount <= MarketplaceTransactions.MAX_AMOUNT_DIFF;
+                ++maxAmount) {
+            final var scorer = new MarketplaceTransactions.MatchScorer(3,
+                    maxAmount, 500);
+            for (long a : new long[] {1000, 3000, 7000, 123000}) {
+                final long b = a / MarketplaceTransactions.MAX_AMOUNT_DIFF
+                        * (MarketplaceTransactions.MAX_AMOUNT_DIFF - maxAmount);
+                for (long daysDiff = 0; daysDiff <= 4; ++daysDiff) {
+                    assertSameScore(scorer, a, b, daysDiff, 2);
+                    assertSameScore(scorer, b, a, daysDiff, 2);
+                }
+            }
+        }
+    }
+
+    /**
+     * Asserts that the fixed-point score of the given amounts in minor
+     * currency units equals the BigDecimal score of the amounts with the
+     * given number of fraction digits. Returns false if the fixed-point
+     * math can't score the amounts.
+     */
+    private static boolean assertSameScore(
+            MarketplaceTransactions.MatchScorer scorer, long a, long b,
+            long daysDiff, int fractionDigits) {
+        final BigDecimal aAmount = BigDecimal.valueOf(a, fractionDigits);
+        final BigDecimal bAmount = BigDecimal.valueOf(b, fractionDigits);
+
+        Integer expected;
+        try {
+            expected = scorer.calculateMatchScore(aAmount, bAmount, daysDiff);
+        } catch (ArithmeticException ex) {
+            // Division by zero amount.
+            expected = null;
+        }
+
+        final long actual = scorer.calculateMatchScore(a, b, daysDiff);
+        if (actual == Decimal32.INEXACT) {
+            return false;
+        }
+
+        assertEquals(expected, Integer.valueOf((int) actual), () -> String.format(
+                "a=%s; b=%s; days-diff=%d; %s", aAmount, bAmount, daysDiff,
+                toString(scorer)));
+        return true;
+    }
+
+    private static long randomAmount(Random random) {
+        final long v;
+        switch (random.nextInt(4)) {
+            case 0:
+                v = random.nextInt(100) + 1;
+                break;
+
+            case 1:
+                v = random.nextInt(100_000) + 1;
+                break;
+
+            case 2:
+                v = Math.floorMod(random.nextLong(), MAX_MINOR_AMOUNT) + 1;
+                break;
+
+            default:
+                v = random.nextInt(100_000_000) + 1;
+                break;
+        }
+        return random.nextInt(10) == 0 ? -v : v;
+    }
+
+    private static String toString(MarketplaceTransactions.MatchScorer scorer) {
+        return String.format("max-days-diff=%d; max-amount-diff=%s; balance=%s",
+                scorer.maxDaysDiff, scorer.maxAmountDiff, scorer.balance);
+    }
+
+    private final static long SEED = 1;
+    private final static int RANDOM_PAIR_COUNT = 1_000_000;
+    private final static long MAX_MINOR_AMOUNT = 1_000_000_000_000L;
+}
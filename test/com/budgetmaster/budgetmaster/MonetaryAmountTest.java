@@ -0,0 +1,173 @@
+package com.budgetmaster.budgetmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Checks that MonetaryAmount.of() parses amounts as the substring based
+ * parser did, and the formats it accepts in addition.
+ */
+public class MonetaryAmountTest {
+
+    @Test
+    public void groupSeparators() {
+        assertAmount("$", "1234567.89", "$1,234,567.89");
+        assertAmount("", "-1234567", "-1,234,567");
+        assertAmount("", "1000000.01", "1,000,000.01");
+    }
+
+    @Test
+    public void negativeFormats() {
+        assertAmount("$", "-7.1", "($7.10)");
+        assertAmount("", "-7.1", "(7.10)");
+        assertAmount("", "-7.1", "7.10-");
+        assertAmount("$", "-7.1", "-$7.10");
+        assertAmount("-", "-12.34", "--12.34");
+    }
+
+    @Test
+    public void leadingDecimalPoint() {
+        assertAmount("", "0.5", ".50");
+        assertAmount("$", "-0.5", "-$.50");
+    }
+
+    @Test
+    public void manyDigits() {
+        for (String value : new String[] {"123456789012345678",
+            "1234567890123456789", "12345678901234567890.123",
+            "0.0000000000000000000001", "99999999999999999999999",
+            "1000000000000000000000"}) {
+            assertAmount("", new BigDecimal(value).stripTrailingZeros()
+                    .toPlainString(), value);
+            assertAmount("$", new BigDecimal(value).negate()
+                    .stripTrailingZeros().toPlainString(), "-$" + value);
+        }
+        assertAmount("", "1234567890123456789012",
+                "1,234,567,890,123,456,789,012");
+    }
+
+    @Test
+    public void invalid() {
+        for (String value : new String[] {"", " ", " \t ", "$", "-", "()",
+            "($7.10", "$7.10)", "(7.10)-", "-7.10-", "1.2.3", "12.3,4",
+            "1e5", "abc", "12abc", "."}) {
+            assertThrows(NumberFormatException.class,
+                    () -> MonetaryAmount.of(value), value);
+        }
+    }
+
+    @Test
+    public void range() {
+        final String text = "a $1,234.50 b";
+        final MonetaryAmount amount = MonetaryAmount.of(text, 1, 11);
+        assertEquals("$", amount.getCurrencySymbol());
+        assertEquals(new BigDecimal("1234.5"), amount.getAmount());
+    }
+
+    @Test
+    public void randomValues() {
+        final Random random = new Random(SEED);
+        for (int i = 0; i != VALUE_COUNT; ++i) {
+            final String value = randomValue(random);
+
+            final BigDecimal expected;
+            final String expectedSymbol;
+            try {
+                expected = parseOld(value);
+                expectedSymbol = currencySymbolOld(value);
+            } catch (RuntimeException ex) {
+                continue;
+            }
+
+            final MonetaryAmount actual = MonetaryAmount.of(value);
+            assertEquals(expected, actual.getAmount(), value);
+            assertEquals(expectedSymbol, actual.getCurrencySymbol(), value);
+        }
+    }
+
+    private static void assertAmount(String expectedSymbol,
+            String expectedAmount, String value) {
+        final MonetaryAmount amount = MonetaryAmount.of(value);
+        assertEquals(expectedSymbol, amount.getCurrencySymbol(), value);
+        assertEquals(new BigDecimal(expectedAmount).stripTrailingZeros(),
+                amount.getAmount(), value);
+    }
+
+    /**
+     * Builds values the old parser accepts: an optional sign and currency
+     * symbol followed by digits with at most one group separator.
+     */
+    private static String randomValue(Random random) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(SPACES[random.nextInt(SPACES.length)]);
+        if (random.nextBoolean()) {
+            sb.append('-');
+        }
+        sb.append(SYMBOLS[random.nextInt(SYMBOLS.length)]);
+        final int intDigits = 1 + random.nextInt(22);
+        final int commaPos = random.nextInt(4) == 0 ? 1 + random.nextInt(
+                intDigits) : -1;
+        for (int i = 0; i != intDigits; ++i) {
+            if (i == commaPos) {
+                sb.append(',');
+            }
+            sb.append(randomDigit(random));
+        }
+        if (random.nextBoolean()) {
+            sb.append('.');
+            final int fractionDigits = random.nextInt(6);
+            for (int i = 0; i != fractionDigits; ++i) {
+                sb.append(randomDigit(random));
+            }
+        }
+        sb.append(SPACES[random.nextInt(SPACES.length)]);
+        return sb.toString();
+    }
+
+    private static char randomDigit(Random random) {
+        // Favor zeros to exercise stripping of leading and trailing zeros.
+        return random.nextInt(3) == 0 ? '0' : (char) ('0' + random.nextInt(
+                10));
+    }
+
+    /**
+     * MonetaryAmount.of() amount as it was before it scanned characters.
+     */
+    private static BigDecimal parseOld(String value) {
+        value = value.strip();
+        final boolean negative = value.charAt(0) == '-';
+        int idx = 0;
+        while (idx < value.length() && !Character.isDigit(value.charAt(idx))) {
+            idx++;
+        }
+
+        String number = value.substring(idx);
+        int sepIdx = number.indexOf(',');
+        if (sepIdx > 0) {
+            number = number.substring(0, sepIdx) + number.substring(sepIdx + 1);
+        }
+
+        final BigDecimal amount = new BigDecimal(number).stripTrailingZeros();
+        return negative ? amount.negate() : amount;
+    }
+
+    private static String currencySymbolOld(String value) {
+        value = value.strip();
+        int idx = 0;
+        while (idx < value.length() && !Character.isDigit(value.charAt(idx))) {
+            idx++;
+        }
+        return value.substring(value.charAt(0) == '-' ? 1 : 0, idx);
+    }
+
+    private final static long SEED = 1;
+    private final static int VALUE_COUNT = 200000;
+
+    private final static String[] SPACES = {"", " ", "\t", "  "};
+    private final static String[] SYMBOLS = {"", "$", "€", "USD ", "-"};
+}
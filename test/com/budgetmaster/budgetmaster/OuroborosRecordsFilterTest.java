@@ -0,0 +1,183 @@
+package com.budgetmaster.budgetmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Checks that OuroborosRecordsFilter selects the same records in the same
+ * order as clustering records in maps by statement ID and absolute amount
+ * did.
+ */
+public class OuroborosRecordsFilterTest {
+
+    @BeforeAll
+    public static void silenceMatchedRecords() {
+        loggerLevel = LoggingRecordMatcher.LOGGER.getLevel();
+        LoggingRecordMatcher.LOGGER.setLevel(Level.WARNING);
+    }
+
+    @AfterAll
+    public static void restoreLoggerLevel() {
+        LoggingRecordMatcher.LOGGER.setLevel(loggerLevel);
+    }
+
+    @Test
+    public void randomRecords() {
+        final Random random = new Random(SEED);
+        for (int i = 0; i != SEQUENCE_COUNT; ++i) {
+            final List<Record> records = randomRecords(random);
+            final boolean negate = random.nextBoolean();
+            final boolean refund = random.nextBoolean();
+            final int maxPeriodDays = random.nextInt(4) == 0 ? Integer.MAX_VALUE
+                    : random.nextInt(MAX_DAYS);
+
+            final OuroborosRecordsFilter filter = new OuroborosRecordsFilter()
+                    .negate(negate)
+                    .refund(refund);
+            if (maxPeriodDays != Integer.MAX_VALUE) {
+                filter.maxPeriodDays(maxPeriodDays);
+            }
+
+            assertEquals(DupRecordsFilterTest.indices(records, applyOld(
+                    records.stream(), negate, refund, maxPeriodDays)),
+                    DupRecordsFilterTest.indices(records, filter.apply(
+                            records.stream())), String.format(
+                            "negate %s, refund %s, max period %d", negate,
+                            refund, maxPeriodDays));
+        }
+    }
+
+    /**
+     * OuroborosRecordsFilter.apply() as it was before records were filtered
+     * in batches.
+     */
+    private static Stream<Record> applyOld(Stream<Record> records,
+            boolean negate, boolean refund, long maxPeriodDays) {
+        final Map<String, List<Record>> sourceClusters = new HashMap<>();
+        records.forEachOrdered(r -> {
+            final String sourceId = r.getSource().getId();
+            List<Record> clusterRecords = sourceClusters.get(sourceId);
+            if (clusterRecords == null) {
+                clusterRecords = new ArrayList<>();
+                sourceClusters.put(sourceId, clusterRecords);
+            }
+            clusterRecords.add(r);
+        });
+
+        return sourceClusters.values().stream().flatMap(source -> source
+                .stream().collect(Collectors.toMap(
+                        record -> record.getAmount().abs(),
+                        record -> new Record[] {record},
+                        (a, b) -> Stream.concat(Stream.of(a), Stream.of(b))
+                                .toArray(Record[]::new)))
+                .values().stream()
+                .filter(items -> items.length > 1)
+                .flatMap(items -> forEachAbsAmountOld(items, negate, refund,
+                        maxPeriodDays)));
+    }
+
+    private static Stream<Record> forEachAbsAmountOld(Record[] cluster,
+            boolean negate, boolean refund, long maxPeriodDays) {
+        final Record[] records = Stream.of(cluster).sorted((r1, r2) -> {
+            int result = r1.getTransactionDate().compareTo(
+                    r2.getTransactionDate());
+            if (result == 0) {
+                result = (r1.isNegative() ? 1 : 0) - (r2.isNegative() ? 1 : 0);
+            }
+            return result;
+        }).toArray(Record[]::new);
+
+        final List<Record> matches = new ArrayList<>();
+        for (int i = 0; i < records.length; ++i) {
+            if (records[i] == null) {
+                continue;
+            }
+            final boolean isNegative = records[i].isNegative();
+            if (refund && isNegative) {
+                continue;
+            }
+            for (int j = i + 1; j < records.length; ++j) {
+                if (records[j] != null && isNegative
+                        != records[j].isNegative()) {
+                    final long periodDays = ChronoUnit.DAYS.between(
+                            records[i].getTransactionDate(),
+                            records[j].getTransactionDate());
+                    if (periodDays < maxPeriodDays) {
+                        matches.add(records[i]);
+                        matches.add(records[j]);
+                        records[i] = null;
+                        records[j] = null;
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (negate) {
+            return Stream.of(records).filter(Objects::nonNull);
+        }
+        return matches.stream();
+    }
+
+    private static List<Record> randomRecords(Random random) {
+        final List<Record> result = new ArrayList<>();
+        final int count = random.nextInt(MAX_RECORD_COUNT + 1);
+        final int amountCount = 1 + random.nextInt(MAX_RECORD_COUNT);
+        for (int i = 0; i != count; ++i) {
+            String amount = String.format("%d.%02d", random.nextInt(
+                    amountCount), random.nextInt(3));
+            switch (random.nextInt(8)) {
+                case 0:
+                    // Equal value of a different scale.
+                    amount += "0";
+                    break;
+                case 1:
+                    amount = "12345678901234567890" + amount;
+                    break;
+                default:
+                    break;
+            }
+            if (random.nextBoolean()) {
+                amount = "-" + amount;
+            }
+
+            result.add(new RecordBuilder()
+                    .setId(String.valueOf(i))
+                    .setTransactionDate(LocalDate.of(2019, 1, 1).plusDays(
+                            random.nextInt(MAX_DAYS)))
+                    .setAmount(new BigDecimal(amount))
+                    .setDescription("PURCHASE")
+                    .setSource(STATEMENTS[random.nextInt(STATEMENTS.length)])
+                    .create());
+        }
+        return result;
+    }
+
+    private static Level loggerLevel;
+
+    private final static long SEED = 1;
+    private final static int SEQUENCE_COUNT = 5000;
+    private final static int MAX_RECORD_COUNT = 120;
+    private final static int MAX_DAYS = 20;
+
+    private final static Statement[] STATEMENTS = {
+        Statement.of("Bank", "/x/a"), Statement.of("Bank", "/x/b"),
+        Statement.of("Card", "/x/c"), Statement.of("Paypal", null),
+        Statement.of(null, "/x/d")};
+}
@@ -0,0 +1,90 @@
+package com.budgetmaster.budgetmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+/**
+ * Checks that text extracted from page ranges concurrently is the same as
+ * text extracted from the whole document in one go.
+ */
+public class PdfTextExtractorTest {
+
+    @Test
+    public void pageJobs() throws IOException {
+        final Random random = new Random(SEED);
+        for (int i = 0; i != DOCUMENT_COUNT; ++i) {
+            final Path file = tempDir.resolve(String.format("%d.pdf", i));
+            final int pageCount = i == 0 ? 1 : 1 + random.nextInt(
+                    MAX_PAGE_COUNT);
+            writeDocument(file, pageCount, random);
+
+            for (boolean sortByPosition : new boolean[] {false, true}) {
+                final String expected = new PdfTextExtractor()
+                        .setSortByPosition(sortByPosition)
+                        .extractText(file);
+                for (int pageJobs : PAGE_JOBS) {
+                    final String actual = new PdfTextExtractor()
+                            .setSortByPosition(sortByPosition)
+                            .setPageJobs(pageJobs)
+                            .extractText(file);
+                    assertEquals(expected, actual, String.format(
+                            "%d pages, sort by position %s, %d page jobs",
+                            pageCount, sortByPosition, pageJobs));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes document with lines of text at random positions. Some of the
+     * pages are empty.
+     */
+    private static void writeDocument(Path file, int pageCount, Random random)
+            throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i != pageCount; ++i) {
+                final PDPage page = new PDPage();
+                document.addPage(page);
+                if (random.nextInt(7) == 0) {
+                    continue;
+                }
+                try (PDPageContentStream content = new PDPageContentStream(
+                        document, page)) {
+                    final int lineCount = 1 + random.nextInt(40);
+                    for (int j = 0; j != lineCount; ++j) {
+                        content.beginText();
+                        content.setFont(PDType1Font.HELVETICA, 8
+                                + random.nextInt(6));
+                        content.newLineAtOffset(20 + random.nextInt(300), 20
+                                + random.nextInt(740));
+                        content.showText(String.format(
+                                "JAN%02d Line %d-%d AMAZON %d.%02d", 1
+                                + random.nextInt(28), i, j, random.nextInt(
+                                999), random.nextInt(100)));
+                        content.endText();
+                    }
+                }
+            }
+            document.save(file.toFile());
+        }
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private final static long SEED = 1;
+    private final static int DOCUMENT_COUNT = 5;
+    private final static int MAX_PAGE_COUNT = 24;
+
+    private final static int[] PAGE_JOBS = {0, 2, 3, 7, 64};
+}
@@ -0,0 +1,83 @@
+package com.budgetmaster.budgetmaster;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Checks that tags of RecordBuilder are in the same order as they were when
+ * addTag() collected them in HashSet.
+ */
+public class RecordBuilderTest {
+
+    @Test
+    public void addTagAfterDuplicates() {
+        final RecordBuilder rb = newRecordBuilder()
+                .setTags(new String[] {"a", "a"})
+                .addTag("b");
+        assertArrayEquals(addTag(new String[] {"a", "a"}, "b"), rb.getTags());
+    }
+
+    @Test
+    public void randomTags() {
+        final Random random = new Random(SEED);
+        for (int i = 0; i != SEQUENCE_COUNT; ++i) {
+            final RecordBuilder rb = newRecordBuilder();
+            String[] expected = null;
+            final int opCount = 1 + random.nextInt(30);
+            for (int op = 0; op != opCount; ++op) {
+                if (random.nextInt(10) == 0) {
+                    final String[] tags = new String[random.nextInt(12)];
+                    for (int j = 0; j != tags.length; ++j) {
+                        tags[j] = randomTag(random);
+                    }
+                    rb.setTags(tags);
+                    expected = tags.clone();
+                } else {
+                    final String tag = randomTag(random);
+                    rb.addTag(tag);
+                    expected = addTag(expected, tag);
+                }
+                assertArrayEquals(expected, rb.getTags());
+            }
+            assertArrayEquals(expected, rb.create().getTags());
+        }
+    }
+
+    /**
+     * addTag() as it was when tags were collected in HashSet.
+     */
+    private static String[] addTag(String[] tags, String tag) {
+        Set<String> newTags = new HashSet<>();
+        if (tags != null) {
+            newTags.addAll(List.of(tags));
+        }
+        newTags.add(tag);
+        return newTags.toArray(String[]::new);
+    }
+
+    private static String randomTag(Random random) {
+        return TAGS[random.nextInt(TAGS.length)];
+    }
+
+    private static RecordBuilder newRecordBuilder() {
+        return new RecordBuilder()
+                .setTransactionDate(LocalDate.of(2019, 1, 11))
+                .setDescription("PURCHASE")
+                .setAmount("1.00");
+    }
+
+    private final static long SEED = 1;
+    private final static int SEQUENCE_COUNT = 20000;
+
+    private final static String[] TAGS = {"a", "b", "c", "shop", "all",
+        "noae", "foo", "amazon", "paypal", "refund", "ouroboros", "dup",
+        "x1", "x2", "x3", "tag_17", "tag-18", "Q", "food", "travel", "rent",
+        "gift", "fee", "tax", "cash", "atm", "ebay", "mktp", "misc", "z"};
+}
@@ -0,0 +1,62 @@
+package com.budgetmaster.budgetmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+/**
+ * Checks that RecordsReaderBinary reads back records saved by
+ * BinaryRecordsSerializer.
+ */
+public class RecordsReaderBinaryTest {
+
+    @Test
+    public void statementsWithNullIds(@TempDir Path dir) throws Exception {
+        final List<Record> records = List.of(
+                record("#1", Statement.of("Bank", "/x/st1.pdf")),
+                record("#2", Statement.of("Bank", null)),
+                record("#3", Statement.of(null, "/x/st2.pdf")),
+                record("#4", null));
+
+        final Path file = dir.resolve("records.brec");
+        new BinaryRecordsSerializer().saveToFile(records.stream(), file);
+
+        final List<Record> loaded;
+        try (Stream<Record> stream = new RecordsReaderBinary().read(file)) {
+            loaded = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(records.size(), loaded.size());
+        for (int i = 0; i != records.size(); ++i) {
+            final Statement expected = records.get(i).getSource();
+            final Statement actual = loaded.get(i).getSource();
+            assertEquals(records.get(i).getId(), loaded.get(i).getId());
+            if (expected == null) {
+                assertNull(actual);
+            } else {
+                assertEquals(expected.getId(), actual.getId());
+                assertEquals(expected.getSystemId(), actual.getSystemId());
+            }
+            // Records are logged with their statement IDs.
+            assertEquals(records.get(i).toString(), loaded.get(i).toString());
+        }
+    }
+
+    private static Record record(String id, Statement source) {
+        return new RecordBuilder()
+                .setId(id)
+                .setTransactionDate(LocalDate.of(2019, 1, 11))
+                .setAmount("1.23")
+                .setDescription("PURCHASE")
+                .setSource(source)
+                .create();
+    }
+}
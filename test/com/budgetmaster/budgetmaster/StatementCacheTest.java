@@ -0,0 +1,64 @@
+package com.budgetmaster.budgetmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+/**
+ * Checks that StatementCache reads back records it saved.
+ */
+public class StatementCacheTest {
+
+    @Test
+    public void sourceWithoutSystemId(@TempDir Path dir) throws Exception {
+        final Path statementFile = Files.writeString(dir.resolve("st.csv"),
+                "statement");
+        final Statement other = Statement.of("Other", null);
+        final Statement statement = new Statement() {
+            @Override
+            public String getId() {
+                return "Bank";
+            }
+
+            @Override
+            public String getSystemId() {
+                return statementFile.toString();
+            }
+
+            @Override
+            public Stream<Record> get() {
+                return Stream.of(new RecordBuilder()
+                        .setId("#1")
+                        .setTransactionDate(LocalDate.of(2019, 1, 11))
+                        .setDescription("PURCHASE")
+                        .setAmount("1.00")
+                        .setSource(other)
+                        .create());
+            }
+        };
+
+        final StatementCache cache = new StatementCache(dir.resolve("cache"));
+        for (int i = 0; i != 2; ++i) {
+            final List<Record> records;
+            try (Stream<Record> stream = cache.wrap(statement, statementFile,
+                    "fingerprint").get()) {
+                records = stream.collect(Collectors.toList());
+            }
+            assertEquals(1, records.size());
+            assertEquals("Other", records.get(0).getSource().getId());
+            assertNull(records.get(0).getSource().getSystemId());
+        }
+
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+}
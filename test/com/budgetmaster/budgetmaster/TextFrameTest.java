@@ -0,0 +1,112 @@
+package com.budgetmaster.budgetmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Checks that TextFrame finds the same frames as String.indexOf() and that
+ * lines() yields the same lines as splitting the stripped value with "\\R".
+ */
+public class TextFrameTest {
+
+    @Test
+    public void lineTerminators() {
+        for (String text : new String[] {"", " ", "a", "a\r\nb", "a\n\rb",
+            "a\r\rb\n\nc", " a \r\n b \r\n", "\u0085a\u0085", "\u0085",
+            "a\u2028b\u2029c\u000Bd\u000Ce", "a\r\n\r\n\r\n"}) {
+            final TextFrame frame = new TextFrame("<" + text + ">").set("<",
+                    ">");
+            assertEquals(split(frame), lines(frame), text);
+        }
+    }
+
+    @Test
+    public void excerpt() {
+        final String text = "x".repeat(1000);
+        final TextFrameException ex = assertThrows(TextFrameException.class,
+                () -> new TextFrame(text).set("y", "z"));
+        assertTrue(ex.getMessage().length() < 300, ex.getMessage());
+    }
+
+    @Test
+    public void randomFrames() {
+        final Random random = new Random(SEED);
+        for (int i = 0; i != TEXT_COUNT; ++i) {
+            final String text = randomText(random);
+            final List<String> anchors = new ArrayList<>();
+            for (String token : TOKENS) {
+                if (random.nextBoolean()) {
+                    anchors.add(token);
+                }
+            }
+            final TextFrame frame = new TextFrame(text, anchors);
+
+            int begin = 0;
+            final int setCount = 1 + random.nextInt(8);
+            for (int j = 0; j != setCount; ++j) {
+                final String from = TOKENS[random.nextInt(TOKENS.length)];
+                final String to = TOKENS[random.nextInt(TOKENS.length)];
+                final String message = String.format("[%s] [%s] in [%s]", from,
+                        to, text);
+
+                // TextFrame.set() as it was before occurrences were indexed.
+                final int newBegin = text.indexOf(from, begin);
+                final int newEnd = newBegin < 0 ? -1 : text.indexOf(to,
+                        newBegin + from.length());
+                if (newEnd < 0) {
+                    assertThrows(TextFrameException.class, () -> frame.set(
+                            from, to), message);
+                    break;
+                }
+                frame.set(from, to);
+                begin = newBegin + from.length();
+
+                final String value = text.substring(begin, newEnd);
+                assertEquals(value, frame.getValue(), message);
+                assertEquals(value.strip(), frame.getStrippedValue(), message);
+                assertEquals(value, frame.getView().toString(), message);
+                assertEquals(value.strip(), frame.getStrippedView().toString(),
+                        message);
+                assertEquals(split(frame), lines(frame), message);
+            }
+        }
+    }
+
+    private static List<String> split(TextFrame frame) {
+        return List.of(frame.getStrippedValue().split("\\R"));
+    }
+
+    private static List<String> lines(TextFrame frame) {
+        return frame.lines().map(CharSequence::toString).collect(
+                Collectors.toList());
+    }
+
+    private static String randomText(Random random) {
+        final StringBuilder sb = new StringBuilder();
+        final int length = random.nextInt(60);
+        for (int i = 0; i != length; ++i) {
+            if (random.nextInt(4) == 0) {
+                sb.append(TOKENS[random.nextInt(TOKENS.length)]);
+            } else {
+                sb.append(CHARS.charAt(random.nextInt(CHARS.length())));
+            }
+        }
+        return sb.toString();
+    }
+
+    private final static long SEED = 1;
+    private final static int TEXT_COUNT = 20000;
+
+    private final static String[] TOKENS = {"Begin", "End", "ab", "a", "b",
+        "\n", "\r\n", "Balance\n"};
+    private final static String CHARS
+            = "ab xy  \t\n\r\u000B\u000C\u0085\u2028\u2029";
+}
@@ -0,0 +1,107 @@
+package com.budgetmaster.budgetmaster.tdbank;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.budgetmaster.budgetmaster.LineTokenizer;
+import com.budgetmaster.budgetmaster.RecordBuilder;
+import com.budgetmaster.budgetmaster.Util;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Checks that TD Bank record lines are parsed with LineTokenizer the same
+ * way they were parsed from strings.
+ */
+public class TdBankStatementPdfTest {
+
+    @Test
+    public void missingDescription() throws Exception {
+        for (boolean negate : new boolean[] {false, true}) {
+            final TdBankStatementPdf parser = newParser(negate);
+            for (String line : new String[] {"01/05 12.34", "01/05  -12.34"}) {
+                assertThrows(IllegalArgumentException.class,
+                        () -> parser.parseRecord(new LineTokenizer().reset(
+                                line), new RecordBuilder()));
+                assertThrows(RuntimeException.class, () -> parseOld(line,
+                        negate));
+            }
+        }
+    }
+
+    @Test
+    public void randomLines() throws Exception {
+        final Random random = new Random(SEED);
+        for (boolean negate : new boolean[] {false, true}) {
+            final TdBankStatementPdf parser = newParser(negate);
+            for (int i = 0; i != LINE_COUNT; ++i) {
+                final StringBuilder sb = new StringBuilder("01/05");
+                final int wordCount = 1 + random.nextInt(4);
+                for (int j = 0; j != wordCount; ++j) {
+                    sb.append(SPACES[random.nextInt(SPACES.length)]);
+                    sb.append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                sb.append(SPACES[random.nextInt(SPACES.length)]);
+                sb.append(AMOUNTS[random.nextInt(AMOUNTS.length)]);
+                final String line = sb.toString();
+
+                final RecordBuilder expected;
+                try {
+                    expected = parseOld(line, negate);
+                } catch (RuntimeException ex) {
+                    assertThrows(RuntimeException.class, () -> parser
+                            .parseRecord(new LineTokenizer().reset(line),
+                                    new RecordBuilder()), line);
+                    continue;
+                }
+
+                final RecordBuilder actual = new RecordBuilder().strip();
+                parser.parseRecord(new LineTokenizer().reset(line), actual);
+                assertEquals(expected.getAmount(), actual.getAmount(), line);
+                assertEquals(expected.getDescription().strip(),
+                        actual.getDescription().strip(), line);
+            }
+        }
+    }
+
+    /**
+     * Parses the record line as TdBankStatementPdf did before LineTokenizer.
+     */
+    private static RecordBuilder parseOld(String line, boolean negate) {
+        final String str = Util.splitAtWhitespace(line.replaceAll(
+                "[\\n\\r\\s]+", " "), 2)[1];
+        final RecordBuilder rb = new RecordBuilder().strip();
+        final int amountIdx = str.lastIndexOf(' ');
+        String amountValue = str.substring(amountIdx).strip();
+        if (negate) {
+            amountValue = "-" + amountValue;
+        }
+        rb.setAmount(amountValue);
+        rb.setDescription(str.substring(0, amountIdx).strip());
+        return rb;
+    }
+
+    private static TdBankStatementPdf newParser(boolean negate) throws
+            Exception {
+        final TdBankStatementPdf parser = new TdBankStatementPdf();
+        final Field field = TdBankStatementPdf.class.getDeclaredField(
+                "negateCurrentRecordAmount");
+        field.setAccessible(true);
+        field.setBoolean(parser, negate);
+        return parser;
+    }
+
+    private final static long SEED = 1;
+    private final static int LINE_COUNT = 100000;
+
+    private final static String[] SPACES = {" ", "  ", "\t", " \t "};
+    private final static String[] WORDS = {"DEBIT", "CARD", "PURCHASE,",
+        "AUT", "010519", "VISA", "DDA", "AMAZON.COM*MK1234", "#123", "-",
+        "$", "1.00", "(COST)", "ACH", "DEPOSIT"};
+    private final static String[] AMOUNTS = {"12.34", "1,234.56", "0.00",
+        "-12.34", "$5.00", "-$5.00", "7", "1,000,000.01", "(7.10)", "7.10-",
+        ".50", "12.3.4", "abc", "--1"};
+}